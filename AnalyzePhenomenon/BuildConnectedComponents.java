@@ -1,6 +1,9 @@
 import java.util.*;
 import java.io.*;
 
+import DataStream.Mining.FrequentPatterns.ItemDictionary;
+import DataStream.Mining.FrequentPatterns.TransactionTokenizer;
+
 /*
  - java BuildConnectedComponents [input filename located at data/itemsets] [output file to be generated at data/phenomenon]
  - input file:  This file will contain all the list of frequent itemsets.
@@ -8,6 +11,9 @@ import java.io.*;
  - output file: Prints all the hashtags related to a phenomenon. 
 		All related hashtags for a phenomenon appear in a single line.
 		Line ends with an asterisk.
+ - the itemsets are tokenized by the TransactionTokenizer of the mining classes:
+	javac -cp ../DragonBallZ/SaiyanSaga/bin BuildConnectedComponents.java
+	java -cp .:../DragonBallZ/SaiyanSaga/bin BuildConnectedComponents ...
 */
 
 public class BuildConnectedComponents {
@@ -41,29 +47,29 @@ public class BuildConnectedComponents {
 
 		try 
     		{
-    			FileInputStream fis = new FileInputStream(new File(inputfile));
-    			BufferedReader br = new BufferedReader(new InputStreamReader(fis));
-            		String rec = null;
+    			ItemDictionary dictionary = new ItemDictionary();
+			TransactionTokenizer tokenizer = new TransactionTokenizer(new FileInputStream(new File(inputfile)), dictionary);
 
-			while ((rec = br.readLine()) != null) 
+			while (tokenizer.next()) 
             		{
-				if(rec.length()==0)	continue;	//newline
+				if(tokenizer.size()==0)	continue;	//newline
 
-				String txt[] = rec.split("\\s+");
+				int txt[] = tokenizer.getItems();
 
 				comps[comp_id] = comp_id;	
 				String unseen_tags = "";
 
-				for(int i=0; i<txt.length-1; i++) 	//leave out last token, do not consider the support at the end 
+				for(int i=0; i<tokenizer.size()-1; i++) 	//leave out last token, do not consider the support at the end 
 				{					
-					if(!ht.containsKey(txt[i]))	//if hashtag not seen before
+					String tag = dictionary.decode(txt[i]);	//String of the token, created once by the dictionary
+					if(!ht.containsKey(tag))	//if hashtag not seen before
 					{
-						ht.put(txt[i],comp_id);		//add it with current component id
-						unseen_tags+=txt[i]+" ";	//append unseen hashtag
+						ht.put(tag,comp_id);		//add it with current component id
+						unseen_tags+=tag+" ";	//append unseen hashtag
 					}
 					else
 					{
-						int old_comp_id = (int)ht.get(txt[i]);
+						int old_comp_id = (int)ht.get(tag);
 						while(old_comp_id != comps[old_comp_id])
 							old_comp_id = comps[old_comp_id];
 						comps[old_comp_id] = comp_id;
@@ -72,7 +78,7 @@ public class BuildConnectedComponents {
 				tags[comp_id] = unseen_tags;
 				comp_id++;
 			}	
-            		br.close();
+            		tokenizer.close();
                 }
     		catch(Exception e)
     		{
@@ -1,12 +1,18 @@
 import java.util.*;
 import java.io.*;
 
+import DataStream.Mining.FrequentPatterns.ItemDictionary;
+import DataStream.Mining.FrequentPatterns.TransactionTokenizer;
+
 /*
  - java PhenomenonLifeAnalysis 
 	[input file path containing consolidated phenomenon] 
 	[input dir comprising local daily phenomenon]
 	[output dir path where the analysis results will be stored]
  - in global consolidated phenomenon file, we are bothered with phenomenon having length > 1
+ - the phenomenon files are tokenized by the TransactionTokenizer of the mining classes:
+	javac -cp ../DragonBallZ/SaiyanSaga/bin PhenomenonLifeAnalysis.java
+	java -cp .:../DragonBallZ/SaiyanSaga/bin PhenomenonLifeAnalysis ...
 */
 
 public class PhenomenonLifeAnalysis {
@@ -36,6 +42,7 @@ public class PhenomenonLifeAnalysis {
 		
 		Hashtable<String,Integer> phenm_trck = new Hashtable<String,Integer>();
 		Hashtable<String,Boolean> discovered_hashtag = new Hashtable<String,Boolean>();
+		ItemDictionary dictionary = new ItemDictionary();	//hashtags of all the files
 
 		int phen_evol[][] = new int[900][91]; //for tracking evolution of max 900 phenomenon over 90 days
 		for(int i=0; i<900; i++)	//phenomenon i
@@ -46,22 +53,21 @@ public class PhenomenonLifeAnalysis {
 
 		try 
     		{
-    			FileInputStream fis = new FileInputStream(new File(infile_consol_phenm));
-    			BufferedReader br = new BufferedReader(new InputStreamReader(fis));
-            		String rec = null;
+    			TransactionTokenizer tokenizer = new TransactionTokenizer(new FileInputStream(new File(infile_consol_phenm)), dictionary);
 
-			while ((rec = br.readLine()) != null) 
+			while (tokenizer.next()) 
             		{
-				String txt[] = rec.split("\\s+");
+				int txt[] = tokenizer.getItems();
 				num_phenm++;
 
-				for(int i=0; i<txt.length; i++) 	
+				for(int i=0; i<tokenizer.size(); i++) 	
 				{
-					phenm_trck.put(txt[i],num_phenm);		
-					discovered_hashtag.put(txt[i],false);
+					String tag = dictionary.decode(txt[i]);	//String of the token, created once by the dictionary
+					phenm_trck.put(tag,num_phenm);		
+					discovered_hashtag.put(tag,false);
 				}
 			}	
-            		br.close();
+            		tokenizer.close();
                 }
     		catch(Exception e)
     		{
@@ -74,33 +80,32 @@ public class PhenomenonLifeAnalysis {
 			String infile = daily_phenm + "/" + i + ".dat";
 			try 
     			{
-    				FileInputStream fis = new FileInputStream(new File(infile));
-    				BufferedReader br = new BufferedReader(new InputStreamReader(fis));
-            			String rec = null;
+    				TransactionTokenizer tokenizer = new TransactionTokenizer(new FileInputStream(new File(infile)), dictionary);
 
-				while ((rec = br.readLine()) != null) 
+				while (tokenizer.next()) 
             			{
-					String txt[] = rec.split("\\s+");
+					int txt[] = tokenizer.getItems();
 
-					if(!phenm_trck.containsKey(txt[0]))	
+					if(tokenizer.size()==0 || !phenm_trck.containsKey(dictionary.decode(txt[0])))	
 						continue;	//single element phenomenon to be ignored
 
-					int ph_id = phenm_trck.get(txt[0]); 
+					int ph_id = phenm_trck.get(dictionary.decode(txt[0])); 
 					int cnt=0;
 	
-					for(int k=0; k<txt.length-1; k++) //leave out last asterisk
+					for(int k=0; k<tokenizer.size()-1; k++) //leave out last asterisk
 					{
-						boolean bool = discovered_hashtag.get(txt[k]);
+						String tag = dictionary.decode(txt[k]);
+						boolean bool = discovered_hashtag.get(tag);
 						if(bool==false)
 						{
-							discovered_hashtag.put(txt[k],true);
+							discovered_hashtag.put(tag,true);
 							cnt++;
 						}
 					}
 
 					phen_evol[ph_id][i] = cnt;
 				}	
-            			br.close();
+            			tokenizer.close();
                 	}
     			catch(Exception e)
     			{
@@ -1,11 +1,18 @@
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Date;
 import java.io.*;
 
+import DataStream.Mining.FrequentPatterns.ItemDictionary;
+import DataStream.Mining.FrequentPatterns.TransactionTokenizer;
+
 /*
  - java SplitByTime [start time] [slide window length]
  - java SplitByTime 2012/10/01-12:10:25 1-12-30-45 
  - means slide length of 1 day 12 hrs 30 mins and 45 secs
+ - the records are tokenized by the TransactionTokenizer of the mining classes:
+	javac -cp ../DragonBallZ/SaiyanSaga/bin SplitByTime.java
+	java -cp .:../DragonBallZ/SaiyanSaga/bin SplitByTime ...
 */
 public class SplitByTime {
 
@@ -54,16 +61,17 @@ public class SplitByTime {
 		String inputfile = "data/input/tweets_hashtags.dat";
 		try 
     		{
-    			FileInputStream fis = new FileInputStream(new File(inputfile));
-    			BufferedReader br = new BufferedReader(new InputStreamReader(fis));
-            		String rec = null;
+    			ItemDictionary dictionary = new ItemDictionary();
+			TransactionTokenizer tokenizer = new TransactionTokenizer(new FileInputStream(new File(inputfile)), dictionary);
+			String tags[] = new String[0];	//hashtags written for the token ids, without their '#' and lower-cased once
 			int slides = 1;
             		
-			while ((rec = br.readLine()) != null) 
+			while (tokenizer.next()) 
             		{
-				String txt[] = rec.split("\\s+");
+				if(tokenizer.size() < 2)	continue;	//no date and time
+				int txt[] = tokenizer.getItems();
 
-				Date dt = recformat.parse(txt[0]+" "+txt[1]);
+				Date dt = recformat.parse(dictionary.decode(txt[0])+" "+dictionary.decode(txt[1]));
 
 				if(dt.getTime()/1000 > endpoint)
 				{
@@ -71,11 +79,23 @@ public class SplitByTime {
 					endpoint+=slide_window_length;
 				}
 
+				if(tags.length < dictionary.size())
+					tags = Arrays.copyOf(tags, Math.max(dictionary.size(), 2*tags.length));
+				StringBuilder text = new StringBuilder();
+				for(int i=2; i<tokenizer.size(); i++)
+				{
+					if(tags[txt[i]] == null)
+						tags[txt[i]] = ((dictionary.decode(txt[i])).substring(1)).toLowerCase();
+					text.append(tags[txt[i]]).append(' ');
+				}
+				if(tokenizer.size()>2)
+					text.append('\n');
+
 				String outputfile = timesplitdir+slides+".dat";
-				appendToFile(outputfile, txt);					
+				appendToFile(outputfile, text.toString());					
 	            	}
 	
-            		br.close();
+            		tokenizer.close();
 
 			System.out.println("total files created: "+ slides);
                 }
@@ -86,14 +106,11 @@ public class SplitByTime {
     		}		
 	}
 
-	public static void appendToFile(String filename, String text[]) {
+	public static void appendToFile(String filename, String text) {
 		try {
             		File file = new File(filename);
             		BufferedWriter bw = new BufferedWriter(new FileWriter(file, true));
-			for(int i=2; i<text.length; i++)
-            			bw.append(((text[i]).substring(1)).toLowerCase()+" ");
-			if(text.length>2)
-				bw.append("\n");
+			bw.append(text);
             		bw.close();
 		} catch(IOException ioe) {
 			ioe.printStackTrace();
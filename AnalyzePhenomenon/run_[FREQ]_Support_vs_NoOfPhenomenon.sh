@@ -7,7 +7,7 @@ rm -fR data/phenomenon/*
 
 # 1. Split the entire input data into individual days from 2015-01-01 to 2015-03-31
 
-java SplitByTime 2015/01/01-00:00:00 1-00-00-00
+java -cp .:../DragonBallZ/SaiyanSaga/bin SplitByTime 2015/01/01-00:00:00 1-00-00-00
 
 # 2. Now mine the frequent itemsets from each of the days with different support values
 
@@ -41,7 +41,7 @@ do
 
 	for((f=1; f<=45; f++))
 	do
-		java BuildConnectedComponents freq/1-00-00-00/0"$x"/"$f".dat from_freq/1-00-00-00/0"$x"/"$f".dat
+		java -cp .:../DragonBallZ/SaiyanSaga/bin BuildConnectedComponents freq/1-00-00-00/0"$x"/"$f".dat from_freq/1-00-00-00/0"$x"/"$f".dat
 	done
 done
 
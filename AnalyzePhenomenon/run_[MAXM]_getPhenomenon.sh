@@ -28,6 +28,6 @@ do
 
 	for((f=1; f<=90; f++))
 	do
-		java BuildConnectedComponents maxm/1-00-00-00/0"$x"/"$f".dat from_maxm/1-00-00-00/0"$x"/"$f".dat
+		java -cp .:../DragonBallZ/SaiyanSaga/bin BuildConnectedComponents maxm/1-00-00-00/0"$x"/"$f".dat from_maxm/1-00-00-00/0"$x"/"$f".dat
 	done
 done
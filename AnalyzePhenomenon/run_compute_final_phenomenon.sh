@@ -14,7 +14,7 @@ done
 
 # 2. Now again form connected components from this daily phenomenon over 90 days to get the final phenomenon
 
-java BuildConnectedComponents all_daily_phenomenon/list_"$1".dat final_phenomenon/list_"$1".dat
+java -cp .:../DragonBallZ/SaiyanSaga/bin BuildConnectedComponents all_daily_phenomenon/list_"$1".dat final_phenomenon/list_"$1".dat
 
 # 3. Produce the following results just for analysis, not to be used anywhere else.
 
@@ -11,7 +11,7 @@
 for((i=5; i<=90; i+=5))
 do
 	s=$(echo "scale = 2; $i/100" | bc)
-	#java PhenomenonLifeAnalysis ../OrganizePhenomenon/dataset/final_phenomenon/supp_0"$s".txt data/phenomenon/from_maxm/1-00-00-00/0"$s" results/lifeanalysis/0"$s"
+	#java -cp .:../DragonBallZ/SaiyanSaga/bin PhenomenonLifeAnalysis ../OrganizePhenomenon/dataset/final_phenomenon/supp_0"$s".txt data/phenomenon/from_maxm/1-00-00-00/0"$s" results/lifeanalysis/0"$s"
 	cat results/lifeanalysis/0"$s"/phen_lifetime.dat | awk '{print $4}' | cut -d':' -f2 > results/lifeanalysis/0"$s"/phen_lifetime.histogram # (a)
 	cat results/lifeanalysis/0"$s"/delta_phen.dat | awk '{print $2}' | sort | uniq -c > results/lifeanalysis/0"$s"/delta_phen_num.histogram # (b)
 	while read line; 
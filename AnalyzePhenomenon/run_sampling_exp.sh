@@ -20,7 +20,7 @@ do
 	x=$(echo "scale = 2; $i/100" | bc)
 	mkdir -p data/phenomenon/from_maxm/"$z"/0"$x"
 
-	java BuildConnectedComponents maxm/"$z"/0"$x"/1.dat from_maxm/"$z"/0"$x"/1.dat
+	java -cp .:../DragonBallZ/SaiyanSaga/bin BuildConnectedComponents maxm/"$z"/0"$x"/1.dat from_maxm/"$z"/0"$x"/1.dat
 done
 
 done
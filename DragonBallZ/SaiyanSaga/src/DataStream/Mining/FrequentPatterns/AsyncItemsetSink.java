@@ -0,0 +1,171 @@
+package DataStream.Mining.FrequentPatterns;
+
+/*
+ * Item set sink handing the item sets over to another sink, which runs on a separate writer thread.
+ * 
+ * Description:
+ * - 	The mining thread only copies the item sets into blocks (CollectingItemsetSink); 
+ * 		full blocks are put into a bounded queue and replayed into the target sink by the writer thread.
+ * 		So formatting and I/O of the target sink (e.g. a TextItemsetSink) overlap with the mining.
+ * 
+ * -	If the writer falls behind, the queue fills up and the mining thread waits (back pressure).
+ * 
+ * -	startMining()/endMining() are passed on in order. endMining() does not wait for the writer, 
+ * 		use drain() to wait until everything queued so far reached the target sink, and close() to stop the writer thread.
+ */
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+public class AsyncItemsetSink implements ItemsetSink {
+	private static final int DEFAULT_QUEUE_CAPACITY = 16;
+	private static final int BLOCK_SIZE = 4096;				//item sets per block
+	
+	private static final Object END_MINING = new Object();	//queue markers
+	private static final Object STOP = new Object();
+	
+	private ItemsetSink target;
+	private BlockingQueue<Object> queue;					//blocks, dictionaries (start of a mining run) and markers
+	private BlockingQueue<CollectingItemsetSink> free_blocks;	//replayed blocks, reused by the mining thread
+	private CollectingItemsetSink block;					//block being filled by the mining thread
+	private Thread writer;
+	private long queued;									//messages queued by the mining thread
+	private long processed;									//messages processed by the writer thread, guarded by this
+	
+	public AsyncItemsetSink(ItemsetSink target)
+	{
+		this(target, DEFAULT_QUEUE_CAPACITY);
+	}
+	
+	public AsyncItemsetSink(ItemsetSink target, int queue_capacity)
+	{
+		this.target = target;
+		queue = new ArrayBlockingQueue<Object>(queue_capacity);
+		free_blocks = new ArrayBlockingQueue<CollectingItemsetSink>(queue_capacity + 1);
+		block = new CollectingItemsetSink();
+		queued = 0;
+		processed = 0;
+		
+		writer = new Thread(new Runnable() {
+			public void run()
+			{
+				writeLoop();
+			}
+		}, "itemset-writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+	
+	public void startMining(ItemDictionary dictionary)
+	{
+		put(dictionary);
+	}
+	
+	public void itemset(int[] items, int length, int support)
+	{
+		block.itemset(items, length, support);
+		if(block.size() == BLOCK_SIZE)
+			flushBlock();
+	}
+	
+	public void endMining()
+	{
+		flushBlock();
+		put(END_MINING);
+	}
+	
+	//waits until all the item sets queued so far have been handed over to the target sink
+	public void drain()
+	{
+		flushBlock();
+		synchronized(this)
+		{
+			while(processed < queued)
+			{
+				try 
+				{
+					wait();
+				} 
+				catch(InterruptedException ie) 
+				{
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+	
+	//drains the queue and stops the writer thread, the sink must not be used afterwards
+	public void close()
+	{
+		drain();
+		put(STOP);
+		try 
+		{
+			writer.join();
+		} 
+		catch(InterruptedException ie) 
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	private void flushBlock()
+	{
+		if(block.size() == 0)
+			return;
+		put(block);
+		block = free_blocks.poll();
+		if(block == null)
+			block = new CollectingItemsetSink();
+	}
+	
+	private void put(Object message)
+	{
+		try 
+		{
+			queue.put(message);		//waits while the queue is full
+			queued++;
+		} 
+		catch(InterruptedException ie) 
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	private void writeLoop()
+	{
+		while(true)
+		{
+			Object message;
+			try 
+			{
+				message = queue.take();
+			} 
+			catch(InterruptedException ie) 
+			{
+				return;
+			}
+			
+			if(message == STOP)
+				return;
+			else if(message == END_MINING)
+				target.endMining();
+			else if(message instanceof ItemDictionary)
+				target.startMining((ItemDictionary) message);
+			else
+			{
+				CollectingItemsetSink full_block = (CollectingItemsetSink) message;
+				full_block.replayTo(target);
+				full_block.clear();
+				free_blocks.offer(full_block);	//dropped if there are enough free blocks already
+			}
+			
+			synchronized(this)
+			{
+				processed++;
+				notifyAll();
+			}
+		}
+	}
+}
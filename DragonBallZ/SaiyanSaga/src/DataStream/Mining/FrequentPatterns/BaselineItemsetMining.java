@@ -4,21 +4,51 @@ package DataStream.Mining.FrequentPatterns;
  * Generate the stream of transaction events.
  * Use EPL to query the streaming data. 
  * Perform necessary actions (baseline frequent item set mining through repeated FPTree constructions) on the query results. 
+ * 
+ * By default, the slides are cut by the native length batch window (see LengthBatchWindow) instead of Esper:
+ * same physical window semantics, the transactions go straight to slideWindow(). Esper stays available (see useEsper()).
+ * Either way, every transaction is parsed once as it is read (see Transaction): its items are encoded and sorted,
+ * the EPL query selects them as a typed property.
+ * 
+ * With more than one core, the slides go through a pipeline (see startPipeline()):
+ * 		parsing (listener thread) -> window update -> mining -> output, 
+ * with bounded queues between the stages. So slide N+1 is parsed and applied while slide N is mined and written.
+ * The time logged for a slide is then taken by the output stage, once the slide is written (see SlideListener.slideOutput()):
+ * from its arrival (or the output of the previous slide) to its output, the same span (update, mining and output) as without the pipeline.
+ * 
+ * The window holds the transactions encoded as item ids, in one circular buffer (see WindowStore): 
+ * a slide is encoded once as it arrives, the oldest slide leaves the window at once and the FP-Tree is built straight from the buffer.
+ * 
+ * The ids of the items gone from the window are released from time to time (see reclaimItemIds()) and handed out again to new items,
+ * so over an unbounded stream the dictionary and the arrays indexed by item id stay bounded by the distinct items of the window.
  */
 
 import com.espertech.esper.client.*;
 
 import java.io.*;
 import java.util.ArrayList;
-import java.util.LinkedList;
 
 public class BaselineItemsetMining {
 	
 	//We will extend this class and we want this attributes to be used by its children classes.
-	protected LinkedList<String> window_content;
+	protected WindowStore window_content;	//encoded transactions of the window, oldest first
 	protected int window_length;
 	protected int slide_length;
 	protected int support_val;
+	protected ItemsetSink itemset_sink;		//receives the frequent item sets mined at every slide
+	protected MiningStrategy mining_strategy;	//e.g. FP_MAX to mine the maximal frequent item sets only
+	protected int top_k;					//if > 0, only the top_k most frequent item sets (of at least min_length items) are mined at every slide
+	protected int min_length;
+	protected PipelineStage<int[][]> update_stage;		//pipeline stages, null if every slide is processed on the listener thread
+	protected PipelineStage<?> mining_stage;
+	protected PipelineStage<CollectingItemsetSink> output_stage;
+	private ArrayList<PipelineStage<?>> pipeline_stages;	//stages of the last stream, for their statistics
+	protected SlideListener slide_listener;		//logs the processing time of every slide (null if the slides come from elsewhere)
+	private long parse_time;		//parsing stage (listener thread), in nanoseconds
+	private long parse_wait_time;	//waiting for the window update stage
+	private int live_items;			//distinct items of the window at the last reclamation of item ids
+	
+	static final int RECLAIM_MIN_ITEMS = 4096;	//item ids are never reclaimed below this many ids in use
 	
 	public int getWindowLength()
 	{
@@ -50,6 +80,38 @@ public class BaselineItemsetMining {
 		this.support_val = val;
 	}
 	
+	public ItemsetSink getItemsetSink()
+	{
+		return itemset_sink;
+	}
+	
+	public void setItemsetSink(ItemsetSink sink)
+	{
+		this.itemset_sink = sink;
+	}
+	
+	public MiningStrategy getMiningStrategy()
+	{
+		return mining_strategy;
+	}
+	
+	public void setMiningStrategy(MiningStrategy strategy)
+	{
+		this.mining_strategy = strategy;
+	}
+	
+	public int getTopK()
+	{
+		return top_k;
+	}
+	
+	//top-K mode: support_val is only the initial threshold, it is raised while the k most frequent item sets are mined
+	public void setTopK(int k, int min_length)
+	{
+		this.top_k = k;
+		this.min_length = min_length;
+	}
+	
 	public boolean isWindowFull()
 	{
 		return (window_length > 0 && window_length == window_content.size());
@@ -57,27 +119,38 @@ public class BaselineItemsetMining {
 	
 	/*
 	 * Window will contain transactions from file starting at line no #[start_at] and ending at line no #[end_at]
+	 * The file is either a text file (read from line [start_at] on, see LineOffsetIndex) or its binary form (see BinaryTransactionFile).
 	 */
 	public void initializeWindow(File file, int start_at, int end_at)
 	{
+		window_content = new WindowStore(end_at-(start_at-1), new ItemDictionary());
+		live_items = 0;
 		try 
     	{
-    		FileInputStream fis = new FileInputStream(file);
-    		BufferedReader br = new BufferedReader(new InputStreamReader(fis));
-            String line = null;
-            int line_no = 0;
+    		if(BinaryTransactionFile.isBinaryFile(file))
+    		{
+    			BinaryTransactionFile transactions = BinaryTransactionFile.open(file, window_content.getItemDictionary());
+    			int last = Math.min(end_at, transactions.size());
+    			for(int n=Math.max(start_at, 1); n<=last; n++)
+    			{
+    				int len = transactions.read(n);
+    				window_content.add(transactions.getItems(), 0, len);	//add to the window at the end
+    			}
+    			transactions.close();
+    			setWindowLength(end_at-(start_at-1));	//update window length
+    			return;
+    		}
+    		
+    		TransactionTokenizer tokenizer = new TransactionTokenizer(LineOffsetIndex.streamAt(file, start_at), window_content.getItemDictionary());	//seek to line [start_at] (see LineOffsetIndex)
+            int line_no = Math.max(start_at, 1) - 1;
             
-            while ((line = br.readLine()) != null) 
+            while (line_no < end_at && tokenizer.next()) 
             {
             	line_no++;
-            	if(line_no < start_at) 
-            		continue;
-            	else if(line_no <= end_at)
-            		window_content.add(line);	//add to the queue at the end
-            	else
-            		break;
+            	tokenizer.sortCanonical();
+            	window_content.add(tokenizer.getItems(), 0, tokenizer.size());	//add to the window at the end
             }	
-            br.close();
+            tokenizer.close();
             
             setWindowLength(end_at-(start_at-1));	//update window length
     	}
@@ -94,23 +167,74 @@ public class BaselineItemsetMining {
     {
     	try 
     	{
-    		FileInputStream fis = new FileInputStream(file);
-    		BufferedReader br = new BufferedReader(new InputStreamReader(fis));
-            String line = null;
+    		if(BinaryTransactionFile.isBinaryFile(file))
+    		{
+    			BinaryTransactionFile transactions = BinaryTransactionFile.open(file, window_content.getItemDictionary());
+    			for(int n=1; n<=transactions.size(); n++)
+    				if(n < start_at || n > end_at)
+    					cepRT.sendEvent(parseTransaction(transactions, n));
+    			transactions.close();
+    			return;
+    		}
+    		
+    		TransactionTokenizer tokenizer = new TransactionTokenizer(new FileInputStream(file), window_content.getItemDictionary());
+            Transaction transaction = null;
             int line_no = 0;
             
-            while ((line = br.readLine()) != null) 
+            while (true) 
             {
             	line_no++;
             	if(line_no >= start_at && line_no <= end_at)
-            		continue;
+            	{
+            		if(!tokenizer.skipLine())	//lines of the window are not tokenized again
+            			break;
+            	}
+            	else if((transaction = parseTransaction(line_no, tokenizer)) != null)
+            		cepRT.sendEvent(transaction);
             	else
+            		break;
+            }
+            tokenizer.close();
+    	}
+    	catch(IOException ioe)
+    	{
+    		System.out.println("Error! Cannot stream transactions! "+ioe.toString());
+    	}
+    }
+    
+    //same as above, the transactions go to the native length batch window instead of Esper
+    public void generateTransactions(LengthBatchWindow batch_window, File file, int start_at, int end_at)
+    {
+    	try 
+    	{
+    		if(BinaryTransactionFile.isBinaryFile(file))
+    		{
+    			BinaryTransactionFile transactions = BinaryTransactionFile.open(file, window_content.getItemDictionary());
+    			for(int n=1; n<=transactions.size(); n++)
+    				if(n < start_at || n > end_at)
+    					batch_window.add(parseTransaction(transactions, n));
+    			transactions.close();
+    			return;
+    		}
+    		
+    		TransactionTokenizer tokenizer = new TransactionTokenizer(new FileInputStream(file), window_content.getItemDictionary());
+            Transaction transaction = null;
+            int line_no = 0;
+            
+            while (true) 
+            {
+            	line_no++;
+            	if(line_no >= start_at && line_no <= end_at)
             	{
-            		Transaction tr = new Transaction(line_no, line);
-            		cepRT.sendEvent(tr);
+            		if(!tokenizer.skipLine())	//lines of the window are not tokenized again
+            			break;
             	}
+            	else if((transaction = parseTransaction(line_no, tokenizer)) != null)
+            		batch_window.add(transaction);
+            	else
+            		break;
             }
-            br.close();
+            tokenizer.close();
     	}
     	catch(IOException ioe)
     	{
@@ -118,6 +242,32 @@ public class BaselineItemsetMining {
     	}
     }
     
+    /*
+     * Parsing stage (reading thread): the transaction event of the next line, with its items encoded in the canonical order.
+     * The line is tokenized straight from the bytes of the file (see TransactionTokenizer), null at the end of the file.
+     */
+    protected Transaction parseTransaction(int line_no, TransactionTokenizer tokenizer) throws IOException
+    {
+    	long start = System.nanoTime();
+    	Transaction tr = null;
+    	if(tokenizer.next())
+    	{
+    		tokenizer.sortCanonical();
+    		tr = new Transaction(line_no, tokenizer.copyItems());
+    	}
+    	parse_time += System.nanoTime() - start;
+    	return tr;
+    }
+    
+    //same as above, for a transaction of a binary transaction file (decoded, nothing to parse)
+    protected Transaction parseTransaction(BinaryTransactionFile transactions, int n)
+    {
+    	long start = System.nanoTime();
+    	Transaction tr = new Transaction(n, transactions.readTransaction(n));
+    	parse_time += System.nanoTime() - start;
+    	return tr;
+    }
+    
     /*
      * All transactions are within an input file resident on the disk.
      * Following method first initializes the window with the transactions between [start_at, end_at]
@@ -128,7 +278,16 @@ public class BaselineItemsetMining {
     public void streamInputData(EPRuntime cepRT, File file, int start_at, int end_at)
     {
     	initializeWindow(file, start_at, end_at);
-    	generateTransactions(cepRT, file, start_at, end_at);
+    	initializeMining(file, start_at, end_at);
+    	startPipeline();
+    	try
+    	{
+    		generateTransactions(cepRT, file, start_at, end_at);
+    	}
+    	finally
+    	{
+    		stopPipeline();		//rethrows the failure of a stage
+    	}
     }
     
     /*
@@ -138,38 +297,263 @@ public class BaselineItemsetMining {
      */
     public void streamInputData(EPRuntime cepRT, File file, int window_size)
     {
-    	initializeWindow(file, 1, window_size);
-    	generateTransactions(cepRT, file, 1, window_size);
+    	streamInputData(cepRT, file, 1, window_size);
+    }
+    
+    //same as above, the transactions are streamed through the native length batch window (no Esper)
+    public void streamInputData(LengthBatchWindow batch_window, File file, int start_at, int end_at)
+    {
+    	initializeWindow(file, start_at, end_at);
+    	initializeMining(file, start_at, end_at);
+    	startPipeline();
+    	try
+    	{
+    		generateTransactions(batch_window, file, start_at, end_at);
+    	}
+    	finally
+    	{
+    		stopPipeline();		//rethrows the failure of a stage
+    	}
+    }
+    
+    //overloaded method, the window holds the transactions at the beginning of the file
+    public void streamInputData(LengthBatchWindow batch_window, File file, int window_size)
+    {
+    	streamInputData(batch_window, file, 1, window_size);
+    }
+    
+    //once the window is initialized: the structures mined at every slide are built (nothing for the baseline, which rebuilds its FP-Tree every time)
+    protected void initializeMining(File file, int start_at, int end_at)
+    {
+    }
+    
+    //the slides are cut by Esper (EPL query with win:length_batch) if true, by the native LengthBatchWindow otherwise
+    protected boolean useEsper()
+    {
+    	return false;
+    }
+    
+    //overlapping the stages needs more than one core, otherwise the queues are only an extra hand-over
+    protected boolean usePipeline()
+    {
+    	return Runtime.getRuntime().availableProcessors() > 1;
     }
     
     /*
-     * Window slides over as new transactions arrive.
+     * Starts the stages of the slide processing pipeline (if usePipeline()), each one on its own thread:
+     * 	- window update: applies the parsed slides (see updateWindow()) and hands a copy of the window over to the mining.
+     * 	- mining: mines the copy of the window into the item sets of the slide.
+     * 	- output: reports the item sets of every slide to the item set sink, followed by the end of the slide.
+     * Parsing stays on the listener thread (see slideWindow()). Every queue holds one slide at most (back pressure).
      */
-    public void slideWindow(EventBean[] newData)
-    {   	
-    	String newval = null;
+    protected void startPipeline()
+    {
+    	if(!usePipeline())
+    		return;
+    	startOutputStage();
     	
-    	for(int i=0; i<newData.length; i++)		// scan the new batch of arrived transactions
+    	final PipelineStage<WindowStore> mining = new PipelineStage<WindowStore>("mining", 1) {
+    		@Override
+    		protected void process(WindowStore window)
+    		{
+    			CollectingItemsetSink slide_itemsets = new CollectingItemsetSink();
+    			mineWindow(window, support_val, slide_itemsets);
+    			emit(output_stage, slide_itemsets);
+    		}
+    	};
+    	mining_stage = mining;
+    	
+    	update_stage = new PipelineStage<int[][]>("update", 1) {
+    		@Override
+    		protected void process(int[][] arrived)
+    		{
+    			updateWindow(arrived);
+    			emit(mining, window_content.copy());
+    		}
+    	};
+    }
+    
+    //the output stage of the pipeline, the same for all the mining engines
+    protected void startOutputStage()
+    {
+    	pipeline_stages = new ArrayList<PipelineStage<?>>();
+    	parse_time = 0;
+    	parse_wait_time = 0;
+    	output_stage = new PipelineStage<CollectingItemsetSink>("output", 1) {
+    		@Override
+    		protected void process(CollectingItemsetSink slide_itemsets)
+    		{
+    			if(slide_itemsets.getItemDictionary() != null)	//the window was mined
+    			{
+    				itemset_sink.startMining(slide_itemsets.getItemDictionary());
+    				slide_itemsets.replayTo(itemset_sink);
+    				itemset_sink.endMining();
+    			}
+    			System.out.println("*** \t *** \t ***");	//print end of the slide
+    			if(slide_listener != null)
+    				slide_listener.slideOutput();		//the slide is processed: its time is logged now
+    		}
+    	};
+    }
+    
+    //true while the slides go through the pipeline, slideWindow() then only hands them over
+    public boolean isPipelined()
+    {
+    	return update_stage != null;
+    }
+    
+    /*
+     * Waits until the stages have processed all the slides, once the stream is over.
+     * All the stages are stopped, then the first failure is thrown (caused by the exception of the failed stage, whose later slides were dropped).
+     */
+    protected void stopPipeline()
+    {
+    	if(update_stage == null)
+    		return;
+    	PipelineStage<?> []stages = {update_stage, mining_stage, output_stage};
+    	RuntimeException failure = null;
+    	for(int i=0; i<stages.length; i++)	//in the order of the stages, every stage has received everything once the one upstream is closed
     	{
-    		String recent_transaction = newData[i].getUnderlying().toString();	//format is {<item list>=<name of items>}
-    		recent_transaction = recent_transaction.replace("{", "");			//remove braces
-    		recent_transaction = recent_transaction.replace("}", "");
-    		String components[] = recent_transaction.split("=");				//we will extract only the names of the items
-    		
-    		if(!window_content.isEmpty())
-    			window_content.remove();			//delete the head (first element) of the queue
-    		
-    		if(components.length == 2)
-    			newval = components[1];				//proper list of items
+    		pipeline_stages.add(stages[i]);
+    		try
+    		{
+    			stages[i].close();
+    		}
+    		catch(RuntimeException re)
+    		{
+    			if(failure == null)
+    				failure = re;
+    		}
+    	}
+    	update_stage = null;
+    	mining_stage = null;
+    	output_stage = null;
+    	if(failure != null)
+    		throw failure;
+    }
+    
+    //waits until the stages have processed all the slides handed over so far, the pipeline goes on running
+    protected void drainPipeline()
+    {
+    	if(update_stage == null)
+    		return;
+    	update_stage.awaitIdle();	//in the order of the stages, as in stopPipeline()
+    	mining_stage.awaitIdle();
+    	output_stage.awaitIdle();
+    }
+    
+    /*
+     * Releases the ids of the items that are not in the window any more (see ItemDictionary.release()), between two slides,
+     * once the ids in use are at least twice the distinct items of the window at the last reclamation (and at least RECLAIM_MIN_ITEMS).
+     * The pipeline is drained first: no stage, window copy, tree or cached item set holds the id of an item outside the window then
+     * (a CanTree drops the nodes, the header element and the cached item sets of an item without support), and the sink is done with the slides.
+     * So the ids, the dictionary and the arrays indexed by id stay below twice the peak of distinct items of the window (or RECLAIM_MIN_ITEMS),
+     * at the cost of one scan of the window every time the ids in use double.
+     */
+    protected void reclaimItemIds()
+    {
+    	ItemDictionary dictionary = window_content.getItemDictionary();
+    	if(dictionary.getItemCount() < Math.max(RECLAIM_MIN_ITEMS, 2 * live_items))
+    		return;
+    	drainPipeline();
+    	if(itemset_sink instanceof AsyncItemsetSink)	//its writer may not have decoded the last slides yet
+    		((AsyncItemsetSink) itemset_sink).drain();
+    	
+    	boolean []live = new boolean[dictionary.size()];
+    	int []items = window_content.getItems();
+    	for(int i=0; i<window_content.size(); i++)
+    		for(int j=window_content.getStart(i); j<window_content.getEnd(i); j++)
+    			live[items[j]] = true;
+    	live_items = 0;
+    	for(int id=0; id<live.length; id++)
+    	{
+    		if(live[id])
+    			live_items++;
     		else
-    			newval = "";						//empty string
-    		
-    		window_content.add(newval);				//add newly arrived list of items
-    	}  	
+    			dictionary.release(id);		//nothing if released already
+    	}
+    }
+    
+    //busy and wait time of every stage of the pipeline, after the stream is over
+    public void printPipelineStats()
+    {
+    	if(pipeline_stages == null)
+    		return;
+    	System.out.print("\nStage parse: \tbusy " + parse_time / 1000000 + " ms \twait " + parse_wait_time / 1000000 + " ms");
+    	for(int i=0; i<pipeline_stages.size(); i++)
+    	{
+    		PipelineStage<?> stage = pipeline_stages.get(i);
+    		System.out.print("\nStage " + stage.getName() + ": \tbusy " + stage.getBusyTime() + " ms \twait " + stage.getWaitTime() + " ms");
+    	}
+    	System.out.print("\n");
+    }
+    
+    /*
+     * Window slides over as new transactions arrive (Esper source).
+     */
+    public void slideWindow(EventBean[] newData)
+    {   	
+    	long start = System.nanoTime();
+    	int [][]arrived = parseSlide(newData);
+    	parse_time += System.nanoTime() - start;
+    	slideWindow(arrived);
+    }
+    
+    /*
+     * Window slides over the arrived transactions (e.g. a batch of the LengthBatchWindow).
+     */
+    public void slideWindow(Transaction[] transactions)
+    {
+    	int [][]arrived = new int[transactions.length][];
+    	for(int i=0; i<transactions.length; i++)
+    		arrived[i] = transactions[i].getItems();
+    	slideWindow(arrived);
+    }
+    
+    /*
+     * Window slides over the arrived transactions, given by their encoded items (see Transaction.encode()).
+     * In pipelined mode, the slide is only handed over to the window update stage.
+     */
+    public void slideWindow(int[][] arrived)
+    {
+    	if(update_stage != null)
+    	{
+    		long start = System.nanoTime();
+    		update_stage.put(arrived);		//waits while the window update stage is busy with the previous slide
+    		parse_wait_time += System.nanoTime() - start;
+    		reclaimItemIds();
+    		return;
+    	}
     	
-    	trivialBaselineItemsetMining(support_val);	//trivial baseline item set mining done repeatedly at each window  	
+    	updateWindow(arrived);
+    	mineCurrentWindow();
     	
     	System.out.println("*** \t *** \t ***");	//print end of the slide
+    	reclaimItemIds();
+    }
+    
+    //parsing stage: the encoded items of the arrived transactions, selected as a typed property of the events
+    protected int[][] parseSlide(EventBean[] newData)
+    {
+    	int [][]arrived = new int[newData.length][];
+    	for(int i=0; i<newData.length; i++)		// scan the new batch of arrived transactions
+    	{
+    		Object items = newData[i].get("items");		//int[] of the Transaction event, no text to parse
+    		arrived[i] = (items != null) ? (int[]) items : new int[0];
+    	}
+    	return arrived;
+    }
+    
+    //mines the window on the listener thread (no pipeline)
+    protected void mineCurrentWindow()
+    {
+    	trivialBaselineItemsetMining(support_val);	//trivial baseline item set mining done repeatedly at each window
+    }
+    
+    //window update stage: the arrived transactions enter the window, as many of the oldest ones leave it
+    protected void updateWindow(int[][] arrived)
+    {
+    	window_content.slide(arrived);		//the oldest slide leaves the window at once
     }
  
     /*
@@ -180,63 +564,70 @@ public class BaselineItemsetMining {
      */
     public void trivialBaselineItemsetMining(int supp)
     {
-    	if(!isWindowFull())		//error-handling, if the window is not yet full, then skip
+    	mineWindow(window_content, supp, itemset_sink);
+    }
+    
+    //constructs the FP-Tree of the window (the live one or a copy of it) and mines it into the sink
+    protected void mineWindow(WindowStore window, int supp, ItemsetSink sink)
+    {
+    	if(window_length == 0 || window.size() != window_length)	//error-handling, if the window is not yet full, then skip
     		return;
     	
-    	ArrayList<String> transaction_base = new ArrayList<String>(window_content); 
-    	for(int i=0; i<window_length; i++)
-    	{
-    		String tmp = "1:" + transaction_base.get(i);	//we will be using FP-Tree construction from conditional pattern base, hence support added as prefix
-    		transaction_base.set(i,tmp);
-    	}
-    	
-    	FPTree fpt_win = new FPTree(transaction_base, supp);
-    	fpt_win.minePatternsByFPGrowth("");	
+    	FPTree fpt_win = new FPTree(window, supp);		//built straight from the buffer of the window
+    	fpt_win.setItemsetSink(sink);
+    	fpt_win.setMiningStrategy(mining_strategy);
+    	if(top_k > 0)
+    		fpt_win.minePatternsTopK("", top_k, min_length);
+    	else
+    		fpt_win.minePatterns("");	
     }
     
     /*
      * Run the following EPL query:
-     * SELECT item_list
+     * SELECT items
      * FROM Transaction.win:length_batch([slide size])
      */
     public String getEPLQuery(int slide_size)
     {
     	setSlideLength(slide_size);
     	
-    	String query = "SELECT item_list FROM " + Transaction.class.getName() + ".win:length_batch(" + slide_length + ")";
+    	String query = "SELECT items FROM " + Transaction.class.getName() + ".win:length_batch(" + slide_length + ")";
     	return query;
     }
     
     //overloaded method, without any argument
     public String getEPLQuery()
     { 	    	
-    	String query = "SELECT item_list FROM " + Transaction.class.getName() + ".win:length_batch(" + slide_length + ")";
+    	String query = "SELECT items FROM " + Transaction.class.getName() + ".win:length_batch(" + slide_length + ")";
     	return query;
     }
     
     public void initConfig(String filename, int window_size, int slide_size, int supp, int tag)
     {
-    	//The Configuration is meant only as an initialization-time object.
-    	Configuration cepConfig = new Configuration();
-        cepConfig.addEventType(Transaction.class.getName(), Transaction.class.getName());
-        EPServiceProvider cep = EPServiceProviderManager.getProvider("CEPEngine"+tag, cepConfig);	//make sure CEPEngine name is unique
-        
-        EPRuntime cepRT = cep.getEPRuntime(); 	//runtime environment
-        EPAdministrator cepAdm = cep.getEPAdministrator();	//system configuration
-        
-        File inputfile = new File(filename);
-        setSupportVal(supp);		//support threshold is set for mining frequent item sets
-                
-        String output_filename = filename + "_" + window_size + "_" + slide_size + "_" + supp + ".result";
-        EPStatement cepStatement = cepAdm.createEPL(getEPLQuery(slide_size));	//this will internally call setSlideLength(slide_size)
-        cepStatement.addListener(new CEPListener(this,output_filename));
-        
-        streamInputData(cepRT,inputfile,window_size);		//this will internally call setWindowLength(window_size)
+    	initConfig(filename, 1, window_size, slide_size, supp, tag, filename + "_" + window_size + "_" + slide_size + "_" + supp + ".result");
     }
     
     //overloaded method
     public void initConfig(String filename, int start_at, int end_at, int slide_size, int supp, int tag)
     {
+    	initConfig(filename, start_at, end_at, slide_size, supp, tag, filename + "_" + start_at+"-"+end_at + "_" + slide_size + "_" + supp + ".result");
+    }
+    
+    //the window holds the lines [start_at, end_at] of the input file, the processing time of every slide is logged to output_filename
+    private void initConfig(String filename, int start_at, int end_at, int slide_size, int supp, int tag, String output_filename)
+    {
+        File inputfile = new File(filename);
+        setSupportVal(supp);		//support threshold is set for mining frequent item sets
+        
+        if(!useEsper())
+        {
+        	setSlideLength(slide_size);
+        	slide_listener = new SlideListener(this,output_filename);
+        	LengthBatchWindow batch_window = new LengthBatchWindow(slide_size, slide_listener);
+        	streamInputData(batch_window,inputfile,start_at,end_at);		//this will internally call setWindowLength(window_size)
+        	return;
+        }
+        
     	//The Configuration is meant only as an initialization-time object.
     	Configuration cepConfig = new Configuration();
         cepConfig.addEventType(Transaction.class.getName(), Transaction.class.getName());
@@ -245,26 +636,56 @@ public class BaselineItemsetMining {
         EPRuntime cepRT = cep.getEPRuntime(); 	//runtime environment
         EPAdministrator cepAdm = cep.getEPAdministrator();	//system configuration
         
-        File inputfile = new File(filename);
-        setSupportVal(supp);		//support threshold is set for mining frequent item sets
-        
-        String output_filename = filename + "_" + start_at+"-"+end_at + "_" + slide_size + "_" + supp + ".result";
         EPStatement cepStatement = cepAdm.createEPL(getEPLQuery(slide_size));	//this will internally call setSlideLength(slide_size)
-        cepStatement.addListener(new CEPListener(this,output_filename));
+        CEPListener cep_listener = new CEPListener(this,output_filename);
+        slide_listener = cep_listener;
+        cepStatement.addListener(cep_listener);
         
         streamInputData(cepRT,inputfile,start_at,end_at);		//this will internally call setWindowLength(window_size)
     }
     
     public BaselineItemsetMining(String filename, int window_size, int slide_size, int supp, int tag)
     {
-    	window_content = new LinkedList<String>();   	
+    	this(filename,window_size,slide_size,supp,tag,new TextItemsetSink(System.out));
+    }
+    
+    //frequent item sets of every slide are reported to the given sink (instead of being printed to System.out)
+    public BaselineItemsetMining(String filename, int window_size, int slide_size, int supp, int tag, ItemsetSink sink)
+    {
+    	this(filename,window_size,slide_size,supp,tag,sink,MiningStrategy.FP_GROWTH);
+    }
+    
+    //same as above, mining every slide with the given strategy (e.g. FP_CLOSE/FP_MAX for the closed/maximal item sets only)
+    public BaselineItemsetMining(String filename, int window_size, int slide_size, int supp, int tag, ItemsetSink sink, MiningStrategy strategy)
+    {
+    	itemset_sink = sink;
+    	mining_strategy = strategy;
+    	initConfig(filename,window_size,slide_size,supp,tag);
+    }
+    
+    /*
+     * Top-K mode: the top_k most frequent item sets with at least min_length items are mined at every slide.
+     * supp is the initial support threshold only (e.g. 1), the threshold is raised at every slide as the top-K item sets are found.
+     */
+    public BaselineItemsetMining(String filename, int window_size, int slide_size, int supp, int tag, ItemsetSink sink, int top_k, int min_length)
+    {
+    	itemset_sink = sink;
+    	mining_strategy = MiningStrategy.FP_GROWTH;
+    	setTopK(top_k, min_length);
     	initConfig(filename,window_size,slide_size,supp,tag);
     }
     
     //overloaded constructor
     public BaselineItemsetMining(String filename, int start_at, int end_at, int slide_size, int supp, int tag)
     {
-    	window_content = new LinkedList<String>();
+    	this(filename,start_at,end_at,slide_size,supp,tag,new TextItemsetSink(System.out));
+    }
+    
+    //overloaded constructor, with the sink for the frequent item sets
+    public BaselineItemsetMining(String filename, int start_at, int end_at, int slide_size, int supp, int tag, ItemsetSink sink)
+    {
+    	itemset_sink = sink;
+    	mining_strategy = MiningStrategy.FP_GROWTH;
     	initConfig(filename,start_at,end_at,slide_size,supp,tag);
     }
     
@@ -279,7 +700,8 @@ public class BaselineItemsetMining {
     	 * 3rd argument: Slide Length
     	 * 4th argument: Support
     	 */
-    		new BaselineItemsetMining("experiments/T10I4D100K",20000,5000,1000,i);
+    		BaselineItemsetMining engine = new BaselineItemsetMining("experiments/T10I4D100K",20000,5000,1000,i);
+    		engine.printPipelineStats();		//busy/wait time of the stages, if the slides were pipelined
     	}
     }
 }
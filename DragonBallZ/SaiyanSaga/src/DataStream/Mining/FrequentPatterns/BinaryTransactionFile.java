@@ -0,0 +1,357 @@
+package DataStream.Mining.FrequentPatterns;
+
+/*
+ * Compact binary form of a transaction file (one transaction per line, items separated by white space, e.g. the .dat files),
+ * read through a memory mapping.
+ *
+ * Description:
+ * - 	convert() writes the binary file from the text file:
+ * 		header			magic number, version, number of transactions, positions of the dictionary and of the index
+ * 		transactions	per transaction: the number of items, then the item ids in increasing order
+ * 						(the first id, then the gaps between the ids), all as varints (7 bits per byte)
+ * 		dictionary		the item tokens, in the order of their ids
+ * 		index			position of every transaction, and the end of the last one
+ *
+ * -	Ids are assigned in lexicographic order of the tokens. So the increasing ids of a transaction are its items
+ * 		in the canonical order of the CanTree, and most of the gaps fit in one byte.
+ *
+ * -	open() maps the file. Transactions are decoded straight from the mapping (no parsing, no Strings) into a reusable buffer,
+ * 		as ids of the dictionary the file is read with (see read()). Transaction #n is the nth line of the text file (from 1).
+ * 		A given dictionary (e.g. of a window) encodes the tokens as they are read, and again once it released ids (see ItemDictionary.release()).
+ *
+ * -	One mapping per file, so at most 2 GB. A reader is not thread-safe (one buffer, one position).
+ *
+ * -	java BinaryTransactionFile [input file] [output file]
+ * 		defaults: data/T10I4D100K.dat [input file].bin
+ */
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class BinaryTransactionFile {
+	static final int MAGIC = 0x89504454;	//not the start of a text file
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 28;		//magic, version, transactions, dictionary position, index position
+	
+	private File file;
+	private MappedByteBuffer buffer;
+	private int transaction_count;
+	private long index_pos;
+	private String[] tokens;		//file id -> item token
+	private ItemDictionary dictionary;
+	private int[] ids;				//file id -> id in the dictionary, -1 if not encoded since the last release
+	private int releases;			//release count of the dictionary the ids belong to
+	private int[] items;			//items of the last transaction read
+	private int position;			//read position in the mapping
+	
+	private BinaryTransactionFile(File file, MappedByteBuffer buffer, ItemDictionary dictionary, boolean encode_all)
+	{
+		this.file = file;
+		this.buffer = buffer;
+		this.items = new int[16];
+		
+		transaction_count = buffer.getInt(8);
+		long dictionary_pos = buffer.getLong(12);
+		index_pos = buffer.getLong(20);
+		
+		position = (int) dictionary_pos;
+		tokens = new String[buffer.getInt(position)];
+		position += 4;
+		for(int i=0; i<tokens.length; i++)
+		{
+			int len = readVarint();
+			byte []utf8 = new byte[len];
+			for(int j=0; j<len; j++)
+				utf8[j] = buffer.get(position++);
+			tokens[i] = decodeUTF8(utf8);
+		}
+		
+		this.dictionary = dictionary;
+		ids = new int[tokens.length];
+		Arrays.fill(ids, -1);
+		if(encode_all)
+			for(int i=0; i<tokens.length; i++)
+				ids[i] = dictionary.encode(tokens[i]);	//a new dictionary gets the ids of the file
+		releases = dictionary.getReleaseCount();
+	}
+	
+	//maps the binary file, the items are read as ids of a new dictionary (the ids of the file)
+	public static BinaryTransactionFile open(File file) throws IOException
+	{
+		return open(file, new ItemDictionary(), true);
+	}
+	
+	//maps the binary file, the items are read as ids of the given dictionary (e.g. of a window), their tokens are encoded as they are read
+	public static BinaryTransactionFile open(File file, ItemDictionary dictionary) throws IOException
+	{
+		return open(file, dictionary, false);
+	}
+	
+	private static BinaryTransactionFile open(File file, ItemDictionary dictionary, boolean encode_all) throws IOException
+	{
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try
+		{
+			FileChannel channel = raf.getChannel();
+			if(channel.size() > Integer.MAX_VALUE)
+				throw new IOException("binary transaction file larger than 2 GB: " + file);
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());	//the mapping stays valid once the file is closed
+			if(buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+				throw new IOException("not a binary transaction file: " + file);
+			return new BinaryTransactionFile(file, buffer, dictionary, encode_all);
+		}
+		finally
+		{
+			raf.close();
+		}
+	}
+	
+	//true if the file starts with the magic number of the binary format (false for a text file)
+	public static boolean isBinaryFile(File file)
+	{
+		if(!file.isFile() || file.length() < HEADER_SIZE)
+			return false;
+		try
+		{
+			DataInputStream in = new DataInputStream(new FileInputStream(file));
+			try
+			{
+				return in.readInt() == MAGIC;
+			}
+			finally
+			{
+				in.close();
+			}
+		}
+		catch(IOException ioe)
+		{
+			return false;
+		}
+	}
+	
+	public File getFile()
+	{
+		return file;
+	}
+	
+	//number of transactions (lines of the text file)
+	public int size()
+	{
+		return transaction_count;
+	}
+	
+	public ItemDictionary getItemDictionary()
+	{
+		return dictionary;
+	}
+	
+	/*
+	 * Decodes transaction #n (from 1) into the buffer returned by getItems(), returns its number of items.
+	 * The items are in the canonical (lexicographic) order, as ids of the dictionary of this reader.
+	 */
+	public int read(int n)
+	{
+		position = (int) buffer.getLong((int) index_pos + 8 * (n - 1));
+		int len = readVarint();
+		if(items.length < len)
+			items = new int[Math.max(len, 2 * items.length)];
+		if(releases != dictionary.getReleaseCount())	//the ids may be stale, encoded again below
+		{
+			Arrays.fill(ids, -1);
+			releases = dictionary.getReleaseCount();
+		}
+		
+		int id = 0;
+		for(int i=0; i<len; i++)
+		{
+			id += readVarint();		//gap to the previous id of the file
+			if(ids[id] < 0)
+				ids[id] = dictionary.encode(tokens[id]);
+			items[i] = ids[id];
+		}
+		return len;
+	}
+	
+	//items of the last transaction read, valid until the next read()
+	public int[] getItems()
+	{
+		return items;
+	}
+	
+	//copy of the items of transaction #n
+	public int[] readTransaction(int n)
+	{
+		int len = read(n);		//may replace the buffer
+		return Arrays.copyOf(items, len);
+	}
+	
+	//the mapping is released by the garbage collector, once no reader refers to it
+	public void close()
+	{
+		buffer = null;
+	}
+	
+	private int readVarint()
+	{
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do
+		{
+			b = buffer.get(position++);
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		}
+		while(b < 0);
+		return value;
+	}
+	
+	private static String decodeUTF8(byte[] utf8)
+	{
+		try
+		{
+			return new String(utf8, "UTF-8");
+		}
+		catch(UnsupportedEncodingException uee)
+		{
+			throw new IllegalStateException(uee);	//UTF-8 is always supported
+		}
+	}
+	
+	/*
+	 * Converts a text transaction file into the binary format, returns the number of transactions.
+	 * Two scans of the text file: the tokens first (their ids are their lexicographic ranks), then the transactions.
+	 */
+	public static int convert(File text_file, File binary_file) throws IOException
+	{
+		ItemDictionary dictionary = new ItemDictionary();		//ids in the order the tokens are first seen
+		TransactionTokenizer tokenizer = new TransactionTokenizer(new FileInputStream(text_file), dictionary);
+		while(tokenizer.next());		//first scan: the distinct tokens (see TransactionTokenizer)
+		tokenizer.close();
+		
+		ArrayList<String> tokens = new ArrayList<String>(dictionary.size());
+		for(int i=0; i<dictionary.size(); i++)
+			tokens.add(dictionary.decode(i));
+		Collections.sort(tokens);
+		int []ranks = new int[tokens.size()];		//id of the dictionary -> id of the file
+		for(int i=0; i<tokens.size(); i++)
+			ranks[dictionary.getId(tokens.get(i))] = i;
+		
+		CountingOutputStream out = new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(binary_file), 1 << 16));
+		DataOutputStream data = new DataOutputStream(out);
+		data.write(new byte[HEADER_SIZE]);		//written once the positions are known
+		
+		long []index = new long[1024];
+		int count = 0;
+		int []ids = new int[16];
+		tokenizer = new TransactionTokenizer(new FileInputStream(text_file), dictionary);
+		while(tokenizer.next())		//second scan: the transactions
+		{
+			if(count + 1 == index.length)
+				index = Arrays.copyOf(index, 2 * index.length);
+			index[count++] = out.getCount();
+			
+			int len = tokenizer.size();
+			if(ids.length < len)
+				ids = new int[Math.max(len, 2 * ids.length)];
+			int []items = tokenizer.getItems();
+			for(int i=0; i<len; i++)
+				ids[i] = ranks[items[i]];
+			Arrays.sort(ids, 0, len);
+			
+			writeVarint(out, len);
+			int previous = 0;
+			for(int i=0; i<len; i++)
+			{
+				writeVarint(out, ids[i] - previous);	//duplicate items are kept (gap 0)
+				previous = ids[i];
+			}
+		}
+		tokenizer.close();
+		index[count] = out.getCount();		//end of the last transaction
+		
+		long dictionary_pos = out.getCount();
+		data.writeInt(tokens.size());
+		for(int i=0; i<tokens.size(); i++)
+		{
+			byte []utf8 = tokens.get(i).getBytes("UTF-8");
+			writeVarint(out, utf8.length);
+			data.write(utf8);
+		}
+		long index_pos = out.getCount();
+		for(int i=0; i<=count; i++)
+			data.writeLong(index[i]);
+		data.close();
+		
+		RandomAccessFile raf = new RandomAccessFile(binary_file, "rw");		//header
+		raf.writeInt(MAGIC);
+		raf.writeInt(VERSION);
+		raf.writeInt(count);
+		raf.writeLong(dictionary_pos);
+		raf.writeLong(index_pos);
+		raf.close();
+		return count;
+	}
+	
+	private static void writeVarint(OutputStream out, int value) throws IOException
+	{
+		while((value & ~0x7F) != 0)
+		{
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+	
+	//output stream keeping track of the position in the file being written
+	private static class CountingOutputStream extends FilterOutputStream {
+		private long count;
+		
+		CountingOutputStream(OutputStream out)
+		{
+			super(out);
+			count = 0;
+		}
+		
+		long getCount()
+		{
+			return count;
+		}
+		
+		@Override
+		public void write(int b) throws IOException
+		{
+			out.write(b);
+			count++;
+		}
+		
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException
+		{
+			out.write(b, off, len);
+			count += len;
+		}
+	}
+	
+	public static void main(String args[])
+	{
+		File text_file = new File(args.length > 0 ? args[0] : "data/T10I4D100K.dat");
+		File binary_file = new File(args.length > 1 ? args[1] : text_file.getPath() + ".bin");
+		try
+		{
+			long startTime = System.nanoTime();
+			int count = convert(text_file, binary_file);
+			long endTime = System.nanoTime();
+			System.out.printf("%d transactions converted: %s (%d bytes) -> %s (%d bytes) in %.1f ms%n",
+					count, text_file, text_file.length(), binary_file, binary_file.length(), (endTime - startTime) / 1e6);
+		}
+		catch(IOException ioe)
+		{
+			System.out.println("Error! Cannot convert the transaction file ! "+ioe.toString());
+		}
+	}
+}
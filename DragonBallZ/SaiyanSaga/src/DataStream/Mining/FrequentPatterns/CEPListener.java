@@ -6,53 +6,24 @@ package DataStream.Mining.FrequentPatterns;
  */
 
 import com.espertech.esper.client.*;
-import java.io.*;
 
 /* 
- * Listener for the incoming data stream
+ * Listener for the incoming data stream (Esper source), timing and logging as the SlideListener
  */
-public class CEPListener implements UpdateListener {
-
-	BaselineItemsetMining db_engine;
-	long slide_no;
-	long running_time;
-	String output_filename;
+public class CEPListener extends SlideListener implements UpdateListener {
 	
 	public CEPListener(BaselineItemsetMining db_engine, String filename)
 	{
-		this.db_engine = db_engine;
-		slide_no = 0;
-		running_time = 0;
-		output_filename = filename;
-	}
-	
-	public void logData(String text)
-	{
-    	try 
-    	{
-    		BufferedWriter out = new BufferedWriter(new FileWriter(output_filename,true));
-    		out.append(text);
-    		out.close();
-    	}
-    	catch ( IOException e )
-    	{
-    		e.printStackTrace();
-    	}
+		super(db_engine, filename);
 	}
 	
     public void update(EventBean[] newData, EventBean[] oldData) 
     { 
-    	slide_no++;				//new slide -> so increment slide no.
-    	
     	/*
     	 * Calculate time to process new slide.
     	 */
-    	long startTime = System.currentTimeMillis();
+    	long startTime = slideArrived();
     	db_engine.slideWindow(newData);
-    	long endTime = System.currentTimeMillis();
-    	
-    	running_time += (endTime - startTime);
-    	
-    	logData(slide_no+" "+running_time+"\n");	//log computed time
+    	slideHandedOver(startTime);
     }   
-}
\ No newline at end of file
+}
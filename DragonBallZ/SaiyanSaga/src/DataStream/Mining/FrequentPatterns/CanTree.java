@@ -22,88 +22,196 @@ package DataStream.Mining.FrequentPatterns;
  * 		1) In the prefix to the root, infrequent single ton items are discarded.
  * 		2) Avoid sorting the prefix again (because they are already sorted).
  * 
+ * -	With the FP-growth* mining strategy, the conditional pattern bases of the CanTree 
+ * 		are mined with FP-trees carrying FP-arrays (see FPTree.minePatternsByFPGrowthStar()).
+ * 		Likewise with FPClose/FPMax, which report the closed/maximal frequent item sets only.
+ * 
+ * -	Removals (sliding window) reclaim what they empty: nodes whose count drops to 0 are detached from their parent,
+ * 		unlinked from their node-link chain and freed for reuse, items whose support drops to 0 leave the header table.
+ * 		Once the freed handles exceed a ratio of the storage (see setCompactionThreshold()), the storage is compacted.
+ * 
+ * -	Incremental mining (see setIncrementalMining()): the item sets of every frequent header element are cached, 
+ * 		and the items of the inserted/removed transactions are marked dirty. The next mining re-mines the dirty 
+ * 		header elements only, the item sets of the others are replayed from the cache 
+ * 		(the item sets ending with an item only depend on the transactions containing it).
+ * 
+ * -	snapshot() copies the CanTree at a slide boundary, so the snapshot can be mined by another thread
+ * 		while the next slide is inserted/removed (see SnapshotMiner).
+ * 
  */
 
 import java.io.*;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Enumeration;
-import java.util.Hashtable;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 public class CanTree {
-	private ArrayList<FPTreeHeaderElement> header_table;
-	private FPTreeNode cantree_root;
+	public static final double DEFAULT_COMPACTION_THRESHOLD = 0.5;	//ratio of freed handles triggering a compaction of the storage
+	static final int COMPACTION_MIN_FREE = 1024;						//no compaction for fewer freed handles
+	private static final int SORT_KEY_LIMIT = 1 << 21;				//bound of the ranks and indexes packed in the sort keys of a batch
+	static final int BATCH_DEDUPE_RATIO = 4;						//batched merge once at least 1/4 of the transactions of a slide cancel out or repeat
+	
+	private FPTreeHeaderTable header_table;
+	private TreeStorage storage;			//nodes of the CanTree, the root is storage.getRoot()
 	private int support_threshold;
-	private Hashtable<String,Integer> item_support;
+	private ItemDictionary dictionary;		//item tokens <-> item ids, shared with all the conditional trees
+	private int[] item_support;				//support of every item id
 	private boolean to_be_sorted;
+	private MiningStrategy mining_strategy;
+	private ItemsetSink sink;				//frequent item sets are reported here (null until first used: text lines on System.out)
+	private double compaction_threshold;	//0 to never compact
+	private boolean incremental;			//true to cache the item sets of every header element between minings
+	private boolean[] dirty_items;			//items of the transactions inserted/removed since the last mining
+	private CollectingItemsetSink[] item_results;	//cached item sets of every item id (ending with it), null if not cached
+	private int cached_support;				//support threshold and strategy of the cached item sets
+	private MiningStrategy cached_strategy;
+	private int[] emptied_nodes;			//nodes emptied by a batch slide, freed after the merge
+	private int emptied_count;
 	
-	//performance measurement counters
-	static int cantree_construction_calls = 0;		//CanTree construction from file
-	static int cond_cantree_construction_calls = 0;	//conditional CanTree constructions
-	static int cantree_mining_calls = 0;			//CanTree mining call
-	static int single_path_mining_calls = 0;		//direct mining from single paths
-	static int num_of_single_paths = 0;				//number of single paths encountered
+	//performance measurement counters (shared by the threads of the parallel mining)
+	static final AtomicInteger cantree_construction_calls = new AtomicInteger();		//CanTree construction from file
+	static final AtomicInteger cond_cantree_construction_calls = new AtomicInteger();	//conditional CanTree constructions
+	static final AtomicInteger cantree_mining_calls = new AtomicInteger();			//CanTree mining call
+	static final AtomicInteger single_path_mining_calls = new AtomicInteger();		//direct mining from single paths
+	static final AtomicInteger num_of_single_paths = new AtomicInteger();			//number of single paths encountered
+	static final AtomicInteger freed_nodes = new AtomicInteger();					//nodes emptied by removals
+	static final AtomicInteger storage_compactions = new AtomicInteger();			//compactions of the storage
+	static final AtomicInteger remined_header_elements = new AtomicInteger();		//dirty header elements mined again (incremental mining)
+	static final AtomicInteger reused_header_elements = new AtomicInteger();		//header elements replayed from the cache (incremental mining)
+	static final AtomicInteger snapshots_taken = new AtomicInteger();				//snapshots of the CanTree mined by another thread
 	
 	public CanTree() 
 	{
-		header_table = new ArrayList<FPTreeHeaderElement>();
-		cantree_root = null;
+		header_table = new FPTreeHeaderTable();
+		storage = null;
 		support_threshold = 0;
-		item_support = new Hashtable<String,Integer>();
+		dictionary = new ItemDictionary();
+		item_support = new int[0];
 		to_be_sorted = false;
+		mining_strategy = MiningStrategy.FP_GROWTH;
+		sink = null;
+		compaction_threshold = DEFAULT_COMPACTION_THRESHOLD;
+		incremental = false;
+		dirty_items = new boolean[0];
+		item_results = new CollectingItemsetSink[0];
+		cached_support = -1;
+		cached_strategy = null;
+		emptied_nodes = new int[0];
+		emptied_count = 0;
 	}
 	
 	//This is to create the CanTree from an input file containing all the transactions
 	public CanTree(File inputfile, int support)
+	{
+		this(inputfile, support, new FPTreeNodeStorage());
+	}
+	
+	//Same as above, with the nodes kept in the given (empty) storage, e.g. a NodeArena
+	public CanTree(File inputfile, int support, TreeStorage storage)
 	{
 		//initializations
-		this.header_table = new ArrayList<FPTreeHeaderElement>();
-		this.cantree_root = new FPTreeNode();
-		this.support_threshold = support;
-		this.item_support = new Hashtable<String,Integer>();
-		to_be_sorted = false;
+		this(new ItemDictionary(), support, storage);
 				
 		constructCanTree(inputfile);	//from all transactions in the input file
 	}
 	
 	//This is to create the CanTree from an input file with all transactions starting at line no [start_at] and ending at line no [end_at]
 	public CanTree(File inputfile, int support, int start_at, int end_at)
+	{
+		this(inputfile, support, start_at, end_at, new FPTreeNodeStorage());
+	}
+	
+	//Same as above, with the nodes kept in the given (empty) storage, e.g. a NodeArena
+	public CanTree(File inputfile, int support, int start_at, int end_at, TreeStorage storage)
 	{
 		//initializations
-		this.header_table = new ArrayList<FPTreeHeaderElement>();
-		this.cantree_root = new FPTreeNode();
-		this.support_threshold = support;
-		this.item_support = new Hashtable<String,Integer>();
-		to_be_sorted = false;
+		this(new ItemDictionary(), support, storage);
 						
 		constructCanTree(inputfile, start_at, end_at);	//from specific range of transactions in the input file
 	}
 	
-	//This is to create the CanTree from a conditional pattern base
-	public CanTree(ArrayList<String> cond_pattern_base, int support)
+	//This is to create the CanTree from an input file, the lines are tokenized on the threads of the pool (see ParallelTransactionScan)
+	public CanTree(File inputfile, int support, TreeStorage storage, ForkJoinPool pool)
+	{
+		this(inputfile, support, 1, Integer.MAX_VALUE, storage, pool);
+	}
+	
+	//Same as above, with the transactions between line no [start_at] and line no [end_at] only
+	public CanTree(File inputfile, int support, int start_at, int end_at, TreeStorage storage, ForkJoinPool pool)
 	{
 		//initializations
-		this.header_table = new ArrayList<FPTreeHeaderElement>();
-		this.cantree_root = new FPTreeNode();
-		this.support_threshold = support;
-		this.item_support = new Hashtable<String,Integer>();
-		to_be_sorted = false;
+		this(new ItemDictionary(), support, storage);
+		
+		constructCanTree(inputfile, start_at, end_at, pool);
+	}
+	
+	//This is to create the CanTree from a binary transaction file (see BinaryTransactionFile) containing all the transactions
+	public CanTree(BinaryTransactionFile transactions, int support)
+	{
+		this(transactions, support, 1, transactions.size(), new FPTreeNodeStorage());
+	}
+	
+	//This is to create the CanTree from a binary transaction file, with the transactions #[start_at] to #[end_at] (line numbers of the text file)
+	public CanTree(BinaryTransactionFile transactions, int support, int start_at, int end_at)
+	{
+		this(transactions, support, start_at, end_at, new FPTreeNodeStorage());
+	}
+	
+	//Same as above, with the nodes kept in the given (empty) storage, e.g. a NodeArena
+	public CanTree(BinaryTransactionFile transactions, int support, int start_at, int end_at, TreeStorage storage)
+	{
+		//initializations
+		this(transactions.getItemDictionary(), support, storage);
+		
+		constructCanTree(transactions, start_at, end_at);
+	}
+	
+	//This is to create the CanTree from the transactions of a sliding window, sorted in the canonical order (sharing the dictionary of the window)
+	public CanTree(WindowStore window, int support)
+	{
+		//initializations
+		this(window.getItemDictionary(), support, new FPTreeNodeStorage());
+		
+		constructCanTree(window);
+	}
+	
+	//This is to create the CanTree from a conditional pattern base of another CanTree (sharing the same dictionary)
+	public CanTree(ConditionalPatternBase cond_pattern_base, int support, ItemDictionary dictionary, TreeStorage storage)
+	{
+		//initializations
+		this(dictionary, support, storage);
 				
 		constructCanTree(cond_pattern_base);
 	}
 	
-	public FPTreeHeaderElement getHeaderElement(String item) 
+	private CanTree(ItemDictionary dictionary, int support, TreeStorage storage)
 	{
-		FPTreeHeaderElement ret = null;
-		for(int i=0; i<header_table.size(); i++)
-			if(header_table.get(i).getItem().equals(item))
-			{
-				ret = header_table.get(i);
-				break;
-			}
-		return ret;
+		this.header_table = new FPTreeHeaderTable();
+		this.storage = storage;
+		this.support_threshold = support;
+		this.dictionary = dictionary;
+		this.item_support = new int[0];
+		to_be_sorted = false;
+		mining_strategy = MiningStrategy.FP_GROWTH;
+		sink = null;
+		compaction_threshold = DEFAULT_COMPACTION_THRESHOLD;
+		incremental = false;
+		dirty_items = new boolean[0];
+		item_results = new CollectingItemsetSink[0];
+		cached_support = -1;
+		cached_strategy = null;
+		emptied_nodes = new int[0];
+		emptied_count = 0;
+	}
+	
+	public FPTreeHeaderElement findHeaderElement(int item) 
+	{
+		return header_table.find(item);		//indexed lookup by item id
 	}
 	
 	public FPTreeHeaderElement getHeaderElement(int i) 
@@ -114,14 +222,25 @@ public class CanTree {
 		return ret;
 	}
 	
-	public ArrayList<FPTreeHeaderElement> getFPTreeHeaderTable()
+	public FPTreeHeaderTable getFPTreeHeaderTable()
 	{
 		return this.header_table;
 	}
 	
-	public FPTreeNode getRoot() 
+	public int getRoot() 
+	{
+		return storage.getRoot();
+	}
+	
+	public TreeStorage getStorage() 
 	{
-		return this.cantree_root;
+		return this.storage;
+	}
+	
+	//gives the nodes back to their storage (pooled arenas are reused), the tree must not be used afterwards
+	public void release() 
+	{
+		storage.release();
 	}
 	
 	public int getSupportThreshold()
@@ -129,9 +248,75 @@ public class CanTree {
 		return this.support_threshold;
 	}
 	
-	public Hashtable<String,Integer> getItemSupport()
+	public ItemDictionary getItemDictionary()
+	{
+		return this.dictionary;
+	}
+	
+	public MiningStrategy getMiningStrategy()
+	{
+		return this.mining_strategy;
+	}
+	
+	//strategy used by minePatterns() and minePatternsInParallel()
+	public void setMiningStrategy(MiningStrategy mining_strategy)
+	{
+		this.mining_strategy = mining_strategy;
+	}
+	
+	//frequent item sets are printed to System.out as text lines, unless another sink is set here
+	public void setItemsetSink(ItemsetSink sink)
+	{
+		this.sink = sink;
+	}
+	
+	public ItemsetSink getItemsetSink()
+	{
+		if(sink == null)
+			sink = new TextItemsetSink(System.out);
+		return sink;
+	}
+	
+	public double getCompactionThreshold()
+	{
+		return this.compaction_threshold;
+	}
+	
+	//the storage is compacted once its freed handles exceed this ratio of all the handles (0 disables the compaction)
+	public void setCompactionThreshold(double compaction_threshold)
+	{
+		this.compaction_threshold = compaction_threshold;
+	}
+	
+	public boolean isIncrementalMining()
 	{
-		return this.item_support;
+		return this.incremental;
+	}
+	
+	/*
+	 * Incremental mining for a sliding window: minePatterns("") re-mines only the header elements whose items were
+	 * touched by insertions/removals since the last mining, the item sets of the others are replayed from the previous mining.
+	 * Applies to FP_GROWTH and FP_GROWTH_STAR without prefix, costs the memory of the cached item sets.
+	 */
+	public void setIncrementalMining(boolean incremental)
+	{
+		this.incremental = incremental;
+		Arrays.fill(item_results, null);	//nothing cached yet (or anymore)
+		cached_support = -1;
+	}
+	
+	//the item sets ending with this item have to be mined again
+	private void markDirty(int item)
+	{
+		if(item >= dirty_items.length)
+			dirty_items = Arrays.copyOf(dirty_items, Math.max(item+1, 2*dirty_items.length));
+		dirty_items[item] = true;
+	}
+	
+	//support of an item id in the whole CanTree, 0 if the item is not present
+	public int getItemSupport(int item)
+	{
+		return (item >= 0 && item < item_support.length) ? item_support[item] : 0;
 	}
 	
 	/*
@@ -148,7 +333,7 @@ public class CanTree {
 			System.out.println("Error! Scan for CanTree construction failed !");
 			System.out.println(ioe.toString());
 		}		
-		cantree_construction_calls++;
+		cantree_construction_calls.incrementAndGet();
 	}
 	
 	/*
@@ -165,105 +350,537 @@ public class CanTree {
 			System.out.println("Error! Scan for CanTree construction failed !");
 			System.out.println(ioe.toString());
 		}
-		cantree_construction_calls++;
+		cantree_construction_calls.incrementAndGet();
+	}
+	
+	/*
+	 * Same as above, with a parallel scan (see ParallelTransactionScan): every chunk of the range is inserted into a partition CanTree
+	 * on the threads of the pool, the partition trees are merged into this one (see firstScan()).
+	 */
+	public void constructCanTree(File inputfile, int start_at, int end_at, ForkJoinPool pool) 
+	{		
+		try 
+		{
+			firstScan(new ParallelTransactionScan(inputfile, start_at, end_at, dictionary, pool)); //one and only scan
+		} 
+		catch(IOException ioe) 
+		{
+			System.out.println("Error! Parallel scan for CanTree construction failed !");
+			System.out.println(ioe.toString());
+		}
+		cantree_construction_calls.incrementAndGet();
+	}
+	
+	/*
+	 * Construct CanTree from a range of transactions of a binary transaction file.
+	 * The items of a transaction are decoded in the canonical order already, straight from the mapped file.
+	 */
+	public void constructCanTree(BinaryTransactionFile transactions, int start_at, int end_at) 
+	{		
+		int last = Math.min(end_at, transactions.size());
+		for(int n=Math.max(start_at, 1); n<=last; n++)
+		{
+			int len = transactions.read(n);
+			insertIntoCanTree(transactions.getItems(), 0, len, 1);
+		}
+		cantree_construction_calls.incrementAndGet();
+	}
+	
+	/*
+	 * Construct CanTree from the transactions of a sliding window (item ids already in the canonical order).
+	 * The transactions are inserted straight from the buffer of the window.
+	 */
+	public void constructCanTree(WindowStore window) 
+	{		
+		int []items = window.getItems();
+		for(int i=0; i<window.size(); i++)
+			insertIntoCanTree(items, window.getStart(i), window.getEnd(i), 1);
+		cantree_construction_calls.incrementAndGet();
 	}
 	
 	/* 
 	 * CanTree construction from conditional pattern base.
+	 * The item supports were accumulated while the base was collected,
+	 * so the header table is created straight away (already in lexicographic order) and the paths are inserted in a single pass.
 	 */
-	public void constructCanTree(ArrayList<String> cond_pattern_base) 
+	public void constructCanTree(ConditionalPatternBase cond_pattern_base) 
 	{		
-		firstScan(cond_pattern_base); 		//one and only scan	
-		cond_cantree_construction_calls++;
+		for(int position=0; position<cond_pattern_base.getPositionCount(); position++)	//header positions of the source CanTree are in lexicographic order
+		{
+			int support = cond_pattern_base.getFrequency(position);
+			if(support == 0)
+				continue;
+			
+			int item = cond_pattern_base.getItem(position);
+			if(item >= item_support.length)
+				item_support = Arrays.copyOf(item_support, Math.max(item+1, 2*item_support.length));
+			item_support[item] = support;
+			header_table.add(item);
+		}
+		
+		int []positions = cond_pattern_base.getPositions();
+		int []prefix = new int[0];
+		for(int n=0; n<cond_pattern_base.size(); n++)
+		{
+			int start = cond_pattern_base.getPathStart(n);
+			int end = cond_pattern_base.getPathEnd(n);
+			if(prefix.length < end - start)
+				prefix = new int[end - start];
+			
+			int len = 0;
+			for(int i=end-1; i>=start; i--)		//paths were traced upwards, reading them backwards gives the lexicographic order
+				prefix[len++] = cond_pattern_base.getItem(positions[i]);
+			insertPath(prefix, len, cond_pattern_base.getCount(n));
+		}
+		cond_cantree_construction_calls.incrementAndGet();
 	}	
 
-	//traverses the pointers starting from the node link of the header element to reach the last node containing the item
-	public FPTreeNode getLastFPTreeNode(String item)
+	//last node containing the item, as maintained by the header table (no traversal of the node links)
+	public int getLastFPTreeNode(int item)
 	{
-		FPTreeNode fptn = null;
-		FPTreeHeaderElement elem = getHeaderElement(item);
-		if(elem!=null)
-			fptn = elem.getNodeLink();
-		if(fptn!=null)
-			while(fptn.getNextNode()!=null)
-				fptn = fptn.getNextNode();
-							
-		return fptn;
+		FPTreeHeaderElement elem = findHeaderElement(item);
+		if(elem==null)
+			return TreeStorage.NULL_NODE;
+		return elem.getLastNode();
 	}
 	
 	/*
 	 * Following function inserts a prefix into CanTree with the corresponding count.
-	 * The prefix is provided as an array to the method.
+	 * The prefix is provided as an array of items to the method, which are encoded here.
 	 * The prefix is already sorted. No need to sort it again. 
 	 */
 	public void insertIntoCanTree(String[] itm, int count)
 	{
-    	FPTreeNode tmp = cantree_root;	
-    	for(int i=0; i<itm.length; i++)	//adding the prefix in CanTree now
+		insertIntoCanTree(dictionary.encode(itm), 0, count);
+	}
+	
+	/*
+	 * Following function inserts a prefix (item ids starting at index [start]) into CanTree with the corresponding count.
+	 * The prefix is already sorted in the canonical order. No need to sort it again. 
+	 */
+	public void insertIntoCanTree(int[] itm, int start, int count)
+	{
+		insertIntoCanTree(itm, start, itm.length, count);
+	}
+	
+	//same as above, for the item ids [start, end) only (e.g. a transaction in the buffer of a WindowStore)
+	public void insertIntoCanTree(int[] itm, int start, int end, int count)
+	{
+    	int tmp = storage.getRoot();	
+    	if(start < end)
+    		storage.incrementFrequency(tmp, count);	//increment support of the root
+    	for(int i=start; i<end; i++)	//adding the prefix in CanTree now
     	{
-    		String f_item = itm[i];		//get the frequent item
+    		int f_item = itm[i];		//get the frequent item
+    		
+    		if(f_item >= item_support.length)						//item id not seen so far by this tree
+    			item_support = Arrays.copyOf(item_support, Math.max(f_item+1, 2*item_support.length));
     		
-    		if(!item_support.containsKey(f_item))					//when the item is encountered for the first time
+    		FPTreeHeaderElement hdrelem = header_table.find(f_item);
+    		if(hdrelem == null)									//when the item is encountered for the first time
     		{
-    			header_table.add(new FPTreeHeaderElement(f_item));	//add it to the header table
-    			item_support.put(f_item, count);					//add it to item support table as well
+    			hdrelem = header_table.add(f_item);				//add it to the header table
     			to_be_sorted = true;
     		}
-    		else
-    		{
-    			int old_supp = item_support.get(f_item);
-    			item_support.put(f_item,  old_supp+count);			//support value incremented by count
-    		}
+    		item_support[f_item] += count;							//support value incremented by count
+    		if(incremental)
+    			markDirty(f_item);
     		/* @P.S:
     		 * Note, header_table may be out of order! 
     		 * But it's OK! We will sort it before mining any frequent item sets from the CanTree
     		 */
     		
-    		tmp.incrementFrequency(count);		//increment support of parent
-    		if(tmp.isChild(f_item)==false) 		//if child not present, add it & update the node links from the header table
-    		{
-    			FPTreeNode new_child = tmp.addChild(f_item,0);	//child added
-    			FPTreeNode last_node = getLastFPTreeNode(f_item);
-    			if(last_node==null)				//first time this item is encountered
-    			{
-    				FPTreeHeaderElement hdrelem = getHeaderElement(f_item);
-    				if(hdrelem!=null)
-    					hdrelem.setNodeLink(new_child);
-    			}
-    			else
-    				last_node.setNextNode(new_child);	//pointers updated, new child pointed by next node pointer
-    		}
-    		tmp = tmp.getChild(f_item);       		
+    		int children_count = storage.getChildrenCount(tmp);
+    		int child = storage.findOrAddChild(tmp, f_item, count);	//child found or added, its frequency incremented by count
+    		if(storage.getChildrenCount(tmp) != children_count) 		//if child was not present, update the node links from the header table
+    			header_table.appendNodeLink(hdrelem, child, storage);	//new child appended to the node links in O(1)
+    		tmp = child;       		
+    	}
+	}
+	
+	/*
+	 * Inserts the first len item ids of the prefix with the corresponding count,
+	 * the header table and the item supports are expected to be up to date already (conditional CanTree).
+	 */
+	private void insertPath(int[] itm, int len, int count)
+	{
+    	int tmp = storage.getRoot();	
+    	storage.incrementFrequency(tmp, count);	//increment support of the root
+    	for(int i=0; i<len; i++)
+    	{
+    		int children_count = storage.getChildrenCount(tmp);
+    		int child = storage.findOrAddChild(tmp, itm[i], count);	//child found or added, its frequency incremented by count
+    		if(storage.getChildrenCount(tmp) != children_count) 		//if child was not present, update the node links from the header table
+    			header_table.appendNodeLink(header_table.find(itm[i]), child, storage);
+    		tmp = child;
     	}
-    	if(tmp.getItem().equals("root")==false)
-    		tmp.incrementFrequency(count);	//increment frequency of the last child
 	}
 	
 	/*
 	 * Following function removes a prefix from CanTree with the corresponding count.
-	 * The prefix is provided as an array to the method.
+	 * The prefix is provided as an array of items to the method, which are encoded here.
 	 * The prefix is already sorted. No need to sort it again. 
 	 */
 	public void removeFromCanTree(String[] itm, int count)
 	{
-    	FPTreeNode tmp = cantree_root;	
-    	for(int i=0; i<itm.length; i++)	//removing the prefix from CanTree now
+		removeFromCanTree(dictionary.encode(itm), 0, count);
+	}
+	
+	/*
+	 * Following function removes a prefix (item ids starting at index [start]) from CanTree with the corresponding count.
+	 * The prefix is already sorted in the canonical order. No need to sort it again. 
+	 * 
+	 * The counts along the path only decrease, so the nodes emptied by the removal are a tail of the path:
+	 * its first node is detached from its parent, all of them leave their node-link chains and are freed.
+	 * Items without any support left are dropped from the header table.
+	 */
+	public void removeFromCanTree(int[] itm, int start, int count)
+	{
+    	int tmp = storage.getRoot();	
+    	if(start < itm.length)
+    		storage.incrementFrequency(tmp, -count);	//decrement support of the root
+    	boolean emptied = false;					//true once the path goes through emptied nodes
+    	for(int i=start; i<itm.length; i++)	//removing the prefix from CanTree now
     	{
-    		String f_item = itm[i];		//get the frequent item
+    		int f_item = itm[i];		//get the frequent item
     		
-    		int old_supp = item_support.get(f_item);
-    		item_support.put(f_item,  old_supp-count);		//support value decremented
+    		item_support[f_item] -= count;		//support value decremented
+    		if(incremental)
+    			markDirty(f_item);
     		
-    		/* @P.S:
-    		 * Note, we will not remove elements from header_table even when the frequency is 0. 
-    		 * Similarly, CanTree nodes with 0 support are also not deleted.
-    		 */
-    		
-    		tmp.incrementFrequency(-count);		//decrement support of parent
-    		tmp = tmp.getChild(f_item);       	//get the immediate child	
+    		int child = storage.findOrAddChild(tmp, f_item, -count);	//get the immediate child (the prefix was inserted before), its frequency decremented by count
+    		if(emptied)
+    			storage.freeNode(tmp);							//emptied parent is not needed to walk down the path anymore
+    		if(storage.getFrequency(child) == 0)
+    		{
+    			FPTreeHeaderElement hdrelem = header_table.find(f_item);
+    			header_table.unlinkNode(hdrelem, child, storage);
+    			if(!emptied)
+    				storage.removeChild(tmp, child);				//first emptied node, the whole tail of the path goes with it
+    			emptied = true;
+    			freed_nodes.incrementAndGet();
+    		}
+    		if(item_support[f_item] == 0)	//no node left for this item
+    		{
+    			header_table.remove(f_item);
+    			to_be_sorted = true;
+    		}
+    		tmp = child;
     	}
-    	if(tmp.getItem().equals("root")==false)
-    		tmp.incrementFrequency(-count);		//decrement frequency of the last child
+    	if(emptied)
+    		storage.freeNode(tmp);
+    	
+    	compactIfFragmented();
+	}
+	
+	/*
+	 * Slides the window by a whole batch: the expired transactions are removed and the arrived ones are inserted 
+	 * (item ids sorted in the canonical order, count 1 each), with the same result as removeFromCanTree()/insertIntoCanTree() one by one.
+	 * 
+	 * -	Identical transactions are hashed into one entry with their net delta, 
+	 * 		so an expired transaction cancels an identical arrived one and neither touches the tree.
+	 * -	If at least 1/BATCH_DEDUPE_RATIO of the transactions cancelled out or repeated, the remaining ones are sorted in the canonical order 
+	 * 		and merged into the CanTree in a single traversal: a shared prefix is visited once, its nodes get the net delta 
+	 * 		of the transactions going through them. Only items whose nodes changed their count are marked dirty (incremental mining).
+	 * -	Otherwise (e.g. sparse data, where sorting costs more than the few shared prefixes save), 
+	 * 		every remaining transaction is inserted/removed on its own with its net delta.
+	 */
+	public void slideCanTree(int[][] expired, int[][] arrived)
+	{
+		int n = expired.length + arrived.length;
+		int [][]paths = new int[n][];		//distinct non-empty transactions
+		int []net = new int[n];				//net delta of each of them
+		int []slots = new int[Integer.highestOneBit(Math.max(n, 1)) << 2];	//hash table of the distinct transactions (linear probing)
+		Arrays.fill(slots, -1);
+		int m = 0;
+		int root_delta = 0;
+		int touched = 0;					//non-empty transactions of the slide
+		for(int i=0; i<n; i++)
+		{
+			boolean expiring = (i < expired.length);
+			int []t = expiring ? expired[i] : arrived[i - expired.length];
+			if(t.length == 0)
+				continue;
+			int delta = expiring ? -1 : 1;
+			root_delta += delta;
+			touched++;
+			
+			int slot = transactionSlot(slots, paths, t);
+			if(slots[slot] < 0)
+			{
+				slots[slot] = m;
+				paths[m] = t;
+				net[m++] = delta;
+			}
+			else
+				net[slots[slot]] += delta;
+		}
+		int k = 0;
+		for(int i=0; i<m; i++)		//cancelled transactions dropped
+			if(net[i] != 0)
+			{
+				paths[k] = paths[i];
+				net[k++] = net[i];
+			}
+		
+		if((long) (touched - k) * BATCH_DEDUPE_RATIO < touched)
+		{
+			slideTransactions(paths, net, k);
+			return;
+		}
+		
+		int []order = sortTransactions(paths, k, canonicalRanks(paths, k));
+		int [][]sorted = new int[k][];
+		int []deltas = new int[k];
+		for(int i=0; i<k; i++)
+		{
+			sorted[i] = paths[order[i]];
+			deltas[i] = net[order[i]];
+		}
+		
+		storage.incrementFrequency(storage.getRoot(), root_delta);
+		mergeTransactions(storage.getRoot(), sorted, deltas, 0, k, 0);
+		for(int i=0; i<emptied_count; i++)
+			storage.freeNode(emptied_nodes[i]);
+		freed_nodes.addAndGet(emptied_count);
+		emptied_count = 0;
+		
+		for(int i=0; i<k; i++)		//items without any support left are dropped from the header table
+			for(int j=0; j<sorted[i].length; j++)
+				if(item_support[sorted[i][j]] == 0 && header_table.find(sorted[i][j]) != null)
+				{
+					header_table.remove(sorted[i][j]);
+					to_be_sorted = true;
+				}
+		
+		compactIfFragmented();
+	}
+	
+	//the first n distinct transactions inserted (net delta > 0) or removed (net delta < 0) one by one, insertions first
+	private void slideTransactions(int[][] paths, int[] net, int n)
+	{
+		for(int i=0; i<n; i++)
+			if(net[i] > 0)
+				insertIntoCanTree(paths[i], 0, net[i]);
+		for(int i=0; i<n; i++)
+			if(net[i] < 0)
+				removeFromCanTree(paths[i], 0, -net[i]);
+	}
+	
+	//same as above, with the transactions given as item tokens in lexicographic order
+	public void slideCanTree(String[][] expired, String[][] arrived)
+	{
+		int [][]expired_ids = new int[expired.length][];
+		for(int i=0; i<expired.length; i++)
+			expired_ids[i] = dictionary.encode(expired[i]);
+		int [][]arrived_ids = new int[arrived.length][];
+		for(int i=0; i<arrived.length; i++)
+			arrived_ids[i] = dictionary.encode(arrived[i]);
+		slideCanTree(expired_ids, arrived_ids);
+	}
+	
+	//slot holding the transaction among the distinct ones, or the empty slot where it would be inserted
+	private static int transactionSlot(int[] slots, int[][] paths, int[] t)
+	{
+		int mask = slots.length - 1;
+		int h = Arrays.hashCode(t) * 0x9E3779B9;
+		int slot = (h ^ (h >>> 16)) & mask;
+		while(slots[slot] >= 0 && !Arrays.equals(paths[slots[slot]], t))
+			slot = (slot + 1) & mask;
+		return slot;
+	}
+	
+	/*
+	 * Rank of every item in the canonical order (indexed by item id), i.e. its position in the sorted header table,
+	 * so that the transactions are sorted comparing ints instead of the tokens behind the ids.
+	 * New items of the transactions are added to the header table first.
+	 */
+	private int[] canonicalRanks(int[][] paths, int n)
+	{
+		for(int i=0; i<n; i++)
+			for(int j=0; j<paths[i].length; j++)
+			{
+				int item = paths[i][j];
+				if(item >= item_support.length)
+					item_support = Arrays.copyOf(item_support, Math.max(item+1, 2*item_support.length));
+				if(header_table.find(item) == null)
+				{
+					header_table.add(item);
+					to_be_sorted = true;
+				}
+			}
+		sortHeaderTable();
+		
+		int []rank = new int[dictionary.size()];
+		for(int i=0; i<header_table.size(); i++)
+			rank[header_table.get(i).getItem()] = i;
+		return rank;
+	}
+	
+	/*
+	 * Order of the first n transactions in the canonical order.
+	 * They are sorted on a primitive key first (ranks of their first two items and their index), 
+	 * only the runs sharing their first two items are sorted again comparing all their items.
+	 */
+	private static int[] sortTransactions(int[][] paths, int n, int[] rank)
+	{
+		int []order = new int[n];
+		if(n >= SORT_KEY_LIMIT || rank.length >= SORT_KEY_LIMIT)	//ranks or indexes do not fit in the key
+		{
+			for(int i=0; i<n; i++)
+				order[i] = i;
+			sortByItems(order, 0, n, paths, rank);
+			return order;
+		}
+		
+		long []keys = new long[n];
+		for(int i=0; i<n; i++)
+		{
+			long second = (paths[i].length > 1) ? rank[paths[i][1]] + 1 : 0;	//a transaction ending after its first item comes first
+			keys[i] = ((long) (rank[paths[i][0]] + 1) << 42) | (second << 21) | i;
+		}
+		Arrays.sort(keys);
+		for(int i=0; i<n; i++)
+			order[i] = (int) (keys[i] & (SORT_KEY_LIMIT-1));
+		
+		for(int i=0, end; i<n; i=end)
+		{
+			end = i + 1;
+			while(end < n && (keys[end] >>> 21) == (keys[i] >>> 21))
+				end++;
+			if(end - i > 1)		//same first two items
+				sortByItems(order, i, end, paths, rank);
+		}
+		return order;
+	}
+	
+	//sorts order[from..to) comparing the transactions item by item
+	private static void sortByItems(int[] order, int from, int to, final int[][] paths, final int[] rank)
+	{
+		Integer []run = new Integer[to - from];
+		for(int i=from; i<to; i++)
+			run[i-from] = order[i];
+		Arrays.sort(run, new Comparator<Integer>() {
+			public int compare(Integer t1, Integer t2)
+			{
+				return compareTransactions(paths[t1], paths[t2], rank);
+			}
+		});
+		for(int i=from; i<to; i++)
+			order[i] = run[i-from];
+	}
+	
+	//canonical order of two transactions, item by item (a prefix comes first)
+	private static int compareTransactions(int[] t1, int[] t2, int[] rank)
+	{
+		int len = Math.min(t1.length, t2.length);
+		for(int i=0; i<len; i++)
+			if(t1[i] != t2[i])
+				return rank[t1[i]] - rank[t2[i]];
+		return t1.length - t2.length;
+	}
+	
+	/*
+	 * Merges the sorted transactions [lo, hi), which share their first [depth] items (the path down to node), below node.
+	 * Every child is visited once with the net delta of the transactions going through it.
+	 * A child emptied by the merge is unlinked from its node-link chain and detached (unless node is emptied as well), 
+	 * its handle is kept in emptied_nodes to be freed once the traversal is over.
+	 */
+	private void mergeTransactions(int node, int[][] paths, int[] deltas, int lo, int hi, int depth)
+	{
+		boolean detach = (node == storage.getRoot() || storage.getFrequency(node) != 0);	//an emptied node goes with its whole subtree
+		int i = lo;
+		while(i < hi && paths[i].length == depth)	//transactions ending at node
+			i++;
+		while(i < hi)
+		{
+			int item = paths[i][depth];
+			int end = i;
+			int delta = 0;
+			while(end < hi && paths[end][depth] == item)	//transactions going through the same child
+				delta += deltas[end++];
+			
+			FPTreeHeaderElement hdrelem = header_table.find(item);	//new items were added by canonicalRanks()
+			int children_count = storage.getChildrenCount(node);
+			int child = storage.findOrAddChild(node, item, delta);
+			if(storage.getChildrenCount(node) != children_count)
+				header_table.appendNodeLink(hdrelem, child, storage);
+			if(delta != 0)
+			{
+				item_support[item] += delta;
+				if(incremental)
+					markDirty(item);
+			}
+			
+			mergeTransactions(child, paths, deltas, i, end, depth+1);
+			
+			if(storage.getFrequency(child) == 0)
+			{
+				header_table.unlinkNode(hdrelem, child, storage);
+				if(detach)
+					storage.removeChild(node, child);
+				if(emptied_count == emptied_nodes.length)
+					emptied_nodes = Arrays.copyOf(emptied_nodes, Math.max(16, 2*emptied_count));
+				emptied_nodes[emptied_count++] = child;
+			}
+			i = end;
+		}
+	}
+	
+	//compacts the storage once the freed handles exceed the compaction threshold
+	private void compactIfFragmented()
+	{
+		if(compaction_threshold > 0 && storage.freeCount() >= COMPACTION_MIN_FREE 
+				&& storage.freeCount() > compaction_threshold * (storage.size() + storage.freeCount()))
+			compactStorage();
+	}
+	
+	//renumbers the nodes densely, dropping the freed handles (the node-link chains are kept in the same order)
+	public void compactStorage()
+	{
+		header_table.remapNodeLinks(storage.compact());
+		storage_compactions.incrementAndGet();
+	}
+	
+	/*
+	 * Immutable copy of the CanTree at this point of the stream (e.g. a slide boundary): copies of the storage (same handles), 
+	 * of the header table and of the item supports, sharing the dictionary, the sink, the support threshold and the strategy.
+	 * The snapshot is mined by another thread while the next slide is inserted/removed here (see SnapshotMiner).
+	 * 
+	 * With incremental mining, the dirty items are handed over to the snapshot (and cleared here): 
+	 * the snapshots have to be mined in the order they are taken, each one carrying the cache of the previous one
+	 * over with takeCacheFrom(). This CanTree is not mined itself meanwhile.
+	 */
+	public CanTree snapshot()
+	{
+		sortHeaderTable();		//the snapshot is mined without sorting
+		CanTree snap = new CanTree(dictionary, support_threshold, storage.copy());
+		snap.header_table = header_table.copy();
+		snap.item_support = Arrays.copyOf(item_support, item_support.length);
+		snap.mining_strategy = mining_strategy;
+		snap.sink = getItemsetSink();
+		snap.compaction_threshold = 0;
+		snap.incremental = incremental;
+		if(incremental)
+		{
+			snap.dirty_items = dirty_items;
+			dirty_items = new boolean[dirty_items.length];
+		}
+		snapshots_taken.incrementAndGet();
+		return snap;
+	}
+	
+	/*
+	 * Incremental mining of snapshots: takes over the cached item sets of the previous snapshot (mined before),
+	 * the dirty items of this snapshot are the ones touched since the previous snapshot was taken.
+	 */
+	public void takeCacheFrom(CanTree previous)
+	{
+		item_results = previous.item_results;
+		cached_support = previous.cached_support;
+		cached_strategy = previous.cached_strategy;
+		previous.item_results = new CollectingItemsetSink[0];
+		previous.cached_support = -1;
 	}
 	
 	/*
@@ -271,7 +888,7 @@ public class CanTree {
 	 */
 	public int getIndividualItemSupport(FPTreeHeaderElement elem) 
 	{		
-		return item_support.get(elem.getItem());
+		return item_support[elem.getItem()];
 	}
 		
 	/* 	
@@ -279,131 +896,222 @@ public class CanTree {
 	 */
 	public void firstScan(File inputfile) throws IOException
 	{       
-		BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(inputfile)));
-        String transaction = null;
+		TransactionTokenizer tokenizer = new TransactionTokenizer(new FileInputStream(inputfile), dictionary);
                 
-        while((transaction = br.readLine()) != null) //read input file (transaction database)
+        while(tokenizer.next()) //read input file (transaction database), items encoded as they are read (see TransactionTokenizer)
         {
-        	String []items = transaction.split("\\s");					//split transaction into individual items        	
-        	Arrays.sort(items);											//lexicographically sort items
+        	tokenizer.sortCanonical();									//lexicographically sort items
         	
-        	insertIntoCanTree(items,1);				//sorted items get added to the CanTree with support as 1
+        	insertIntoCanTree(tokenizer.getItems(),0,tokenizer.size(),1);	//sorted items get added to the CanTree with support as 1
         }
-        br.close(); //file reading complete 
+        tokenizer.close(); //file reading complete 
 	}
 
 	//overloaded method - file reading done between lines [start_at] and [end_at]
 	public void firstScan(File inputfile, int start_at, int end_at) throws IOException
 	{       
-		BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(inputfile)));
-        String transaction = null;
-        int line_no = 0;
+		TransactionTokenizer tokenizer = new TransactionTokenizer(LineOffsetIndex.streamAt(inputfile, start_at), dictionary);	//seek to line [start_at] (see LineOffsetIndex)
+        int line_no = Math.max(start_at, 1) - 1;
         
-        while((transaction = br.readLine()) != null) //read input file (transaction database) from lines [start_at] & [end_at] (both inclusive)
+        while(line_no < end_at && tokenizer.next()) //read input file (transaction database) from lines [start_at] & [end_at] (both inclusive)
         {
         	line_no++;
-        	if(line_no < start_at)
-        		continue;
-        	else if(line_no <= end_at)
-        	{
-        		String []items = transaction.split("\\s");					//split transaction into individual items        	
-            	Arrays.sort(items);											//lexicographically sort items
-            	
-            	insertIntoCanTree(items,1);				//sorted items get added to the CanTree with support as 1
-        	}
-        	else
-        		break;       	
+        	tokenizer.sortCanonical();									//lexicographically sort items
+        	
+        	insertIntoCanTree(tokenizer.getItems(),0,tokenizer.size(),1);	//sorted items get added to the CanTree with support as 1
         }       
-        br.close(); //file reading complete   
+        tokenizer.close(); //file reading complete   
 	}
-			
-	/* 
-	 * Scan of transactions entered as conditional pattern base 
-	 * to create the Can-Tree and its header table.
+
+	
+	/*
+	 * overloaded method - the chunks of the file are inserted in parallel, every chunk into a partition CanTree of its own
+	 * (the canonical order is the same for all of them), the partition trees are merged pairwise as the tasks join (see merge()).
+	 * The first chunks are inserted into this tree straight away.
 	 */
-	public void firstScan(ArrayList<String> cond_pattrn_base)
-	{       
-		for(int n=0; n<cond_pattrn_base.size(); n++)
+	public void firstScan(ParallelTransactionScan scan) throws IOException
+	{
+		try
 		{
-			String prefx = cond_pattrn_base.get(n);
-			String []tokens = prefx.split(":");			
-			
-			if(tokens.length != 2)	return;	//error-handling
+			scan.getPool().invoke(new PartitionTask(scan, 0, scan.getChunkCount(), this));
+		}
+		catch(RuntimeException re)		//IOException of a partition task
+		{
+			for(Throwable cause = re; cause != null; cause = cause.getCause())
+				if(cause instanceof IOException)
+					throw (IOException) cause;
+			throw re;
+		}
+	}
+	
+	//builds the CanTree of the chunks [from, to) of the scan, into the given tree (null for a new partition tree)
+	private class PartitionTask extends RecursiveTask<CanTree> {
+		private static final long serialVersionUID = 1L;
+		
+		private ParallelTransactionScan scan;
+		private int from;
+		private int to;
+		private CanTree tree;
+		
+		PartitionTask(ParallelTransactionScan scan, int from, int to, CanTree tree)
+		{
+			this.scan = scan;
+			this.from = from;
+			this.to = to;
+			this.tree = tree;
+		}
+		
+		@Override
+		protected CanTree compute()
+		{
+			if(to - from > 1)
+			{
+				int middle = (from + to) >>> 1;
+				PartitionTask right = new PartitionTask(scan, middle, to, null);
+				right.fork();
+				CanTree left_tree = new PartitionTask(scan, from, middle, tree).compute();
+				CanTree right_tree = right.join();
+				left_tree.merge(right_tree);
+				right_tree.release();
+				return left_tree;
+			}
 			
-			int count = Integer.parseInt(tokens[0]);	//frequency of occurrence of the prefix
+			CanTree partition = (tree != null) ? tree : new CanTree(dictionary, support_threshold, storage.newUnpooledStorage());
+			if(from == to)
+				return partition;
+			try
+			{
+				TransactionTokenizer tokenizer = scan.openChunk(from);
+				while(tokenizer.next())
+				{
+					tokenizer.sortCanonical();		//lexicographically sort items
+					partition.insertIntoCanTree(tokenizer.getItems(), 0, tokenizer.size(), 1);
+				}
+				tokenizer.close();
+			}
+			catch(IOException ioe)
+			{
+				throw new RuntimeException(ioe);	//thrown again by firstScan()
+			}
+			return partition;
+		}
+	}
+	
+	/*
+	 * Merges the other CanTree into this one (the other tree is left as it is), both encoding their items with the same dictionary,
+	 * e.g. the partition trees of a parallel construction or the trees of consecutive slides.
+	 * All CanTrees share the canonical order, so the trees are merged recursively node by node: the counts of the matching children
+	 * are summed, the other children are added and appended to the node-links of this tree (new items are added to the header table).
+	 */
+	public void merge(CanTree other)
+	{
+		if(other == this || other.dictionary != dictionary)
+			throw new IllegalArgumentException("CanTrees can only be merged with another tree of the same item dictionary");
+		
+		int root = storage.getRoot();
+		int other_root = other.storage.getRoot();
+		storage.incrementFrequency(root, other.storage.getFrequency(other_root));
+		mergeChildren(root, other, other_root);
+		
+		if(item_support.length < other.item_support.length)
+			item_support = Arrays.copyOf(item_support, other.item_support.length);
+		for(int item=0; item<other.item_support.length; item++)
+		{
+			if(other.item_support[item] == 0)
+				continue;
+			item_support[item] += other.item_support[item];
+			if(incremental)
+				markDirty(item);
+		}
+	}
+	
+	//recursive merge of the children of other_node (in the other tree) into the children of node
+	private void mergeChildren(int node, CanTree other, int other_node)
+	{
+		TreeStorage other_storage = other.storage;
+		for(int i=0; i<other_storage.getChildrenCount(other_node); i++)
+		{
+			int other_child = other_storage.getChild(other_node, i);
+			if(other_storage.getFrequency(other_child) == 0)	//emptied by removals, so is its subtree
+				continue;
 			
-			String pattern = tokens[1];					//get the actual pattern -> Now this pattern is already in lexicographic order
-			String items[] = pattern.split("\\s");		//Just get the individual items, in the same lexicographic order (no sorting required)
-			insertIntoCanTree(items, count);			//insert into Can-Tree in the same order
-		}   
+			int item = other_storage.getItem(other_child);
+			int children_count = storage.getChildrenCount(node);
+			int child = storage.findOrAddChild(node, item, other_storage.getFrequency(other_child));	//counts summed
+			if(storage.getChildrenCount(node) != children_count) 	//new child, stitched into the node links of this tree
+			{
+				FPTreeHeaderElement hdrelem = header_table.find(item);
+				if(hdrelem == null)		//item not in this tree so far
+				{
+					hdrelem = header_table.add(item);
+					to_be_sorted = true;
+				}
+				header_table.appendNodeLink(hdrelem, child, storage);
+			}
+			mergeChildren(child, other, other_child);
+		}
 	}
 	
 	/*
-	 * Trace the prefix from its immediate parent to the root (containing all the items separated by space).
+	 * Trace the prefix from its immediate parent to the root (containing all the item ids).
 	 * Also include its support. 
 	 * The path traversed is upwards (reverse lexicographic order).
 	 * So reverse the traced path.
-	 * The returned string will be in the format <support>:<prefix>
+	 * The returned array will be in the format [<support>, <prefix>...]
 	 * Also ignore infrequent items in the prefix.
 	 */
-	public String getPrefixEndingWith(FPTreeNode fptn)
+	public int[] getPrefixEndingWith(int fptn)
 	{
-		String prefix = fptn.getFrequency()+":" ;	//colon as delimiter between support and prefix (list of items separated by space)
-		
-		String tmp;
-		ArrayList<String> holder = new ArrayList<String>();
-		
-		fptn = fptn.getParent();
-		tmp = fptn.getItem();
+		int root = storage.getRoot();
+		int tmp = storage.getParent(fptn);
 		
-		if(tmp.equals("root"))
+		if(tmp==root)
 			return null;
 		
-		while(fptn != null && !(tmp.equals("root")))
-		{
-			if(item_support.get(tmp) >= support_threshold)	//we will only consider frequent items
-				holder.add(tmp);
-			fptn = fptn.getParent();
-			tmp = fptn.getItem();
-		}
+		int len = 1;	//first slot holds the support
+		for(int anc = tmp; anc!=root; anc = storage.getParent(anc))
+			if(item_support[storage.getItem(anc)] >= support_threshold)	//we will only consider frequent items
+				len++;
+		
+		int []prefix = new int[len];
+		prefix[0] = storage.getFrequency(fptn);
 		
-		for(int i=holder.size()-1; i>=0; i--)
-			prefix += holder.get(i) + " ";		//reversing the traced out path -> will be in lexicographic order
+		for(int i=len-1; i>0; tmp = storage.getParent(tmp))	//filling in from the end reverses the traced out path -> will be in lexicographic order
+			if(item_support[storage.getItem(tmp)] >= support_threshold)
+				prefix[i--] = storage.getItem(tmp);
 		
 		return prefix;
 	}
 	
 	/* 
 	 * For a given header element, form its conditional pattern base by getting all its possible prefixes.
-	 * Return all the prefixes in a array list.
+	 * The prefixes are traced into the (reset) base cond_patt_base, along with the support of their items.
+	 * Infrequent items in the prefixes are ignored. 
 	 */
-	public ArrayList<String> getConditionalPatternBase(FPTreeHeaderElement elem) 
+	public void getConditionalPatternBase(FPTreeHeaderElement elem, ConditionalPatternBase cond_patt_base) 
 	{
-		ArrayList<String> cond_patt_base;
-		FPTreeNode fptn = elem.getNodeLink();
-		
-		if(fptn==null)	
-			return null;
-		else
-			cond_patt_base = new ArrayList<String>();
+		cond_patt_base.reset(header_table.size());
+		int root = storage.getRoot();
 		
-		while(fptn!=null)
+		for(int fptn = elem.getNodeLink(); fptn!=TreeStorage.NULL_NODE; fptn = storage.getNextNode(fptn))
 		{
-			String prefix = getPrefixEndingWith(fptn);
-			if(prefix!=null)
-				cond_patt_base.add(prefix);
-			fptn = fptn.getNextNode();
+			cond_patt_base.startPath(storage.getFrequency(fptn));
+			for(int anc = storage.getParent(fptn); anc!=root; anc = storage.getParent(anc))	//from the immediate parent up to the root
+			{
+				int item = storage.getItem(anc);
+				if(item_support[item] >= support_threshold)	//we will only consider frequent items
+					cond_patt_base.addItem(header_table.getPosition(item), item);
+			}
+			cond_patt_base.endPath();
 		}
-		
-		return cond_patt_base;
 	}
 	
 	//following function returns true, if a given node and its descendants form a single branch
-	public boolean isSingleBranch(FPTreeNode fptn)
+	public boolean isSingleBranch(int fptn)
 	{
 		int child_cnt;
-		while((child_cnt = fptn.getChildrenCount()) == 1)
-			fptn = fptn.getChild(0); 	//get the first and only child
+		while((child_cnt = storage.getChildrenCount(fptn)) == 1)
+			fptn = storage.getChild(fptn, 0); 	//get the first and only child
 		if(child_cnt>0)		//if the last node has more than 1 children, then not a single path
 			return false;
 		else
@@ -412,72 +1120,270 @@ public class CanTree {
 	
 	/* 
 	 * Generate all possible combinations as frequent items from a single path
-	 * E.g. a:3 -> b:2 -> c:1 will yield a:3, b:2, c:1, ab:2, ac:1, bc:1, abc:1 (2^n -1 items for n item path)
+	 * E.g. a:3 -> b:2 -> c:1 will yield a:3, b:2, ab:2, c:1, ac:1, bc:1, abc:1 (2^n -1 items for n item path)
 	 */	
-	public void genAllCombinations(FPTreeNode fptn, String curr)
+	public void genAllCombinations(int fptn, String curr)
 	{
-		int freq = fptn.getFrequency();
-		
-		if(freq >= support_threshold)
-		{
-			String prev = curr;
-			curr = prev + " " + fptn.getItem();
-			
-			System.out.print(curr + " : " + freq + "\n");	//print combination with support
-			
-			if(fptn.getChildrenCount()==1)
-			{
-				genAllCombinations(fptn.getChild(0), prev);		//combinations not including the item at this index
-				genAllCombinations(fptn.getChild(0), curr);		//combinations including the item at this index
-			}	
-		}		
-		single_path_mining_calls++;
+		String []tokens = FPTree.prefixTokens(curr);
+		int []prefix = FPTree.prefixBuffer(dictionary, tokens, header_table.size());
+		ItemsetSink sink = getItemsetSink();
+		sink.startMining(dictionary);
+		genAllCombinations(fptn, prefix, tokens.length, sink);
+		sink.endMining();
+	}
+	
+	//combinations extending the item set prefix[0..length), enumerated by SinglePath over the frequent part of the path
+	private void genAllCombinations(int fptn, int[] prefix, int length, ItemsetSink sink)
+	{
+		SinglePath.mine(storage, fptn, support_threshold, prefix, length, sink);
+		single_path_mining_calls.incrementAndGet();
 	}
 	
 
 	/*
 	 * Similar to the FP-Growth method for mining frequent patterns.
-	 * Frequent Item sets with their respective supports will be printed through this method.
+	 * Frequent Item sets with their respective supports will be reported to the item set sink through this method.
 	 * 
 	 * The frequent item sets mined from the CanTree will have support 
 	 * greater than or equal to the support threshold of the CanTree (provided as argument in the constructor).
+	 * 
+	 * With the FP-growth* strategy, the conditional pattern bases (frequent items only) are mined 
+	 * with FP-trees carrying FP-arrays (or without a tree when small) instead of conditional CanTrees.
 	 */
 	public void minePatterns(String curr)
 	{
-		if(to_be_sorted)			//if new elements added or removed, sort them in the header list
+		String []tokens = FPTree.prefixTokens(curr);
+		int []prefix = FPTree.prefixBuffer(dictionary, tokens, header_table.size());
+		ItemsetSink sink = getItemsetSink();
+		sink.startMining(dictionary);
+		if(mining_strategy == MiningStrategy.FP_CLOSE || mining_strategy == MiningStrategy.FP_MAX)
+			mineClosedPatterns(prefix, tokens.length, mining_strategy == MiningStrategy.FP_MAX, sink);
+		else if(incremental && tokens.length == 0)
+			mineIncrementally(prefix, sink);
+		else
+			minePatterns(prefix, tokens.length, sink);
+		sink.endMining();
+	}
+	
+	/*
+	 * Same item sets as minePatterns(prefix, 0, sink), in the same order of the header elements.
+	 * A header element is mined again (into its cache) only if its item is dirty, or if the support threshold or
+	 * the strategy changed since the last mining. Otherwise its cached item sets are replayed.
+	 */
+	private void mineIncrementally(int[] prefix, ItemsetSink sink)
+	{
+		sortHeaderTable();
+		if(item_results.length < dictionary.size())
+			item_results = Arrays.copyOf(item_results, Math.max(dictionary.size(), 2*item_results.length));
+		boolean all_dirty = (cached_support != support_threshold || cached_strategy != mining_strategy);
+		
+		int cantree_root = storage.getRoot();
+		if(this.isSingleBranch(cantree_root))	//mined as a whole, nothing is cached
 		{
-			Collections.sort(header_table);
-			to_be_sorted = false;
+			minePatterns(prefix, 0, sink);
+			Arrays.fill(item_results, null);
+			cached_support = -1;
+		}
+		else
+		{
+			ConditionalPatternBase conditional_pattern_base = new ConditionalPatternBase();	//reused for every dirty header element
+			for(int i=header_table.size()-1; i>=0; i--)
+			{
+				int item = header_table.get(i).getItem();
+				if(this.getIndividualItemSupport(header_table.get(i)) < support_threshold)
+				{
+					item_results[item] = null;
+					continue;
+				}
+				
+				CollectingItemsetSink results = item_results[item];
+				if(results == null || all_dirty || (item < dirty_items.length && dirty_items[item]))
+				{
+					if(results == null)
+						results = item_results[item] = new CollectingItemsetSink();
+					else
+						results.clear();
+					mineHeaderElement(i, prefix, 0, conditional_pattern_base, false, results);
+					remined_header_elements.incrementAndGet();
+				}
+				else
+					reused_header_elements.incrementAndGet();
+				results.replayTo(sink);
+			}
+			cached_support = support_threshold;
+			cached_strategy = mining_strategy;
+			cantree_mining_calls.incrementAndGet();
 		}
 		
+		for(int item=0; item<dirty_items.length; item++)	//items gone from the header table drop their cache as well
+			if(dirty_items[item])
+			{
+				dirty_items[item] = false;
+				if(item < item_results.length && getItemSupport(item) < support_threshold)
+					item_results[item] = null;
+			}
+	}
+	
+	//every frequent item set extends prefix[0..length), which has room for all the items of this tree
+	private void minePatterns(int[] prefix, int length, ItemsetSink sink)
+	{
+		sortHeaderTable();
+		
+		int cantree_root = storage.getRoot();
 		if(this.isSingleBranch(cantree_root))	//if tree contains a single path, then generate all possible combinations as frequent item sets
 		{
-			if(cantree_root.getChildrenCount()==1)	
+			if(storage.getChildrenCount(cantree_root)==1)	
+			{
+				this.genAllCombinations(storage.getChild(cantree_root, 0), prefix, length, sink);	//leave out the root, start with child which has the 1st item	
+				num_of_single_paths.incrementAndGet();
+			}
+		}
+		else
+		{
+			ConditionalPatternBase conditional_pattern_base = new ConditionalPatternBase();	//reused for every header element
+			for(int i=header_table.size()-1; i>=0; i--)
+				if(this.getIndividualItemSupport(header_table.get(i)) >= support_threshold)
+					mineHeaderElement(i, prefix, length, conditional_pattern_base, false, sink);
+		}		
+		cantree_mining_calls.incrementAndGet();
+	}
+	
+	/*
+	 * FPClose/FPMax (see FPTree.minePatternsByFPClose() and FPTree.minePatternsByFPMax()): 
+	 * the conditional pattern bases of the frequent header elements are mined with conditional FP-trees, 
+	 * checking the candidates against the closed/maximal item sets found so far.
+	 */
+	private void mineClosedPatterns(int[] prefix, int length, boolean maximal, ItemsetSink sink)
+	{
+		sortHeaderTable();
+		ItemsetTree results = new ItemsetTree(header_table);
+		
+		int cantree_root = storage.getRoot();
+		if(this.isSingleBranch(cantree_root))
+		{
+			if(storage.getChildrenCount(cantree_root)==1)	
 			{
-				this.genAllCombinations(cantree_root.getChild(0), curr);	//leave out the root, start with child which has the 1st item	
-				num_of_single_paths++;
+				FPTree.mineClosedSinglePath(storage, storage.getChild(cantree_root, 0), support_threshold, prefix, length, results, maximal, sink);
+				num_of_single_paths.incrementAndGet();
 			}
 		}
 		else
 		{
+			ConditionalPatternBase conditional_pattern_base = new ConditionalPatternBase();	//reused for every header element
 			for(int i=header_table.size()-1; i>=0; i--)
 			{
 				FPTreeHeaderElement elmnt = header_table.get(i);
-				int suppt = this.getIndividualItemSupport(elmnt);
-				
-				if(suppt<support_threshold)
+				int supp = this.getIndividualItemSupport(elmnt);
+				if(supp < support_threshold)
 					continue;
 				
-				String itemset = curr + " " + elmnt.getItem() + " : " + suppt;
-				System.out.print(itemset + "\n");	//print frequent item set containing this element
+				prefix[length] = elmnt.getItem();
+				this.getConditionalPatternBase(elmnt, conditional_pattern_base);
+				FPTree.mineClosedConditionalPatternBase(conditional_pattern_base, supp, support_threshold, dictionary, storage, prefix, length+1, results, maximal, sink);
+			}
+		}
+		cantree_mining_calls.incrementAndGet();
+	}
+	
+	/*
+	 * Parallel mining with the selected mining strategy, reports exactly the same item sets (in the same order) as minePatterns().
+	 * 
+	 * The frequent header elements are mined as fork/join tasks in the given pool (work stealing), 
+	 * a large conditional tree is split again into tasks for its own header elements.
+	 * Every task collects its item sets into its own buffer, the buffers are replayed into the sink in the sequential order.
+	 * The CanTree must not be updated while it is mined. FP_CLOSE and FP_MAX are mined sequentially, as their subset checks depend on the mining order.
+	 */
+	public void minePatternsInParallel(String curr, ForkJoinPool pool)
+	{
+		if(mining_strategy == MiningStrategy.FP_CLOSE || mining_strategy == MiningStrategy.FP_MAX)
+		{
+			minePatterns(curr);
+			return;
+		}
+		
+		sortHeaderTable();
+		final String []tokens = FPTree.prefixTokens(curr);
+		final int []prefix = FPTree.prefixBuffer(dictionary, tokens, header_table.size());
+		final ItemsetSink sink = getItemsetSink();
+		sink.startMining(dictionary);
+		pool.invoke(new RecursiveAction() {
+			@Override
+			protected void compute()
+			{
+				mineInParallel(prefix, tokens.length, sink);
+			}
+		});
+		sink.endMining();
+	}
+	
+	//runs inside the fork/join pool
+	private void mineInParallel(int[] prefix, final int length, ItemsetSink sink)
+	{
+		int cantree_root = storage.getRoot();
+		if(this.isSingleBranch(cantree_root))	//a single path is not worth splitting
+		{
+			if(storage.getChildrenCount(cantree_root)==1)	
+			{
+				this.genAllCombinations(storage.getChild(cantree_root, 0), prefix, length, sink);
+				num_of_single_paths.incrementAndGet();
+			}
+		}
+		else
+		{
+			ArrayList<HeaderElementMiningTask> tasks = new ArrayList<HeaderElementMiningTask>();
+			for(int i=header_table.size()-1; i>=0; i--)	//same bottom-up order as the sequential mining
+			{
+				if(this.getIndividualItemSupport(header_table.get(i)) < support_threshold)
+					continue;
 				
-				ArrayList<String> conditional_pattern_base = this.getConditionalPatternBase(elmnt);	//get the conditional pattern base
-				CanTree subtree = new CanTree(conditional_pattern_base, support_threshold);	//create CanTree from this conditional pattern base
-				String pattern = curr + " " + elmnt.getItem();	
-				subtree.minePatterns(pattern);	//recursively mine the subtree
+				final int position = i;
+				final int []task_prefix = Arrays.copyOf(prefix, prefix.length);	//every task extends its own copy of the prefix
+				tasks.add(new HeaderElementMiningTask() {
+					@Override
+					protected void mine(ItemsetSink task_sink)
+					{
+						mineHeaderElement(position, task_prefix, length, new ConditionalPatternBase(), true, task_sink);
+					}
+				});
 			}
-		}		
-		cantree_mining_calls++;
+			HeaderElementMiningTask.invokeInOrder(tasks.toArray(new HeaderElementMiningTask[tasks.size()]), sink);
+		}
+		cantree_mining_calls.incrementAndGet();
+	}
+	
+	//if new elements were added, sort them in the header list
+	private void sortHeaderTable()
+	{
+		if(to_be_sorted)
+		{
+			header_table.sort(new FPTreeHeaderElement.LexicographicComparator(dictionary));
+			to_be_sorted = false;
+		}
+	}
+	
+	/*
+	 * Reports the (frequent) header element at [position] (extending the item set prefix[0..length)) and mines its conditional pattern base,
+	 * all the item sets go to elem_sink. In parallel mode, a large conditional tree is mined in parallel again.
+	 */
+	private void mineHeaderElement(int position, int[] prefix, int length, ConditionalPatternBase cond_pattern_base, boolean parallel, ItemsetSink elem_sink)
+	{
+		FPTreeHeaderElement elmnt = header_table.get(position);
+		prefix[length] = elmnt.getItem();
+		elem_sink.itemset(prefix, length+1, this.getIndividualItemSupport(elmnt));	//report frequent item set containing this element
+		
+		this.getConditionalPatternBase(elmnt, cond_pattern_base);	//get the conditional pattern base
+		if(mining_strategy == MiningStrategy.FP_GROWTH_STAR)
+		{
+			FPTree.mineConditionalPatternBase(cond_pattern_base, support_threshold, dictionary, storage, prefix, length+1, elem_sink, parallel);
+			return;
+		}
+		
+		CanTree subtree = new CanTree(cond_pattern_base, support_threshold, dictionary, storage.newStorage());	//create CanTree from this conditional pattern base
+		if(parallel && subtree.storage.size() >= FPTree.PARALLEL_SPLIT_NODES)
+			subtree.mineInParallel(prefix, length+1, elem_sink);
+		else
+			subtree.minePatterns(prefix, length+1, elem_sink);	//recursively mine the subtree
+		subtree.release();				//conditional tree no longer needed, its storage can be reused
 	}
 	
 	/*
@@ -490,15 +1396,77 @@ public class CanTree {
 	}
 
 	
+	/*
+	 * Top-K mining (see FPTree.minePatternsTopK()): reports the k most frequent item sets with at least min_length items, 
+	 * in descending order of support. The support threshold of the CanTree is the initial threshold.
+	 * Header elements are mined in descending order of support, their conditional pattern bases with conditional FP-trees.
+	 */
+	public void minePatternsTopK(String curr, int k, int min_length)
+	{
+		sortHeaderTable();
+		String []tokens = FPTree.prefixTokens(curr);
+		int []prefix = FPTree.prefixBuffer(dictionary, tokens, header_table.size());
+		int length = tokens.length;
+		TopKItemsets top = new TopKItemsets(k, min_length, support_threshold);
+		
+		int cantree_root = storage.getRoot();
+		if(this.isSingleBranch(cantree_root))
+		{
+			if(storage.getChildrenCount(cantree_root)==1)	
+			{
+				FPTree.topKCombinations(storage, storage.getChild(cantree_root, 0), prefix, length, top);
+				num_of_single_paths.incrementAndGet();
+			}
+		}
+		else
+		{
+			//header positions by descending support: (support, position) packed into a long, sorted ascending and read backwards
+			long []order = new long[header_table.size()];
+			for(int i=0; i<order.length; i++)
+				order[i] = ((long) this.getIndividualItemSupport(header_table.get(i)) << 32) | i;
+			Arrays.sort(order);
+			
+			ConditionalPatternBase conditional_pattern_base = new ConditionalPatternBase();	//reused for every header element
+			for(int n=order.length-1; n>=0; n--)
+			{
+				int supp = (int) (order[n] >>> 32);
+				if(supp < top.getSupportThreshold())
+					break;
+				
+				FPTreeHeaderElement elmnt = header_table.get((int) order[n]);
+				prefix[length] = elmnt.getItem();
+				top.offer(prefix, length+1, supp);
+				this.getConditionalPatternBase(elmnt, conditional_pattern_base);
+				FPTree.mineTopKConditionalPatternBase(conditional_pattern_base, dictionary, storage, prefix, length+1, top);
+			}
+		}
+		cantree_mining_calls.incrementAndGet();
+		
+		ItemsetSink sink = getItemsetSink();
+		sink.startMining(dictionary);
+		top.reportTo(sink);
+		sink.endMining();
+	}
+	
+	/*
+	 * Overloaded method: top-K mining with the given support as the initial threshold (the CanTree keeps it as its support threshold).
+	 */
+	public void minePatternsTopK(String curr, int new_support, int k, int min_length)
+	{
+		support_threshold = new_support;
+		minePatternsTopK(curr, k, min_length);
+	}
+	
 	//For Debugging => Pre-Order traversal of CanTree (node first and then all of its children)
-	public void traverseCanTree(FPTreeNode node, int depth) 
+	public void traverseCanTree(int node, int depth) 
 	{
 		for(int i=0; i<depth; i++)	//tabs printed as per the depth
 			System.out.print("\t");
-		System.out.print("-" + node + "\n");	//print node : its support : no. of children
-		for(int i=0; i<node.getChildrenCount(); i++)
+		String item = (node==storage.getRoot()) ? "root" : dictionary.decode(storage.getItem(node));
+		System.out.print("-" + item + ":" + storage.getFrequency(node) + ":" + storage.getChildrenCount(node) + " \n");	//print node : its support : no. of children
+		for(int i=0; i<storage.getChildrenCount(node); i++)
 		{
-			FPTreeNode tmp = node.getChild(i);
+			int tmp = storage.getChild(node, i);
 			traverseCanTree(tmp, depth+1);	//recursively print its child
 		}
 	}
@@ -508,12 +1476,12 @@ public class CanTree {
 	{
 		for(int i=0; i<header_table.size(); i++)
 		{
-			System.out.print(header_table.get(i).getItem()+": "); //print item
-			FPTreeNode tmp = header_table.get(i).getNodeLink();
-			while(tmp!=null)
+			System.out.print(dictionary.decode(header_table.get(i).getItem())+": "); //print item
+			int tmp = header_table.get(i).getNodeLink();
+			while(tmp!=TreeStorage.NULL_NODE)
 			{
-				System.out.print("-> "+tmp);
-				tmp = tmp.getNextNode();
+				System.out.print("-> "+storage.getFrequency(tmp)+" ");
+				tmp = storage.getNextNode(tmp);
 			}
 			System.out.print("\n");
 		}	
@@ -521,20 +1489,30 @@ public class CanTree {
 	
 
 	public void printFunctionCallStats() {
-		System.out.print("\nDirect CanTree Construction: \t" + cantree_construction_calls);
-		System.out.print("\nConditional CanTree Constructions: \t" + cond_cantree_construction_calls);
-		System.out.print("\nMining Frequent Itemsets calls: \t" + cantree_mining_calls);
-		System.out.print("\nDirect mining from single path calls: \t" + single_path_mining_calls);
-		System.out.print("\nNo. of single path: \t" + num_of_single_paths);
+		System.out.print("\nDirect CanTree Construction: \t" + cantree_construction_calls.get());
+		System.out.print("\nConditional CanTree Constructions: \t" + cond_cantree_construction_calls.get());
+		System.out.print("\nMining Frequent Itemsets calls: \t" + cantree_mining_calls.get());
+		System.out.print("\nDirect mining from single path calls: \t" + single_path_mining_calls.get());
+		System.out.print("\nNo. of single path: \t" + num_of_single_paths.get());
+		System.out.print("\nNodes freed by removals: \t" + freed_nodes.get());
+		System.out.print("\nStorage compactions: \t" + storage_compactions.get());
+		System.out.print("\nHeader elements mined again: \t" + remined_header_elements.get());
+		System.out.print("\nHeader elements reused from the cache: \t" + reused_header_elements.get());
+		System.out.print("\nSnapshots taken: \t" + snapshots_taken.get());
 	}
 	
 	public void refreshFunctionCallStats() {
 		
-		cantree_construction_calls = 0;
-		cond_cantree_construction_calls = 0;
-		cantree_mining_calls = 0;
-		single_path_mining_calls = 0;
-		num_of_single_paths = 0;
+		cantree_construction_calls.set(0);
+		cond_cantree_construction_calls.set(0);
+		cantree_mining_calls.set(0);
+		single_path_mining_calls.set(0);
+		num_of_single_paths.set(0);
+		freed_nodes.set(0);
+		storage_compactions.set(0);
+		remined_header_elements.set(0);
+		reused_header_elements.set(0);
+		snapshots_taken.set(0);
 	}
 	
 	public static void main(String args[]) 
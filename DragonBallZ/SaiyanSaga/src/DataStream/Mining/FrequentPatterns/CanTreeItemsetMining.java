@@ -7,13 +7,12 @@ package DataStream.Mining.FrequentPatterns;
  * Analyze the results and perform necessary actions. 
  */
 
-import com.espertech.esper.client.*;
-
 import java.io.*;
 import java.util.ArrayList;
 import java.util.Arrays;
 
 public class CanTreeItemsetMining extends BaselineItemsetMining {
+	static final int INCREMENTAL_SLIDE_RATIO = 100;	//incremental mining for slides of at most 1/100 of the window
 	
 	private CanTree cantree;
 	
@@ -21,118 +20,148 @@ public class CanTreeItemsetMining extends BaselineItemsetMining {
     {
     	super(filename, window_size, slide_size, supp, tag);	//super constructor of BaselineItemsetMining
     }
+	
+	//frequent item sets of every slide are reported to the given sink (instead of being printed to System.out)
+	public CanTreeItemsetMining(String filename, int window_size, int slide_size, int supp, int tag, ItemsetSink sink)
+    {
+    	super(filename, window_size, slide_size, supp, tag, sink);
+    }
+	
+	//same as above, mining every slide with the given strategy (e.g. FP_CLOSE/FP_MAX for the closed/maximal item sets only)
+	public CanTreeItemsetMining(String filename, int window_size, int slide_size, int supp, int tag, ItemsetSink sink, MiningStrategy strategy)
+    {
+    	super(filename, window_size, slide_size, supp, tag, sink, strategy);
+    }
+	
+	//top-K mode: the top_k most frequent item sets (with at least min_length items) of every slide, supp is the initial support threshold only
+	public CanTreeItemsetMining(String filename, int window_size, int slide_size, int supp, int tag, ItemsetSink sink, int top_k, int min_length)
+    {
+    	super(filename, window_size, slide_size, supp, tag, sink, top_k, min_length);
+    }
 			
 	/*
 	 * Lexicographically sort the items in the input transaction.
 	 * Return the sorted transaction.
+	 * The window itself holds the transactions as item ids in this order (see Transaction.encode()), no text is sorted while streaming.
 	 */
 	public String lexSortTransaction(String transaction)
 	{
-		String output = "";
 		String []tokens = transaction.split("\\s+");
 		Arrays.sort(tokens);
+		StringBuilder output = new StringBuilder(transaction.length() + 1);
 		for(int i=0; i<tokens.length; i++)
-			output += tokens[i] + " ";
+			output.append(tokens[i]).append(' ');
 		
-		return output;
+		return output.toString();
+	}
+	
+	//incremental mining of the CanTree pays off for small slides only (not in top-K mode)
+	private boolean useIncrementalMining()
+	{
+		return top_k == 0 && (long) slide_length * INCREMENTAL_SLIDE_RATIO <= window_length;
 	}
 	
 	/*
-	 * We will override the existing method with only 1 slight change.
-	 * 	- Transactions will be sorted in lexicographic order and then added to the window.
-	 * 	- This will avoid re-sorting of the transaction again, 
-	 * 	  when they are to be removed from the CanTree as the window slides over. 
+	 * Slides merged into the CanTree as one batch (see CanTree.slideCanTree()) if true, transaction by transaction otherwise.
+	 * Batching pays off for streams repeating their transactions only: on sparse data (e.g. T10I4D100K), 
+	 * sorting a slide costs more than the few shared prefixes save.
+	 */
+	protected boolean useBatchedSlides()
+	{
+		return false;
+	}
+	
+	/*
+	 * Pipeline of the CanTree (see BaselineItemsetMining.startPipeline()): the window update stage applies every slide to the live CanTree
+	 * and hands a snapshot of it over to the mining stage (see SnapshotMiner), then goes on with the next slide while the snapshot is mined.
 	 */
 	@Override
-	public void initializeWindow(File file, int start_at, int end_at)
+	protected void startPipeline()
 	{
-		try 
-    	{
-    		FileInputStream fis = new FileInputStream(file);
-    		BufferedReader br = new BufferedReader(new InputStreamReader(fis));
-            String line = null;
-            int line_no = 0;
-            
-            while ((line = br.readLine()) != null) 
-            {
-            	line_no++;
-            	if(line_no < start_at) 
-            		continue;
-            	else if(line_no <= end_at)
-            		window_content.add(lexSortTransaction(line));	//add sorted transaction to the queue at the end
-            	else
-            		break;
-            }	
-            br.close();
-            
-            setWindowLength(end_at-(start_at-1));	//update window length
-    	}
-    	catch(IOException ioe)
-    	{
-    		System.out.println("Error! Cannot initialize window ! "+ioe.toString());
-    	}	
+		if(!usePipeline())
+			return;
+		startOutputStage();
+		
+		final SnapshotMiner miner = new SnapshotMiner() {
+			@Override
+			protected void mine(CanTree snapshot)
+			{
+				CollectingItemsetSink slide_itemsets = new CollectingItemsetSink();
+				snapshot.setItemsetSink(slide_itemsets);
+				mineTree(snapshot);
+				emit(output_stage, slide_itemsets);
+			}
+		};
+		mining_stage = miner;
+		
+		update_stage = new PipelineStage<int[][]>("update", 1) {
+			@Override
+			protected void process(int[][] arrived)
+			{
+				updateWindow(arrived);
+				emit(miner, cantree.snapshot());
+			}
+		};
 	}
 	
 	/*
-     * Overriding original method with one change
-     * - CanTree construction is done after window initialization
+     * The CanTree is constructed from the window once it is initialized (see streamInputData()), sharing its dictionary.
      * The support will be set in the constructor, during class initialization before this method is invoked.
      * But anyways, we will call CanTree support mining by explicitly providing the support value again.
      * 
+     * With small slides, the CanTree mines incrementally (see CanTree.setIncrementalMining()): after a slide, only the header elements
+     * of the items in the removed/added transactions are mined again, the item sets of the others come from the previous slide.
+     * Larger slides touch nearly every frequent item, so caching would only add the cost of the replay.
+     * 
+     * With more than one core, the slides go through the pipeline (see startPipeline()), the time logged for a slide 
+     * is then taken by the output stage, until the slide is written (see SlideListener.slideOutput()).
      */
 	@Override
-    public void streamInputData(EPRuntime cepRT, File file, int start_at, int end_at)
-    {
-    	initializeWindow(file, start_at, end_at);
-    	cantree = new CanTree(file, support_val, start_at, end_at);
-    	generateTransactions(cepRT, file, start_at, end_at);
-    }
-    
-    /*
-     * Overloaded method likewise modified. 
-     */
-	@Override
-    public void streamInputData(EPRuntime cepRT, File file, int window_size)
+    protected void initializeMining(File file, int start_at, int end_at)
     {
-    	initializeWindow(file, 1, window_size);
-    	cantree = new CanTree(file, support_val, 1, window_size);
-    	generateTransactions(cepRT, file, 1, window_size);
+    	cantree = new CanTree(window_content, support_val);
+    	cantree.setItemsetSink(itemset_sink);
+    	cantree.setMiningStrategy(mining_strategy);
+    	cantree.setIncrementalMining(useIncrementalMining());
     }
 	
     @Override
-	public void slideWindow(EventBean[] newData)
+	protected void updateWindow(int[][] arrived)
     { 	
-    	String oldval, newval;
+    	int [][]expired = new int[arrived.length][];	//transactions leaving the window, in the order they entered it
+    	int old_count = Math.min(arrived.length, window_content.size());
+    	for(int i=0; i<arrived.length; i++)
+    		if(i < old_count)
+    			expired[i] = window_content.getTransaction(i);	//copied before the arrived transactions overwrite them
+    		else
+    			expired[i] = arrived[i - old_count];			//slide longer than the window: arrived transactions leaving right away
     	
-    	for(int i=0; i<newData.length; i++)		// scan the new batch of arrived transactions
+    	window_content.slide(arrived);
+    	if(useBatchedSlides())
     	{
-    		String recent_transaction = newData[i].getUnderlying().toString();	//format is {<item_list>=<name of items>}
-    		recent_transaction = recent_transaction.replace("{", "");	//remove braces
-    		recent_transaction = recent_transaction.replace("}", "");
-    		String components[] = recent_transaction.split("=");		//extract only the names of the items
-    		
-    		if(!window_content.isEmpty())
-    			oldval = window_content.poll();					// retrieve and delete the head (first element) of the queue
-    		else
-    			oldval = "";
-    		
-    		if(components.length == 2)
-    			newval = lexSortTransaction(components[1]);		 // proper list of items, sorted in lexicographic order
-    		else
-    			newval = "";									//empty string
-    		
-    		window_content.add(newval);				// add newly arrived list of items, sorted in lexicographic order
-    		
-    		String []olditems = oldval.split("\\s+");
-    		cantree.removeFromCanTree(olditems, 1);				//old prefix removed from CanTree
-    		
-    		String []newitems = newval.split("\\s+");
-    		cantree.insertIntoCanTree(newitems, 1);				//new prefix added into the CanTree	
+    		cantree.slideCanTree(expired, arrived);		//identical old/new prefixes cancel out
+    		return;
     	}
-    	
-    	cantree.minePatterns("", support_val);			//mine frequent patterns from the CanTree
-    	
-    	System.out.println("*** \t *** \t ***");		//window sliding completed   
+    	for(int i=0; i<arrived.length; i++)		//new prefix first: an expired transaction may be one of the arrived ones
+    	{
+    		cantree.insertIntoCanTree(arrived[i], 0, 1);		//new prefix added into the CanTree
+    		cantree.removeFromCanTree(expired[i], 0, 1);		//old prefix removed from CanTree
+    	}
+    }
+    
+    @Override
+    protected void mineCurrentWindow()
+    {
+    	mineTree(cantree);
+    }
+    
+    //mines the frequent patterns of the window (the live CanTree or a snapshot of it) into the item set sink of the tree
+    private void mineTree(CanTree tree)
+    {
+    	if(top_k > 0)
+    		tree.minePatternsTopK("", support_val, top_k, min_length);	//mine the top-K frequent patterns from the CanTree
+    	else
+    		tree.minePatterns("", support_val);			//mine frequent patterns from the CanTree
     }
     
     public static void main(String[] args) throws IOException 
@@ -146,7 +175,8 @@ public class CanTreeItemsetMining extends BaselineItemsetMining {
     	 * 3rd argument: Slide Length
     	 * 4th argument: Support
     	 */
-    		new CanTreeItemsetMining("data/T10I4D100K.dat",20000,5000,1000,i);
+    		CanTreeItemsetMining engine = new CanTreeItemsetMining("data/T10I4D100K.dat",20000,5000,1000,i);
+    		engine.printPipelineStats();		//busy/wait time of the stages, if the slides were pipelined
     	}									
     } 
 } 
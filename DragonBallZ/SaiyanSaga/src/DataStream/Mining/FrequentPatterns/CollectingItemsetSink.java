@@ -0,0 +1,105 @@
+package DataStream.Mining.FrequentPatterns;
+
+/*
+ * Item set sink keeping all the item sets in memory.
+ * 
+ * Description:
+ * - 	Item sets are appended to primitive buffers (items of all item sets one after the other, their ends and supports), 
+ * 		no object is created per item set.
+ * 
+ * -	The collected item sets can be replayed into another sink in the same order (e.g. the output of a parallel mining task).
+ */
+
+import java.util.Arrays;
+
+public class CollectingItemsetSink implements ItemsetSink {
+	private static final int INITIAL_CAPACITY = 64;
+	
+	private int[] items;			//items of all the item sets
+	private int[] ends;				//end (exclusive) of every item set in the items buffer
+	private int[] supports;
+	private int size;
+	private ItemDictionary dictionary;	//dictionary of the last mining run
+	
+	public CollectingItemsetSink()
+	{
+		items = new int[INITIAL_CAPACITY];
+		ends = new int[INITIAL_CAPACITY];
+		supports = new int[INITIAL_CAPACITY];
+		size = 0;
+		dictionary = null;
+	}
+	
+	public void startMining(ItemDictionary dictionary)
+	{
+		this.dictionary = dictionary;
+	}
+	
+	public void itemset(int[] itemset, int length, int support)
+	{
+		int start = (size == 0) ? 0 : ends[size-1];
+		if(start + length > items.length)
+			items = Arrays.copyOf(items, Math.max(start + length, 2 * items.length));
+		if(size == ends.length)
+		{
+			ends = Arrays.copyOf(ends, 2 * ends.length);
+			supports = Arrays.copyOf(supports, 2 * supports.length);
+		}
+		System.arraycopy(itemset, 0, items, start, length);
+		ends[size] = start + length;
+		supports[size] = support;
+		size++;
+	}
+	
+	public void endMining()
+	{
+	}
+	
+	//drops all the collected item sets, the buffers are kept
+	public void clear()
+	{
+		size = 0;
+	}
+	
+	//number of collected item sets
+	public int size()
+	{
+		return size;
+	}
+	
+	//item ids of the ith item set
+	public int[] getItems(int i)
+	{
+		int start = (i == 0) ? 0 : ends[i-1];
+		return Arrays.copyOfRange(items, start, ends[i]);
+	}
+	
+	public int getLength(int i)
+	{
+		return (i == 0) ? ends[0] : ends[i] - ends[i-1];
+	}
+	
+	public int getSupport(int i)
+	{
+		return supports[i];
+	}
+	
+	public ItemDictionary getItemDictionary()
+	{
+		return dictionary;
+	}
+	
+	//hands all the collected item sets over to another sink, in the order they were collected
+	public void replayTo(ItemsetSink sink)
+	{
+		int []itemset = new int[INITIAL_CAPACITY];
+		for(int i=0, start=0; i<size; start=ends[i], i++)
+		{
+			int length = ends[i] - start;
+			if(length > itemset.length)
+				itemset = new int[Math.max(length, 2 * itemset.length)];
+			System.arraycopy(items, start, itemset, 0, length);
+			sink.itemset(itemset, length, supports[i]);
+		}
+	}
+}
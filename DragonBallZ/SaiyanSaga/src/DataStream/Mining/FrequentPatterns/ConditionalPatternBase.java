@@ -0,0 +1,145 @@
+package DataStream.Mining.FrequentPatterns;
+
+/*
+ * Conditional pattern base of a header element, kept in primitive buffers (no strings, no array per prefix).
+ *
+ * Description:
+ * - 	Every prefix path is a range of the positions buffer together with its count.
+ * 		Items are stored as their position in the header table of the source tree (the tree the base is taken from).
+ * 		A path is stored in the order it is traced, i.e. from the immediate parent up to the root.
+ *
+ * -	The frequency of every item in the base is accumulated while the paths are collected,
+ * 		so the conditional tree is created without a first scan over the base.
+ *
+ * -	A base is reset and refilled for every header element of the source tree, the buffers are reused.
+ */
+
+import java.util.Arrays;
+
+public class ConditionalPatternBase {
+	private static final int INITIAL_CAPACITY = 16;
+
+	private int[] positions;			//header positions of all paths, one after the other
+	private int[] path_ends;			//end (exclusive) of every path in the positions buffer
+	private int[] counts;				//count of every path
+	private int path_count;
+	private int length;					//used part of the positions buffer
+	private int current_count;			//count of the path being collected
+
+	private int[] frequencies;			//header position -> frequency of the item in the base
+	private int[] position_items;		//header position -> item id
+	private int position_count;			//size of the header table of the source tree
+
+	public ConditionalPatternBase()
+	{
+		positions = new int[INITIAL_CAPACITY];
+		path_ends = new int[INITIAL_CAPACITY];
+		counts = new int[INITIAL_CAPACITY];
+		frequencies = new int[INITIAL_CAPACITY];
+		position_items = new int[INITIAL_CAPACITY];
+		reset(0);
+	}
+
+	//empties the base, for a source tree whose header table has [header_size] elements
+	public void reset(int header_size)
+	{
+		if(header_size > frequencies.length)
+		{
+			frequencies = new int[header_size];
+			position_items = new int[header_size];
+		}
+		else
+			Arrays.fill(frequencies, 0, position_count, 0);
+		position_count = header_size;
+		path_count = 0;
+		length = 0;
+	}
+
+	//starts collecting a new path, occurring [count] times
+	public void startPath(int count)
+	{
+		current_count = count;
+	}
+
+	//appends an item of the source tree (at header position [position]) to the path being collected
+	public void addItem(int position, int item)
+	{
+		if(length == positions.length)
+			positions = Arrays.copyOf(positions, 2 * positions.length);
+		positions[length++] = position;
+		frequencies[position] += current_count;
+		position_items[position] = item;
+	}
+
+	//completes the path being collected, an empty path is dropped
+	public void endPath()
+	{
+		int start = (path_count == 0) ? 0 : path_ends[path_count-1];
+		if(length == start)
+			return;
+
+		if(path_count == path_ends.length)
+		{
+			path_ends = Arrays.copyOf(path_ends, 2 * path_ends.length);
+			counts = Arrays.copyOf(counts, 2 * counts.length);
+		}
+		path_ends[path_count] = length;
+		counts[path_count] = current_count;
+		path_count++;
+	}
+
+	public boolean isEmpty()
+	{
+		return path_count == 0;
+	}
+
+	//number of paths in the base
+	public int size()
+	{
+		return path_count;
+	}
+
+	public int getPathStart(int path)
+	{
+		return (path == 0) ? 0 : path_ends[path-1];
+	}
+
+	public int getPathEnd(int path)
+	{
+		return path_ends[path];
+	}
+
+	public int getCount(int path)
+	{
+		return counts[path];
+	}
+
+	//the positions buffer, read between getPathStart() and getPathEnd() of a path
+	public int[] getPositions()
+	{
+		return positions;
+	}
+
+	//size of the header table of the source tree
+	public int getPositionCount()
+	{
+		return position_count;
+	}
+
+	public int getFrequency(int position)
+	{
+		return frequencies[position];
+	}
+
+	//drops the item at a header position from the base (its frequency becomes 0), conditional FP-trees built from the base ignore it
+	public void removeItem(int position)
+	{
+		frequencies[position] = 0;
+	}
+
+	//item id at a header position, only valid if its frequency is > 0
+	public int getItem(int position)
+	{
+		return position_items[position];
+	}
+}
@@ -0,0 +1,56 @@
+package DataStream.Mining.FrequentPatterns;
+
+/*
+ * Item set sink discarding the item sets, only their number is kept (e.g. for benchmarks).
+ * The combinations of a single path are counted without being enumerated, the count stops at Long.MAX_VALUE.
+ */
+
+public class CountingItemsetSink implements SinglePathItemsetSink {
+	private long count;			//item sets received since the last reset
+	private long last_run_count;	//item sets received in the last complete mining run
+	private long run_start;
+	
+	public CountingItemsetSink()
+	{
+		reset();
+	}
+	
+	public void reset()
+	{
+		count = 0;
+		last_run_count = 0;
+		run_start = 0;
+	}
+	
+	public long getCount()
+	{
+		return count;
+	}
+	
+	public long getLastRunCount()
+	{
+		return last_run_count;
+	}
+	
+	public void startMining(ItemDictionary dictionary)
+	{
+		run_start = count;
+	}
+	
+	public void itemset(int[] items, int length, int support)
+	{
+		if(count < Long.MAX_VALUE)
+			count++;
+	}
+	
+	public void singlePath(int[] prefix, int length, int[] items, int[] counts, int path_length)
+	{
+		long combinations = SinglePath.combinations(path_length);
+		count = (combinations > Long.MAX_VALUE - count) ? Long.MAX_VALUE : count + combinations;	//saturated, not wrapped
+	}
+	
+	public void endMining()
+	{
+		last_run_count = count - run_start;
+	}
+}
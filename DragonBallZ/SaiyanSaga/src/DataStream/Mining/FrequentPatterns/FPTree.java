@@ -16,77 +16,186 @@ package DataStream.Mining.FrequentPatterns;
  * -	Some additional attributes are added to this FP-tree 
  * 		(which are not present in the original paper) to aid the FP-growth method.  
  * 
+ * -	The FP-growth* strategy is based on the paper:
+ * 		Grahne G, Zhu J (2003) 
+ * 		Efficiently using prefix-trees in mining frequent itemsets. 
+ * 		In: Proceeding of the 2003 FIMI workshop, Melbourne, FL
+ * 
  */
 
 import java.io.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Enumeration;
-import java.util.Hashtable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 public class FPTree {
-	private ArrayList<FPTreeHeaderElement> header_table;
-	private FPTreeNode fptree_root;
+	private FPTreeHeaderTable header_table;
+	private TreeStorage storage;			//nodes of the FP-tree, the root is storage.getRoot()
 	private int support_threshold;
+	private ItemDictionary dictionary;		//item tokens <-> item ids, shared with all the conditional trees
+	private int[] items_frequency;			//support of every item id, counted in the first scan
+	private int[] rank_buffer;				//scratch space for sorting a transaction/prefix by header table position
+	private int[] fp_array;					//FP-array: supports of the pairs of header items, row j holds the items ranked before j (null if not built)
+	private MiningStrategy mining_strategy;
+	private ItemsetSink sink;				//frequent item sets are reported here (null until first used: text lines on System.out)
+	
+	static final int SMALL_PATTERN_BASE = 64;		//FP-growth*: conditional pattern bases with at most this many items are mined without a tree
+	static final int PARALLEL_SPLIT_NODES = 1000;	//parallel mining: conditional trees with at least this many nodes are split into tasks again
 	
-	//performance measurement counters
-	static int fptree_construction_calls = 0;		//FP-tree construction from file
-	static int cond_fptree_construction_calls = 0;	//conditional FP-tree constructions
-	static int fptree_mining_calls = 0;				//FP-tree mining call
-	static int single_path_mining_calls = 0;		//direct mining from single paths
-	static int num_of_single_paths = 0;				//number of single paths encountered
+	//performance measurement counters (shared by the threads of the parallel mining)
+	static final AtomicInteger fptree_construction_calls = new AtomicInteger();		//FP-tree construction from file
+	static final AtomicInteger cond_fptree_construction_calls = new AtomicInteger();	//conditional FP-tree constructions
+	static final AtomicInteger fptree_mining_calls = new AtomicInteger();			//FP-tree mining call
+	static final AtomicInteger single_path_mining_calls = new AtomicInteger();		//direct mining from single paths
+	static final AtomicInteger num_of_single_paths = new AtomicInteger();			//number of single paths encountered
+	static final AtomicInteger skipped_projections = new AtomicInteger();			//FP-growth*: projections skipped, as the FP-array showed no frequent extension
+	static final AtomicInteger subsumed_itemsets = new AtomicInteger();				//FPClose/FPMax: candidates covered by an item set found before
 	
 	public FPTree() 
 	{
-		header_table = new ArrayList<FPTreeHeaderElement>();
-		fptree_root = null;
+		header_table = new FPTreeHeaderTable();
+		storage = null;
 		support_threshold = 0;
+		dictionary = new ItemDictionary();
+		items_frequency = new int[0];
+		rank_buffer = new int[0];
+		fp_array = null;
+		mining_strategy = MiningStrategy.FP_GROWTH;
+		sink = null;
 	}
 	
 	//This is to create the FPTree from an input file containing all the transactions
 	public FPTree(File inputfile, int support)
+	{
+		this(inputfile, support, new FPTreeNodeStorage());
+	}
+	
+	//Same as above, with the nodes kept in the given (empty) storage, e.g. a NodeArena
+	public FPTree(File inputfile, int support, TreeStorage storage)
 	{
 		//initializations
-		this.header_table = new ArrayList<FPTreeHeaderElement>();
-		this.fptree_root = new FPTreeNode();
-		this.support_threshold = support;
+		this(new ItemDictionary(), support, storage);
 		
 		constructFPTree(inputfile);	//from all transactions in the input file
 	}
 	
 	//This is to create the FPTree from an input file with all transactions starting at line no [start_at] and ending at line no [end_at]
 	public FPTree(File inputfile, int support, int start_at, int end_at)
+	{
+		this(inputfile, support, start_at, end_at, new FPTreeNodeStorage());
+	}
+	
+	//Same as above, with the nodes kept in the given (empty) storage, e.g. a NodeArena
+	public FPTree(File inputfile, int support, int start_at, int end_at, TreeStorage storage)
 	{
 		//initializations
-		this.header_table = new ArrayList<FPTreeHeaderElement>();
-		this.fptree_root = new FPTreeNode();
-		this.support_threshold = support;
+		this(new ItemDictionary(), support, storage);
 			
 		constructFPTree(inputfile, start_at, end_at);	//from specific range of transactions in the input file
 	}
 	
-	//This is to create the FPTree from a conditional pattern base
+	//This is to create the FPTree from an input file, both scans are spread over the threads of the pool (see ParallelTransactionScan)
+	public FPTree(File inputfile, int support, TreeStorage storage, ForkJoinPool pool)
+	{
+		this(inputfile, support, 1, Integer.MAX_VALUE, storage, pool);
+	}
+	
+	//Same as above, with the transactions between line no [start_at] and line no [end_at] only
+	public FPTree(File inputfile, int support, int start_at, int end_at, TreeStorage storage, ForkJoinPool pool)
+	{
+		//initializations
+		this(new ItemDictionary(), support, storage);
+		
+		constructFPTree(inputfile, start_at, end_at, pool);
+	}
+	
+	/*
+	 * This is to create the FPTree from an input file with a given header table: the item tokens in header table order, all taken as frequent.
+	 * The file is scanned once (e.g. a shard of a PFP-style mining, whose items are ordered as in the whole database, see ParallelFPGrowth).
+	 */
+	public FPTree(File inputfile, int support, String[] item_order, TreeStorage storage)
+	{
+		//initializations
+		this(new ItemDictionary(), support, storage);
+		
+		constructFPTree(inputfile, item_order);
+	}
+	
+	//This is to create the FPTree from a textual pattern base, each prefix in the format <support>:<space separated item list>
 	public FPTree(ArrayList<String> cond_pattern_base, int support)
 	{
 		//initializations
-		this.header_table = new ArrayList<FPTreeHeaderElement>();
-		this.fptree_root = new FPTreeNode();
-		this.support_threshold = support;
+		this(new ItemDictionary(), support, new FPTreeNodeStorage());
 		
 		constructFPTree(cond_pattern_base);
 	}
 	
-	public FPTreeHeaderElement getHeaderElement(String item) 
+	//This is to create the FPTree from a binary transaction file (see BinaryTransactionFile) containing all the transactions
+	public FPTree(BinaryTransactionFile transactions, int support)
 	{
-		FPTreeHeaderElement ret = null;
-		for(int i=0; i<header_table.size(); i++)
-			if(header_table.get(i).getItem().equals(item))
-			{
-				ret = header_table.get(i);
-				break;
-			}
-		return ret;
+		this(transactions, support, 1, transactions.size(), new FPTreeNodeStorage());
+	}
+	
+	//This is to create the FPTree from a binary transaction file, with the transactions #[start_at] to #[end_at] (line numbers of the text file)
+	public FPTree(BinaryTransactionFile transactions, int support, int start_at, int end_at)
+	{
+		this(transactions, support, start_at, end_at, new FPTreeNodeStorage());
+	}
+	
+	//Same as above, with the nodes kept in the given (empty) storage, e.g. a NodeArena
+	public FPTree(BinaryTransactionFile transactions, int support, int start_at, int end_at, TreeStorage storage)
+	{
+		//initializations
+		this(transactions.getItemDictionary(), support, storage);
+		
+		constructFPTree(transactions, start_at, end_at);
+	}
+	
+	//This is to create the FPTree from the transactions of a sliding window (sharing the dictionary of the window)
+	public FPTree(WindowStore window, int support)
+	{
+		//initializations
+		this(window.getItemDictionary(), support, new FPTreeNodeStorage());
+		
+		constructFPTree(window);
+	}
+	
+	//This is to create the FPTree from a conditional pattern base of another tree (sharing the same dictionary)
+	public FPTree(ConditionalPatternBase cond_pattern_base, int support, ItemDictionary dictionary, TreeStorage storage)
+	{
+		this(cond_pattern_base, support, dictionary, storage, false);
+	}
+	
+	//Same as above, the FP-array is filled during the construction if with_fp_array is true (FP-growth*)
+	public FPTree(ConditionalPatternBase cond_pattern_base, int support, ItemDictionary dictionary, TreeStorage storage, boolean with_fp_array)
+	{
+		//initializations
+		this(dictionary, support, storage);
+		
+		constructConditionalFPTree(cond_pattern_base, with_fp_array);
+	}
+	
+	private FPTree(ItemDictionary dictionary, int support, TreeStorage storage)
+	{
+		this.header_table = new FPTreeHeaderTable();
+		this.storage = storage;
+		this.support_threshold = support;
+		this.dictionary = dictionary;
+		this.items_frequency = new int[0];
+		this.rank_buffer = new int[0];
+		this.fp_array = null;
+		this.mining_strategy = MiningStrategy.FP_GROWTH;
+		this.sink = null;
+	}
+	
+	public FPTreeHeaderElement findHeaderElement(int item) 
+	{
+		return header_table.find(item);		//indexed lookup by item id
 	}
 	
 	public FPTreeHeaderElement getHeaderElement(int i) 
@@ -97,14 +206,25 @@ public class FPTree {
 		return ret;
 	}
 	
-	public ArrayList<FPTreeHeaderElement> getFPTreeHeaderTable()
+	public FPTreeHeaderTable getFPTreeHeaderTable()
 	{
 		return this.header_table;
 	}
 	
-	public FPTreeNode getRoot() 
+	public int getRoot() 
+	{
+		return storage.getRoot();
+	}
+	
+	public TreeStorage getStorage() 
+	{
+		return this.storage;
+	}
+	
+	//gives the nodes back to their storage (pooled arenas are reused), the tree must not be used afterwards
+	public void release() 
 	{
-		return this.fptree_root;
+		storage.release();
 	}
 	
 	public int getSupportThreshold()
@@ -112,18 +232,42 @@ public class FPTree {
 		return this.support_threshold;
 	}
 	
-	//traverses the pointers starting from the node link of the header element to reach the last node containing the item
-	public FPTreeNode getLastFPTreeNode(String item)
+	public MiningStrategy getMiningStrategy()
+	{
+		return this.mining_strategy;
+	}
+	
+	//strategy used by minePatterns() and minePatternsInParallel()
+	public void setMiningStrategy(MiningStrategy mining_strategy)
+	{
+		this.mining_strategy = mining_strategy;
+	}
+	
+	//frequent item sets are printed to System.out as text lines, unless another sink is set here
+	public void setItemsetSink(ItemsetSink sink)
+	{
+		this.sink = sink;
+	}
+	
+	public ItemsetSink getItemsetSink()
+	{
+		if(sink == null)
+			sink = new TextItemsetSink(System.out);
+		return sink;
+	}
+	
+	public ItemDictionary getItemDictionary()
+	{
+		return this.dictionary;
+	}
+	
+	//last node containing the item, as maintained by the header table (no traversal of the node links)
+	public int getLastFPTreeNode(int item)
 	{
-		FPTreeNode fptn = null;
-		FPTreeHeaderElement elem = getHeaderElement(item);
-		if(elem!=null)
-			fptn = elem.getNodeLink();
-		if(fptn!=null)
-			while(fptn.getNextNode()!=null)
-				fptn = fptn.getNextNode();
-							
-		return fptn;
+		FPTreeHeaderElement elem = findHeaderElement(item);
+		if(elem==null)
+			return TreeStorage.NULL_NODE;
+		return elem.getLastNode();
 	}
 	
 	/*
@@ -131,11 +275,9 @@ public class FPTree {
 	 */
 	public void constructFPTree(File inputfile) 
 	{		
-		Hashtable<String, Integer> items_frequency = new Hashtable<String, Integer>();
-		
 		try 
 		{
-			firstScan(inputfile, items_frequency); //fp-tree header table will be created in the first scan
+			firstScan(inputfile); //fp-tree header table will be created in the first scan
 		} 
 		catch(IOException ioe) 
 		{
@@ -145,7 +287,7 @@ public class FPTree {
 		
 		try 
 		{
-			secondScan(inputfile, items_frequency); //fp-tree will be created in the second scan
+			secondScan(inputfile); //fp-tree will be created in the second scan
 		} 
 		catch(IOException ioe) 
 		{
@@ -153,62 +295,246 @@ public class FPTree {
 			System.out.println(ioe.toString());
 		}
 		
-		fptree_construction_calls++;
+		fptree_construction_calls.incrementAndGet();
 	}
 	
 	/*
 	 * Construct FP-Tree from specific range of lines (transaction_ids) in the input file.
+	 * The range is read once (seeking straight to its first line), the encoded transactions are kept for the second scan.
 	 */
 	public void constructFPTree(File inputfile, int start_at, int end_at) 
 	{		
-		Hashtable<String, Integer> items_frequency = new Hashtable<String, Integer>();
+		ArrayList<int[]> transactions = null;
+		try 
+		{
+			transactions = readTransactions(inputfile, start_at, end_at);
+		} 
+		catch(IOException ioe) 
+		{
+			System.out.println("Error! Scan for FPTree construction failed !");
+			System.out.println(ioe.toString());
+			return;
+		}
+		
+		firstScan(transactions); 	//fp-tree header table will be created in the first scan
+		secondScan(transactions); 	//fp-tree will be created in the second scan
 		
+		fptree_construction_calls.incrementAndGet();
+	}
+	
+	/*
+	 * Construct FP-Tree from specific range of lines of the input file, with parallel scans (see ParallelTransactionScan):
+	 * the items are counted chunk by chunk on all the threads of the pool, then every chunk is inserted into a partition tree
+	 * with the header table of this tree, the partition trees are merged into this one (see secondScan()).
+	 */
+	public void constructFPTree(File inputfile, int start_at, int end_at, ForkJoinPool pool) 
+	{		
 		try 
 		{
-			firstScan(inputfile, items_frequency, start_at, end_at); //fp-tree header table will be created in the first scan
+			ParallelTransactionScan scan = new ParallelTransactionScan(inputfile, start_at, end_at, dictionary, pool);
+			firstScan(scan); 	//fp-tree header table will be created in the first scan
+			secondScan(scan); 	//fp-tree will be created in the second scan
 		} 
 		catch(IOException ioe) 
 		{
-			System.out.println("Error! First scan for FPTree construction failed !");
+			System.out.println("Error! Parallel scan for FPTree construction failed !");
 			System.out.println(ioe.toString());
+			return;
 		}
 		
+		fptree_construction_calls.incrementAndGet();
+	}
+	
+	/*
+	 * Construct FP-Tree from all transactions in the file, with the header table given as item tokens (no first scan).
+	 * Items of the transactions missing from item_order are left out.
+	 */
+	public void constructFPTree(File inputfile, String[] item_order) 
+	{		
+		for(int i=0; i<item_order.length; i++)
+			header_table.add(dictionary.encode(item_order[i]));	//FPTree header formed
+		
 		try 
 		{
-			secondScan(inputfile, items_frequency, start_at, end_at); //fp-tree will be created in the second scan
+			secondScan(inputfile); //fp-tree will be created in the only scan
 		} 
 		catch(IOException ioe) 
 		{
-			System.out.println("Error! Second scan for FPTree construction failed !");
+			System.out.println("Error! Scan for FPTree construction failed !");
 			System.out.println(ioe.toString());
+			return;
+		}
+		
+		fptree_construction_calls.incrementAndGet();
+	}
+	
+	/*
+	 * The transactions between lines [start_at] and [end_at] of the input file, encoded,
+	 * in the format of a conditional pattern base: [1, <item ids>...] (each transaction counts once).
+	 */
+	public ArrayList<int[]> readTransactions(File inputfile, int start_at, int end_at) throws IOException
+	{
+		ArrayList<int[]> transactions = new ArrayList<int[]>();
+		TransactionTokenizer tokenizer = new TransactionTokenizer(LineOffsetIndex.streamAt(inputfile, start_at), dictionary);	//seek to line [start_at] (see LineOffsetIndex)
+		int line_no = Math.max(start_at, 1) - 1;
+		
+		while(line_no < end_at && tokenizer.next())
+		{
+			line_no++;
+			int []prefix = new int[tokenizer.size() + 1];
+			prefix[0] = 1;
+			System.arraycopy(tokenizer.getItems(), 0, prefix, 1, tokenizer.size());
+			transactions.add(prefix);
+		}
+		
+		tokenizer.close(); //file reading complete once and for all
+		return transactions;
+	}
+	
+	/*
+	 * Construct FP-Tree from a range of transactions of a binary transaction file.
+	 * Both scans decode the transactions straight from the mapped file, nothing is parsed.
+	 */
+	public void constructFPTree(BinaryTransactionFile transactions, int start_at, int end_at) 
+	{		
+		int last = Math.min(end_at, transactions.size());
+		for(int n=Math.max(start_at, 1); n<=last; n++)		//first scan: fp-tree header table
+		{
+			int len = transactions.read(n);
+			extractItems(transactions.getItems(), 0, len, 1);
+		}
+		createFPTreeHeaderTable();
+		
+		for(int n=Math.max(start_at, 1); n<=last; n++)		//second scan: fp-tree
+		{
+			int len = transactions.read(n);
+			insertIntoFPTree(transactions.getItems(), 0, len, 1);
 		}
 		
-		fptree_construction_calls++;
+		fptree_construction_calls.incrementAndGet();
+	}
+	
+	/*
+	 * Construct FP-Tree from the transactions of a sliding window.
+	 * Both scans go over the buffer of the window, the transactions are neither copied nor parsed.
+	 */
+	public void constructFPTree(WindowStore window) 
+	{		
+		int []items = window.getItems();
+		for(int i=0; i<window.size(); i++)		//first scan: fp-tree header table
+			extractItems(items, window.getStart(i), window.getEnd(i), 1);
+		createFPTreeHeaderTable();
+		
+		for(int i=0; i<window.size(); i++)		//second scan: fp-tree
+			insertIntoFPTree(items, window.getStart(i), window.getEnd(i), 1);
+		
+		fptree_construction_calls.incrementAndGet();
 	}
 	
 	public void constructFPTree(ArrayList<String> cond_pattern_base) 
 	{		
-		Hashtable<String, Integer> items_frequency = new Hashtable<String, Integer>();
+		ArrayList<int[]> encoded_pattern_base = new ArrayList<int[]>();
+		TransactionTokenizer tokenizer = new TransactionTokenizer(dictionary);
+		
+		for(int n=0; n<cond_pattern_base.size(); n++)	//items are encoded once, before the scans
+		{
+			String prefix_line = cond_pattern_base.get(n);
+			int colon = prefix_line.indexOf(':');
+			
+			if(colon < 0 || colon == prefix_line.length() - 1 || prefix_line.indexOf(':', colon + 1) >= 0)	continue;	//error-handling, e.g. an empty transaction
+			
+			int len = tokenizer.tokenize(prefix_line, colon + 1, prefix_line.length());
+			int []prefix = new int[len + 1];
+			prefix[0] = Integer.parseInt(prefix_line.substring(0, colon));	//frequency of occurrence of the prefix
+			System.arraycopy(tokenizer.getItems(), 0, prefix, 1, len);
+			encoded_pattern_base.add(prefix);
+		}
+		
+		firstScan(encoded_pattern_base); 	//fp-tree header table will be created in the first scan
+		secondScan(encoded_pattern_base); 	//fp-tree will be created in the second scan
+		
+		cond_fptree_construction_calls.incrementAndGet();
+	}
+	
+	/*
+	 * Construct FP-Tree from a conditional pattern base. 
+	 * The item frequencies were accumulated while the base was collected, 
+	 * so the header table is created straight away and the paths are inserted in a single pass.
+	 */
+	public void constructConditionalFPTree(ConditionalPatternBase cond_pattern_base) 
+	{
+		constructConditionalFPTree(cond_pattern_base, false);
+	}
+	
+	/*
+	 * Same as above, if with_fp_array is true the FP-array is filled while the paths are inserted:
+	 * for every pair of frequent items (ranked i < j) of a path, fp_array[j*(j-1)/2 + i] is incremented by the path count.
+	 */
+	public void constructConditionalFPTree(ConditionalPatternBase cond_pattern_base, boolean with_fp_array) 
+	{		
+		ArrayList<ItemElement> aie = new ArrayList<ItemElement>();
+		for(int position=0; position<cond_pattern_base.getPositionCount(); position++)
+		{
+			int frequency = cond_pattern_base.getFrequency(position);
+			if(frequency>0 && frequency>=support_threshold)	//ignore items whose frequency is less than support
+				aie.add(new ItemElement(cond_pattern_base.getItem(position), frequency));
+		}
+		createFPTreeHeaderTable(aie);
+		
+		int n_items = header_table.size();
+		if(with_fp_array)
+			fp_array = new int[n_items*(n_items-1)/2];
 		
-		firstScan(cond_pattern_base, items_frequency); 	//fp-tree header table will be created in the first scan
-		secondScan(cond_pattern_base, items_frequency); //fp-tree will be created in the second scan
+		int []positions = cond_pattern_base.getPositions();
+		for(int n=0; n<cond_pattern_base.size(); n++)
+		{
+			int start = cond_pattern_base.getPathStart(n);
+			int end = cond_pattern_base.getPathEnd(n);
+			if(rank_buffer.length < end - start)
+				rank_buffer = new int[end - start];
+			
+			int len = 0;
+			for(int i=start; i<end; i++)
+			{
+				int rank = header_table.getPosition(cond_pattern_base.getItem(positions[i]));
+				if(rank >= 0)	//frequent in the conditional tree
+					rank_buffer[len++] = rank;
+			}
+			insertRanks(len, cond_pattern_base.getCount(n));	//prefix inserted into FPTree, rank_buffer is left sorted
+			
+			if(with_fp_array)
+			{
+				int count = cond_pattern_base.getCount(n);
+				for(int j=1; j<len; j++)
+				{
+					int row = rank_buffer[j]*(rank_buffer[j]-1)/2;
+					for(int i=0; i<j; i++)
+						fp_array[row + rank_buffer[i]] += count;
+				}
+			}
+		}
 		
-		cond_fptree_construction_calls++;
+		cond_fptree_construction_calls.incrementAndGet();
 	}
 	
 	/*
-	 * The following function parses the transaction, extracts the items from it, 
-	 * and then updates the hash table with count.
+	 * The following function takes the encoded items of a transaction (starting at index [start]), 
+	 * and then updates the item frequencies with count.
 	 */
-	public void extractItems(String transaction, int count, Hashtable<String,Integer> items_frequency)
+	public void extractItems(int[] items, int start, int count)
 	{
-		String []items = transaction.split("\\s+");	//scan individual items in the transaction
-    	for(int i=0; i<items.length; i++) 
+		extractItems(items, start, items.length, count);
+	}
+	
+	//same as above, for the items [start, end) only (e.g. a transaction in the buffer of a WindowStore)
+	public void extractItems(int[] items, int start, int end, int count)
+	{
+    	for(int i=start; i<end; i++) 
     	{ 
-    		int freq = count;
-			if(items_frequency.containsKey(items[i])) 			//if this item already encountered before
-				freq = items_frequency.get(items[i]) + count; //increment frequency
-			items_frequency.put(items[i],new Integer(freq)); //update item with new frequency
+    		int item = items[i];
+    		if(item >= items_frequency.length)	//item id not seen so far by this tree
+    			items_frequency = Arrays.copyOf(items_frequency, Math.max(item+1, 2*items_frequency.length));
+    		items_frequency[item] += count;		//update item with new frequency
     	}	
 	}
 	
@@ -217,62 +543,92 @@ public class FPTree {
 	 * we sort the items in descending order of frequencies 
 	 * and create the FPTree header table.
 	 */	
-	public void createFPTreeHeaderTable(Hashtable<String,Integer> items_frequency)
+	public void createFPTreeHeaderTable()
+	{
+		int []order = frequentItemOrder(items_frequency, support_threshold, dictionary);
+		for(int i=0; i<order.length; i++)
+			header_table.add(order[i]);	//FPTree header formed
+	}
+	
+	/*
+	 * Ids of the items with frequency >= support, in the order of the header table of an FPTree
+	 * (descending order of frequencies, ties in token order), also the F-list of ParallelFPGrowth.
+	 */
+	static int[] frequentItemOrder(int[] items_frequency, int support, ItemDictionary dictionary)
 	{
-    	Enumeration<String> e = items_frequency.keys();  //list of all items
         ArrayList<ItemElement> aie = new ArrayList<ItemElement>();  //placeholder to sort the frequent items      
-        while(e.hasMoreElements()) 
+        for(int item=0; item<items_frequency.length; item++) 
         {
-        	String item = (String) e.nextElement();
-        	int frequency = items_frequency.get(item);
-        	if(frequency>=support_threshold)	//ignore items whose frequency is less than support
+        	int frequency = items_frequency[item];
+        	if(frequency>0 && frequency>=support)	//ignore items whose frequency is less than support
         		aie.add(new ItemElement(item,frequency)); 
         }        
-        Collections.sort(aie);  //sorted properly, in descending order of frequencies
-        for(int i=0; i<aie.size(); i++)
-        {
-        	String itm = aie.get(i).getItem();
-        	header_table.add(new FPTreeHeaderElement(itm));
-        } //FPTree header formed
+        return frequencyOrder(aie, dictionary);
+	}
+	
+	//ids of the items, sorted in descending order of frequencies (ties in token order)
+	private static int[] frequencyOrder(ArrayList<ItemElement> aie, ItemDictionary dictionary)
+	{
+        Collections.sort(aie, new ItemElement.FrequencyComparator(dictionary));  //sorted properly, in descending order of frequencies
+        
+        int []order = new int[aie.size()];
+        for(int i=0; i<order.length; i++)
+        	order[i] = aie.get(i).getItem();
+        return order;
+	}
+	
+	//header table created from the frequent items, the position of an item in the header table is its rank
+	private void createFPTreeHeaderTable(ArrayList<ItemElement> aie)
+	{
+		int []order = frequencyOrder(aie, dictionary);
+		for(int i=0; i<order.length; i++)
+			header_table.add(order[i]);	//FPTree header formed
 	}
 	
 	/*
-	 * Following function inserts a prefix into prefix tree/FPTree with the corresponding count.
+	 * Following function inserts a prefix (items starting at index [start]) into prefix tree/FPTree with the corresponding count.
 	 */
-	public void insertIntoFPTree(String prefix, int count, Hashtable<String,Integer> items_frequency)
+	public void insertIntoFPTree(int[] items, int start, int count)
 	{
-		String []items = prefix.split("\\s+");	//scan individual items in the transaction/prefix
-    	ArrayList<ItemElement> aie = new ArrayList<ItemElement>(); //placeholder for sorting the frequent items in a single transaction/prefix
-    	for(int i=0; i<items.length; i++) 
+		insertIntoFPTree(items, start, items.length, count);
+	}
+	
+	//same as above, for the items [start, end) only
+	public void insertIntoFPTree(int[] items, int start, int end, int count)
+	{
+		if(rank_buffer.length < end - start)
+			rank_buffer = new int[end - start];
+		
+		int len = 0;	//frequent items of the transaction/prefix, represented by their position in the header table
+    	for(int i=start; i<end; i++) 
     	{ 
-    		int frequency = items_frequency.get(items[i]);
-			if(frequency>=support_threshold) 
-				aie.add(new ItemElement(items[i],frequency));
+    		int rank = header_table.getPosition(items[i]);
+			if(rank >= 0) 	//frequent item
+				rank_buffer[len++] = rank;
     	}
-    	Collections.sort(aie); 	//prefix is sorted, we will now add it to the FPTree 
+    	insertRanks(len, count);
+	}
+	
+	/*
+	 * Inserts the prefix held in rank_buffer[0..len) (header table positions of its frequent items) with the corresponding count.
+	 */
+	private void insertRanks(int len, int count)
+	{
+    	Arrays.sort(rank_buffer, 0, len); 	//prefix is sorted in header table order, we will now add it to the FPTree 
     	
-    	FPTreeNode tmp = fptree_root;	
-    	for(int i=0; i<aie.size(); i++)	//adding the prefix in FPTree now
+    	int tmp = storage.getRoot();	
+    	if(len > 0)
+    		storage.incrementFrequency(tmp, count);	//increment support of the root
+    	for(int i=0; i<len; i++)	//adding the prefix in FPTree now
     	{
-    		String f_item = aie.get(i).getItem();	//get the frequent item
-    		tmp.incrementFrequency(count);	//increment support of parent
-    		if(tmp.isChild(f_item)==false) //if child not present, add it & update the node links from the header table
-    		{
-    			FPTreeNode new_child = tmp.addChild(f_item,0);	//child added
-    			FPTreeNode last_node = getLastFPTreeNode(f_item);
-    			if(last_node==null)	//first time this item is encountered
-    			{
-    				FPTreeHeaderElement hdrelem = getHeaderElement(f_item);
-    				if(hdrelem!=null)
-    					hdrelem.setNodeLink(new_child);
-    			}
-    			else
-    				last_node.setNextNode(new_child);	//pointers updated, new child pointed by next node pointer
-    		}
-    		tmp = tmp.getChild(f_item);       		
+    		FPTreeHeaderElement hdrelem = header_table.get(rank_buffer[i]);
+    		int f_item = hdrelem.getItem();	//get the frequent item
+    		int children_count = storage.getChildrenCount(tmp);
+    		int child = storage.findOrAddChild(tmp, f_item, count);	//child found or added, its frequency incremented by count
+    		if(storage.getChildrenCount(tmp) != children_count) 	//if child was not present, update the node links from the header table
+    			header_table.appendNodeLink(hdrelem, child, storage);	//new child appended to the node links in O(1)
+    		tmp = child;       		
     	}
-    	if(tmp.getItem().equals("root")==false)
-    		tmp.incrementFrequency(count);	//increment frequency of the last child
 	}
 	
 	/* 	
@@ -282,123 +638,334 @@ public class FPTree {
 	 * no transaction id is provided 
 	 * The FPTree header table will be created in this scan
 	*/	
-	public void firstScan(File inputfile, Hashtable<String,Integer> items_frequency) throws IOException
+	public void firstScan(File inputfile) throws IOException
 	{       
-		BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(inputfile)));
-        String transaction = null;
+		TransactionTokenizer tokenizer = new TransactionTokenizer(new FileInputStream(inputfile), dictionary);
                 
-        while((transaction = br.readLine()) != null) //read input file (transaction database)
-        	extractItems(transaction, 1, items_frequency);
+        while(tokenizer.next()) //read input file (transaction database)
+        	extractItems(tokenizer.getItems(), 0, tokenizer.size(), 1);	//items are encoded as soon as they are read, no Strings (see TransactionTokenizer)
         
-        br.close(); //file reading complete
+        tokenizer.close(); //file reading complete
         
-        createFPTreeHeaderTable(items_frequency);       
+        createFPTreeHeaderTable();       
 	}
 
 	//overloaded method - file reading done between lines [start_at] and [end_at]
-	public void firstScan(File inputfile, Hashtable<String,Integer> items_frequency, int start_at, int end_at) throws IOException
+	public void firstScan(File inputfile, int start_at, int end_at) throws IOException
 	{       
-		BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(inputfile)));
-        String transaction = null;
-        int line_no = 0;
+		TransactionTokenizer tokenizer = new TransactionTokenizer(LineOffsetIndex.streamAt(inputfile, start_at), dictionary);	//seek to line [start_at] (see LineOffsetIndex)
+        int line_no = Math.max(start_at, 1) - 1;
         
-        while((transaction = br.readLine()) != null) //read input file (transaction database) from lines [start_at] & [end_at] (both inclusive)
+        while(line_no < end_at && tokenizer.next()) //read input file (transaction database) from lines [start_at] & [end_at] (both inclusive)
         {
         	line_no++;
-        	if(line_no < start_at)
-        		continue;
-        	else if(line_no <= end_at)
-        		extractItems(transaction, 1, items_frequency);
-        	else
-        		break;       	
+        	extractItems(tokenizer.getItems(), 0, tokenizer.size(), 1);
         }
         
-        br.close(); //file reading complete
+        tokenizer.close(); //file reading complete
         
-        createFPTreeHeaderTable(items_frequency);       
+        createFPTreeHeaderTable();       
+	}
+	//overloaded method - the items of the chunks of the file are counted in parallel (see ParallelTransactionScan)
+	public void firstScan(ParallelTransactionScan scan) throws IOException
+	{
+		int []counts = scan.countItems();
+		if(items_frequency.length < counts.length)
+			items_frequency = Arrays.copyOf(items_frequency, counts.length);
+		for(int item=0; item<counts.length; item++)
+			items_frequency[item] += counts[item];
+		
+		createFPTreeHeaderTable();
 	}
+	
 	/*
 	 * second scan of transactions will create the FPTree and update the pointers in the FPTree header table.
 	 */
-	public void secondScan(File inputfile, Hashtable<String,Integer> items_frequency) throws IOException
+	public void secondScan(File inputfile) throws IOException
 	{       
-		BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(inputfile)));
-        String transaction = null;
+		TransactionTokenizer tokenizer = new TransactionTokenizer(new FileInputStream(inputfile), dictionary);
                 
-        while((transaction = br.readLine()) != null) //read input file (transaction DB) again
-        	insertIntoFPTree(transaction, 1, items_frequency);
+        while(tokenizer.next()) //read input file (transaction DB) again
+        	insertIntoFPTree(tokenizer.getItems(), 0, tokenizer.size(), 1);
         
-        br.close(); //file reading complete once and for all
+        tokenizer.close(); //file reading complete once and for all
 	}
 	
 	//overloaded method, reading specific range of lines from the input file.
-	public void secondScan(File inputfile, Hashtable<String,Integer> items_frequency, int start_at, int end_at) throws IOException
+	public void secondScan(File inputfile, int start_at, int end_at) throws IOException
 	{       
-		BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(inputfile)));
-        String transaction = null;
-        int line_no = 0;
+		TransactionTokenizer tokenizer = new TransactionTokenizer(LineOffsetIndex.streamAt(inputfile, start_at), dictionary);	//seek to line [start_at] (see LineOffsetIndex)
+        int line_no = Math.max(start_at, 1) - 1;
         
-        while((transaction = br.readLine()) != null) //read input file (transaction DB) again, only the specific range of lines
+        while(line_no < end_at && tokenizer.next()) //read input file (transaction DB) again, only the specific range of lines
         {
         	line_no++;
-        	if(line_no < start_at)
-        		continue;
-        	else if(line_no <= end_at)
-        		insertIntoFPTree(transaction, 1, items_frequency);
-        	else 
-        		break;
+        	insertIntoFPTree(tokenizer.getItems(), 0, tokenizer.size(), 1);
         }
         
-        br.close(); //file reading complete once and for all
+        tokenizer.close(); //file reading complete once and for all
+	}
+		
+	/*
+	 * overloaded method - the chunks of the file are inserted in parallel, every chunk into a partition tree of its own
+	 * with the same header table (so the same item order), the partition trees are merged pairwise as the tasks join (see merge()).
+	 * The first chunks are inserted into this tree straight away.
+	 */
+	public void secondScan(ParallelTransactionScan scan) throws IOException
+	{
+		try
+		{
+			scan.getPool().invoke(new PartitionTask(scan, 0, scan.getChunkCount(), this));
+		}
+		catch(RuntimeException re)		//IOException of a partition task
+		{
+			for(Throwable cause = re; cause != null; cause = cause.getCause())
+				if(cause instanceof IOException)
+					throw (IOException) cause;
+			throw re;
+		}
+	}
+	
+	//builds the tree of the chunks [from, to) of the scan, into the given tree (null for a new partition tree)
+	private class PartitionTask extends RecursiveTask<FPTree> {
+		private static final long serialVersionUID = 1L;
+		
+		private ParallelTransactionScan scan;
+		private int from;
+		private int to;
+		private FPTree tree;
+		
+		PartitionTask(ParallelTransactionScan scan, int from, int to, FPTree tree)
+		{
+			this.scan = scan;
+			this.from = from;
+			this.to = to;
+			this.tree = tree;
+		}
+		
+		@Override
+		protected FPTree compute()
+		{
+			if(to - from > 1)
+			{
+				int middle = (from + to) >>> 1;
+				PartitionTask right = new PartitionTask(scan, middle, to, null);
+				right.fork();
+				FPTree left_tree = new PartitionTask(scan, from, middle, tree).compute();
+				FPTree right_tree = right.join();
+				left_tree.merge(right_tree);
+				right_tree.release();
+				return left_tree;
+			}
+			
+			FPTree partition = (tree != null) ? tree : newPartitionTree();
+			if(from == to)
+				return partition;
+			try
+			{
+				TransactionTokenizer tokenizer = scan.openChunk(from);
+				while(tokenizer.next())
+					partition.insertIntoFPTree(tokenizer.getItems(), 0, tokenizer.size(), 1);
+				tokenizer.close();
+			}
+			catch(IOException ioe)
+			{
+				throw new RuntimeException(ioe);	//thrown again by secondScan()
+			}
+			return partition;
+		}
+	}
+	
+	//empty tree with the header table of this one (same items, same order), its nodes in a storage of the same kind
+	private FPTree newPartitionTree()
+	{
+		FPTree partition = new FPTree(dictionary, support_threshold, storage.newUnpooledStorage());
+		for(int i=0; i<header_table.size(); i++)
+			partition.header_table.add(header_table.get(i).getItem());
+		return partition;
+	}
+	
+	/*
+	 * Merges the other tree into this one (the other tree is left as it is), both encoding their items with the same dictionary.
+	 * The counts of both trees are summed, the item supports (items_frequency) as well.
+	 * 
+	 * If the items of the other tree are in the order of this header table (e.g. partition trees built with the same header table),
+	 * the trees are merged recursively node by node: the counts of the matching children are summed, the other children are added
+	 * and appended to the node-links of this tree. Otherwise (e.g. trees of two slides, ordered by their own frequencies),
+	 * a header table of the items of both trees is ranked by their summed supports, and the paths of both trees are inserted again
+	 * into a new storage of the same kind (which replaces the storage of this tree, the old one is released).
+	 * 
+	 * Both trees must be built with support 1 (e.g. new FPTree(file, 1, start_at, end_at)), the merged tree is then mined
+	 * with the support of the merged window (see minePatternsByFPGrowth(curr, support_val)). A tree built with a higher support
+	 * has left its infrequent items out, with their counts along the paths: they cannot be restored from the item counts alone.
+	 * If such an item is frequent in the merged tree (e.g. two window halves built with the support of the window),
+	 * an IllegalArgumentException is thrown instead of merging into a tree missing its item sets.
+	 * Trees sharing one header table computed over all their transactions (e.g. partition trees) may use any support.
+	 */
+	public void merge(FPTree other)
+	{
+		if(other == this || other.dictionary != dictionary)
+			throw new IllegalArgumentException("FP-trees can only be merged with another tree of the same item dictionary");
+		checkDroppedItems(other);
+		
+		if(hasItemOrderOf(other))
+		{
+			int root = storage.getRoot();
+			int other_root = other.storage.getRoot();
+			storage.incrementFrequency(root, other.storage.getFrequency(other_root));
+			mergeChildren(root, other, other_root);
+		}
+		else
+			rebuildWith(other);
+		
+		if(items_frequency.length < other.items_frequency.length)
+			items_frequency = Arrays.copyOf(items_frequency, other.items_frequency.length);
+		for(int item=0; item<other.items_frequency.length; item++)
+			items_frequency[item] += other.items_frequency[item];
+		fp_array = null;	//pair supports of this tree only
 	}
+	
+	//throws if an item frequent in the merged tree was left out of the header table of one of the trees
+	private void checkDroppedItems(FPTree other)
+	{
+		int items = Math.max(items_frequency.length, other.items_frequency.length);
+		for(int item=0; item<items; item++)
+		{
+			int frequency = (item < items_frequency.length) ? items_frequency[item] : 0;
+			int other_frequency = (item < other.items_frequency.length) ? other.items_frequency[item] : 0;
+			if(frequency + other_frequency < support_threshold)
+				continue;
+			if((frequency > 0 && header_table.getPosition(item) < 0) || (other_frequency > 0 && other.header_table.getPosition(item) < 0))
+				throw new IllegalArgumentException("Item " + dictionary.decode(item) + " is frequent in the merged FP-tree, but was left out of one of the trees as infrequent");
+		}
+	}
+	
+	/*
+	 * The items of both header tables, ranked by their summed supports (items below the support threshold of this tree are left out),
+	 * the paths of this tree and of the other one are inserted again in this order.
+	 */
+	private void rebuildWith(FPTree other)
+	{
+		ArrayList<ItemElement> aie = new ArrayList<ItemElement>();
+		for(int i=0; i<header_table.size(); i++)
+		{
+			FPTreeHeaderElement elem = header_table.get(i);
+			FPTreeHeaderElement other_elem = other.header_table.find(elem.getItem());
+			int frequency = getIndividualItemSupport(elem) + ((other_elem == null) ? 0 : other.getIndividualItemSupport(other_elem));
+			if(frequency >= support_threshold)
+				aie.add(new ItemElement(elem.getItem(), frequency));
+		}
+		for(int i=0; i<other.header_table.size(); i++)
+		{
+			FPTreeHeaderElement other_elem = other.header_table.get(i);
+			if(header_table.find(other_elem.getItem()) != null)
+				continue;	//counted above
+			int frequency = other.getIndividualItemSupport(other_elem);
+			if(frequency >= support_threshold)
+				aie.add(new ItemElement(other_elem.getItem(), frequency));
+		}
+		
+		FPTree merged = new FPTree(dictionary, support_threshold, storage.newUnpooledStorage());
+		merged.createFPTreeHeaderTable(aie);
+		merged.insertPaths(this, storage.getRoot(), new int[getDepth(storage.getRoot())], 0);
+		merged.insertPaths(other, other.storage.getRoot(), new int[other.getDepth(other.storage.getRoot())], 0);
 		
+		storage.release();
+		storage = merged.storage;
+		header_table = merged.header_table;
+	}
+	
+	//true if every item of the header table of the other tree is in this header table, in the same order
+	private boolean hasItemOrderOf(FPTree other)
+	{
+		int last = -1;
+		for(int i=0; i<other.header_table.size(); i++)
+		{
+			int position = header_table.getPosition(other.header_table.get(i).getItem());
+			if(position <= last)
+				return false;
+			last = position;
+		}
+		return true;
+	}
+	
+	//recursive merge of the children of other_node (in the other tree) into the children of node
+	private void mergeChildren(int node, FPTree other, int other_node)
+	{
+		TreeStorage other_storage = other.storage;
+		for(int i=0; i<other_storage.getChildrenCount(other_node); i++)
+		{
+			int other_child = other_storage.getChild(other_node, i);
+			int item = other_storage.getItem(other_child);
+			int children_count = storage.getChildrenCount(node);
+			int child = storage.findOrAddChild(node, item, other_storage.getFrequency(other_child));	//counts summed
+			if(storage.getChildrenCount(node) != children_count) 	//new child, stitched into the node links of this tree
+				header_table.appendNodeLink(header_table.find(item), child, storage);
+			mergeChildren(child, other, other_child);
+		}
+	}
+	
+	//number of nodes on the longest path below the node (a path may repeat an item, if a transaction does)
+	private int getDepth(int node)
+	{
+		int depth = 0;
+		for(int i=0; i<storage.getChildrenCount(node); i++)
+			depth = Math.max(depth, 1 + getDepth(storage.getChild(node, i)));
+		return depth;
+	}
+	
+	//inserts the paths of the subtree of other_node (path[0..depth) leads to it), each with the count of the transactions ending there
+	private void insertPaths(FPTree other, int other_node, int[] path, int depth)
+	{
+		TreeStorage other_storage = other.storage;
+		int ending = other_storage.getFrequency(other_node);
+		for(int i=0; i<other_storage.getChildrenCount(other_node); i++)
+		{
+			int other_child = other_storage.getChild(other_node, i);
+			ending -= other_storage.getFrequency(other_child);
+			path[depth] = other_storage.getItem(other_child);
+			insertPaths(other, other_child, path, depth+1);
+		}
+		if(depth > 0 && ending > 0)
+			insertIntoFPTree(path, 0, depth, ending);
+	}
+	
 	/* 	
 	 * first scan of transactions entered as prefixes (conditional patter base).
-	 * each prefix is in the format <support>:<space separated item list>
+	 * each prefix is in the format [<support>, <item ids>...]
 	*/	
-	public void firstScan(ArrayList<String> cond_pattrn_base, Hashtable<String,Integer> items_frequency)
+	public void firstScan(ArrayList<int[]> cond_pattrn_base)
 	{       
 		for(int n=0; n<cond_pattrn_base.size(); n++)
 		{
-			String prefx = cond_pattrn_base.get(n);
-			String []tokens = prefx.split(":");
-			
-			if(tokens.length != 2)	return;	//error-handling
-			
-			int count = Integer.parseInt(tokens[0]);	//frequency of occurrence of the prefix
-			String pattern = tokens[1];					//get the actual pattern			
-			extractItems(pattern, count, items_frequency);			
-		}													//conditional pattern base completely traversed             
-		createFPTreeHeaderTable(items_frequency);	//FPTree header table created
+			int []prefx = cond_pattrn_base.get(n);
+			extractItems(prefx, 1, prefx[0]);		//prefx[0] is the frequency of occurrence of the prefix
+		}											//conditional pattern base completely traversed             
+		createFPTreeHeaderTable();	//FPTree header table created
 	}	
 
 	/* second scan of transactions entered as conditional pattern base 
 	 * will create the FPTree and update the pointers in the FPTree header table.
 	 */
-	public void secondScan(ArrayList<String> cond_pattrn_base, Hashtable<String,Integer> items_frequency)
+	public void secondScan(ArrayList<int[]> cond_pattrn_base)
 	{       
 		for(int n=0; n<cond_pattrn_base.size(); n++)
 		{
-			String prefx = cond_pattrn_base.get(n);
-			String []tokens = prefx.split(":");			
-			
-			if(tokens.length != 2)	return;	//error-handling
-			
-			int count = Integer.parseInt(tokens[0]);			//frequency of occurrence of the prefix
-			String pattern = tokens[1];							//get the actual pattern				
-			insertIntoFPTree(pattern, count, items_frequency);	//prefix inserted into FPTree
+			int []prefx = cond_pattrn_base.get(n);
+			insertIntoFPTree(prefx, 1, prefx[0]);	//prefix inserted into FPTree
 		}   
 	}	
 	
 	//For Debugging => Pre-Order traversal of FPTree (node first and then all of its children)
-	public void traverseFPTree(FPTreeNode node, int depth) 
+	public void traverseFPTree(int node, int depth) 
 	{
 		for(int i=0; i<depth; i++)	//tabs printed as per the depth
 			System.out.print("\t");
-		System.out.print("-" + node + "\n");	//print node : its support : no. of children
-		for(int i=0; i<node.getChildrenCount(); i++)
+		String item = (node==storage.getRoot()) ? "root" : dictionary.decode(storage.getItem(node));
+		System.out.print("-" + item + ":" + storage.getFrequency(node) + ":" + storage.getChildrenCount(node) + " \n");	//print node : its support : no. of children
+		for(int i=0; i<storage.getChildrenCount(node); i++)
 		{
-			FPTreeNode tmp = node.getChild(i);
+			int tmp = storage.getChild(node, i);
 			traverseFPTree(tmp, depth+1);	//recursively print its child
 		}
 	}
@@ -408,23 +975,23 @@ public class FPTree {
 	{
 		for(int i=0; i<header_table.size(); i++)
 		{
-			System.out.print(header_table.get(i).getItem()+": "); //print item
-			FPTreeNode tmp = header_table.get(i).getNodeLink();
-			while(tmp!=null)
+			System.out.print(dictionary.decode(header_table.get(i).getItem())+": "); //print item
+			int tmp = header_table.get(i).getNodeLink();
+			while(tmp!=TreeStorage.NULL_NODE)
 			{
-				System.out.print("-> "+tmp);
-				tmp = tmp.getNextNode();
+				System.out.print("-> "+storage.getFrequency(tmp)+" ");
+				tmp = storage.getNextNode(tmp);
 			}
 			System.out.print("\n");
 		}	
 	}
 	
 	//following function returns true, if a given node and its descendants form a single branch
-	public boolean isSingleBranch(FPTreeNode fptn)
+	public boolean isSingleBranch(int fptn)
 	{
 		int child_cnt;
-		while((child_cnt = fptn.getChildrenCount()) == 1)
-			fptn = fptn.getChild(0); //get the first and only child
+		while((child_cnt = storage.getChildrenCount(fptn)) == 1)
+			fptn = storage.getChild(fptn, 0); //get the first and only child
 		if(child_cnt>0)		//if the last node has more than 1 children, then not a single path
 			return false;
 		else
@@ -433,69 +1000,104 @@ public class FPTree {
 	
 	/* 
 	 * Generate all possible combinations as frequent items from a single path
-	 * E.g. a:3 -> b:2 -> c:1 will yield a:3, b:2, c:1, ab:2, ac:1, bc:1, abc:1 (2^n -1 items for n item path)
+	 * E.g. a:3 -> b:2 -> c:1 will yield a:3, b:2, ab:2, c:1, ac:1, bc:1, abc:1 (2^n -1 items for n item path)
 	 */	
-	public void genAllCombinations(FPTreeNode fptn, String curr)
+	public void genAllCombinations(int fptn, String curr)
 	{
-		String prev = curr;
-		curr = prev + " " + fptn.getItem();
-		System.out.print(curr + " : " + fptn.getFrequency() + "\n");	//print combination with support
-		if(fptn.getChildrenCount()==1)
-		{
-			genAllCombinations(fptn.getChild(0), prev);		//combinations not including the item at this index
-			genAllCombinations(fptn.getChild(0), curr);		//combinations including the item at this index
-		}
-		
-		single_path_mining_calls++;
+		String []tokens = prefixTokens(curr);
+		int []prefix = prefixBuffer(dictionary, tokens, header_table.size());
+		ItemsetSink sink = getItemsetSink();
+		sink.startMining(dictionary);
+		genAllCombinations(fptn, prefix, tokens.length, support_threshold, sink);
+		sink.endMining();
+	}
+	
+	//combinations extending the item set prefix[0..length), enumerated by SinglePath over the part of the path frequent as per [support]
+	private void genAllCombinations(int fptn, int[] prefix, int length, int support, ItemsetSink sink)
+	{
+		SinglePath.mine(storage, fptn, support, prefix, length, sink);
+		single_path_mining_calls.incrementAndGet();
 	}
 	
 	/*
-	 * Trace the prefix from its immediate parent to the root (containing all the items separated by space).
-	 * Also include its support. The returned string will be in the format <support>:<prefix>
+	 * Trace the prefix from its immediate parent to the root (containing all the item ids).
+	 * Also include its support. The returned array will be in the format [<support>, <prefix>...]
 	 */
-	public String getPrefixEndingWith(FPTreeNode fptn)
+	public int[] getPrefixEndingWith(int fptn)
 	{
-		String prefix = fptn.getFrequency()+":" ;	//colon as delimiter between support and prefix (list of items separated by space)
-		String tmp;
+		int root = storage.getRoot();
+		int tmp = storage.getParent(fptn);	
 		
-		fptn = fptn.getParent();	
-		tmp = fptn.getItem();
-		
-		if(tmp.equals("root"))
+		if(tmp==root)
 			return null;
 		
-		while(fptn != null && !(tmp.equals("root")))
+		int len = 1;	//first slot holds the support
+		for(int anc = tmp; anc!=root; anc = storage.getParent(anc))
+			len++;
+		
+		int []prefix = new int[len];
+		prefix[0] = storage.getFrequency(fptn);
+		for(int i=1; i<len; i++)
 		{
-			prefix = prefix + tmp + " ";
-			fptn = fptn.getParent();
-			tmp = fptn.getItem();
+			prefix[i] = storage.getItem(tmp);
+			tmp = storage.getParent(tmp);
 		}		
 		return prefix;
 	}
 	
 	/* 
 	 * For a given header element, form its conditional pattern base by getting all its possible prefixes.
-	 * Return all the prefixes in a array list.
+	 * The prefixes are traced into the (reset) base cond_patt_base, along with the frequency of their items.
 	 */
-	public ArrayList<String> getConditionalPatternBase(FPTreeHeaderElement elem) 
+	public void getConditionalPatternBase(FPTreeHeaderElement elem, ConditionalPatternBase cond_patt_base) 
 	{
-		ArrayList<String> cond_patt_base;
-		FPTreeNode fptn = elem.getNodeLink();
-		
-		if(fptn==null)	
-			return null;
-		else
-			cond_patt_base = new ArrayList<String>();
+		cond_patt_base.reset(header_table.size());
+		int root = storage.getRoot();
 		
-		while(fptn!=null)
+		for(int fptn = elem.getNodeLink(); fptn!=TreeStorage.NULL_NODE; fptn = storage.getNextNode(fptn))
 		{
-			String prefix = getPrefixEndingWith(fptn);
-			if(prefix!=null)
-				cond_patt_base.add(prefix);
-			fptn = fptn.getNextNode();
+			cond_patt_base.startPath(storage.getFrequency(fptn));
+			for(int anc = storage.getParent(fptn); anc!=root; anc = storage.getParent(anc))	//from the immediate parent up to the root
+			{
+				int item = storage.getItem(anc);
+				cond_patt_base.addItem(header_table.getPosition(item), item);
+			}
+			cond_patt_base.endPath();
 		}
+	}
+	
+	/*
+	 * FP-growth*: conditional pattern base of the header element at position [rank], 
+	 * only the items frequent together with the header element (as per the FP-array) are traced into the base.
+	 */
+	private void getConditionalPatternBase(FPTreeHeaderElement elem, int rank, ConditionalPatternBase cond_patt_base) 
+	{
+		cond_patt_base.reset(rank);		//ancestors are always ranked before the header element
+		int root = storage.getRoot();
+		int row = rank*(rank-1)/2;
 		
-		return cond_patt_base;
+		for(int fptn = elem.getNodeLink(); fptn!=TreeStorage.NULL_NODE; fptn = storage.getNextNode(fptn))
+		{
+			cond_patt_base.startPath(storage.getFrequency(fptn));
+			for(int anc = storage.getParent(fptn); anc!=root; anc = storage.getParent(anc))
+			{
+				int item = storage.getItem(anc);
+				int position = header_table.getPosition(item);
+				if(fp_array[row + position] >= support_threshold)
+					cond_patt_base.addItem(position, item);
+			}
+			cond_patt_base.endPath();
+		}
+	}
+	
+	//FP-growth*: true if some item ranked before [rank] is frequent together with the header element at [rank]
+	private boolean hasFrequentExtension(int rank)
+	{
+		int row = rank*(rank-1)/2;
+		for(int i=0; i<rank; i++)
+			if(fp_array[row + i] >= support_threshold)
+				return true;
+		return false;
 	}
 	
 	/*
@@ -505,12 +1107,12 @@ public class FPTree {
 	public int getIndividualItemSupport(FPTreeHeaderElement elem) 
 	{		
 		int supp=0;
-		FPTreeNode fptn = elem.getNodeLink();
+		int fptn = elem.getNodeLink();
 		
-		while(fptn!=null)
+		while(fptn!=TreeStorage.NULL_NODE)
 		{
-			supp += fptn.getFrequency();
-			fptn = fptn.getNextNode();
+			supp += storage.getFrequency(fptn);
+			fptn = storage.getNextNode(fptn);
 		}
 		
 		return supp ;
@@ -518,38 +1120,62 @@ public class FPTree {
 	
 	/*
 	 * This is the main FP-Growth method.
-	 * Frequent Item sets with their respective supports will be printed through this method.
+	 * Frequent Item sets with their respective supports will be reported to the item set sink through this method.
 	 * The frequent item sets mined from the FPTree will have support 
 	 * greater than or equal to the default support threshold of the FPTree.
 	 */
 	public void minePatternsByFPGrowth(String curr)
 	{
+		String []tokens = prefixTokens(curr);
+		int []prefix = prefixBuffer(dictionary, tokens, header_table.size());
+		ItemsetSink sink = getItemsetSink();
+		sink.startMining(dictionary);
+		minePatternsByFPGrowth(prefix, tokens.length, sink);
+		sink.endMining();
+	}
+	
+	//FP-growth, every frequent item set extends prefix[0..length), which has room for all the items of this tree
+	private void minePatternsByFPGrowth(int[] prefix, int length, ItemsetSink sink)
+	{
+		int fptree_root = storage.getRoot();
 		if(this.isSingleBranch(fptree_root))	//if tree contains a single path, then generate all possible combinations as frequent item sets
 		{
-			if(fptree_root.getChildrenCount()==1)	
+			if(storage.getChildrenCount(fptree_root)==1)	
 			{
-				this.genAllCombinations(fptree_root.getChild(0), curr);		//leave out fptree_root, start with the child which has the 1st item	
-				num_of_single_paths++;
+				this.genAllCombinations(storage.getChild(fptree_root, 0), prefix, length, support_threshold, sink);		//leave out fptree_root, start with the child which has the 1st item	
+				num_of_single_paths.incrementAndGet();
 			}
 		}
 		else
 		{
+			ConditionalPatternBase conditional_pattern_base = new ConditionalPatternBase();	//reused for every header element
 			for(int i=header_table.size()-1; i>=0; i--)
-			{
-				FPTreeHeaderElement elmnt = header_table.get(i);
-				String itemset = curr + " " + elmnt.getItem() + " : " + this.getIndividualItemSupport(elmnt);
-				System.out.print(itemset + "\n");	//print frequent item set containing this element
-				
-				ArrayList<String> conditional_pattern_base = this.getConditionalPatternBase(elmnt);	//get the conditional pattern base
-				FPTree subtree = new FPTree(conditional_pattern_base, support_threshold);	//create FP-tree from this conditional pattern base
-				String pattern = curr + " " + elmnt.getItem();	
-				subtree.minePatternsByFPGrowth(pattern);	//recursively mine the subtree
-			}
+				mineHeaderElement(i, prefix, length, conditional_pattern_base, MiningStrategy.FP_GROWTH, false, sink);
 		}
 		
-		fptree_mining_calls++;
+		fptree_mining_calls.incrementAndGet();
 	}
 
+	/*
+	 * FP-growth restricted to the header element of one item: reports the frequent item sets whose last item 
+	 * (in header table order) is [item], i.e. the share of this item in minePatternsByFPGrowth(), e.g. for the item groups of ParallelFPGrowth.
+	 * Nothing is reported for an item missing from the header table. Its header element is reported without a support check.
+	 */
+	public void minePatternsEndingWith(String curr, int item)
+	{
+		int rank = header_table.getPosition(item);
+		if(rank < 0)	//not a frequent item of this tree
+			return;
+		
+		String []tokens = prefixTokens(curr);
+		int []prefix = prefixBuffer(dictionary, tokens, header_table.size());
+		ItemsetSink sink = getItemsetSink();
+		sink.startMining(dictionary);
+		mineHeaderElement(rank, prefix, tokens.length, new ConditionalPatternBase(), MiningStrategy.FP_GROWTH, false, sink);
+		fptree_mining_calls.incrementAndGet();
+		sink.endMining();
+	}
+	
 	/*
 	 * Overloaded FP-Growth method.
 	 * We can provide as argument a support value, which must be >= the default support threshold of the FPTree.
@@ -563,16 +1189,24 @@ public class FPTree {
 			return;			
 		}
 		
+		String []tokens = prefixTokens(curr);
+		int []prefix = prefixBuffer(dictionary, tokens, header_table.size());
+		int length = tokens.length;
+		ItemsetSink sink = getItemsetSink();
+		sink.startMining(dictionary);
+		
+		int fptree_root = storage.getRoot();
 		if(this.isSingleBranch(fptree_root))	//if tree contains a single path, then generate all possible combinations as frequent item sets
 		{
-			if(fptree_root.getChildrenCount()==1)
+			if(storage.getChildrenCount(fptree_root)==1)
 			{
-				this.genAllCombinations(fptree_root.getChild(0), curr);		//leave out fptree_root, start with the child which has the 1st item	
-				num_of_single_paths++;
+				this.genAllCombinations(storage.getChild(fptree_root, 0), prefix, length, support_val, sink);		//leave out fptree_root, start with the child which has the 1st item	
+				num_of_single_paths.incrementAndGet();
 			}
 		}
 		else
 		{
+			ConditionalPatternBase conditional_pattern_base = new ConditionalPatternBase();	//reused for every header element
 			for(int i=header_table.size()-1; i>=0; i--)
 			{
 				FPTreeHeaderElement elmnt = header_table.get(i);
@@ -581,36 +1215,477 @@ public class FPTree {
 				if(prj_supp<support_val)	//if single ton item is not frequent as per the new higher support value,
 					continue;				//then skip it, no need to deal with its projected database
 				
-				String itemset = curr + " " + elmnt.getItem() + " : " + prj_supp;
-				System.out.print(itemset + "\n");	//print frequent item set containing this element
+				prefix[length] = elmnt.getItem();
+				sink.itemset(prefix, length+1, prj_supp);	//report frequent item set containing this element
 				
-				ArrayList<String> conditional_pattern_base = this.getConditionalPatternBase(elmnt);	//get the conditional pattern base
-				FPTree subtree = new FPTree(conditional_pattern_base, support_val);	//create FP-tree from projected database, with higher support
-				String pattern = curr + " " + elmnt.getItem();	
-				subtree.minePatternsByFPGrowth(pattern);	//recursively mine the subtree, no need to pass higher support as argument again!
+				this.getConditionalPatternBase(elmnt, conditional_pattern_base);	//get the conditional pattern base
+				FPTree subtree = new FPTree(conditional_pattern_base, support_val, dictionary, storage.newStorage());	//create FP-tree from projected database, with higher support
+				subtree.minePatternsByFPGrowth(prefix, length+1, sink);	//recursively mine the subtree, no need to pass higher support as argument again!
+				subtree.release();							//conditional tree no longer needed, its storage can be reused
+			}
+		}
+		
+		fptree_mining_calls.incrementAndGet();
+		sink.endMining();
+	}
+	
+	/*
+	 * Mines the frequent item sets of the selected mining strategy (see MiningStrategy).
+	 */
+	public void minePatterns(String curr)
+	{
+		if(mining_strategy == MiningStrategy.FP_GROWTH_STAR)
+			minePatternsByFPGrowthStar(curr);
+		else if(mining_strategy == MiningStrategy.FP_CLOSE)
+			minePatternsByFPClose(curr);
+		else if(mining_strategy == MiningStrategy.FP_MAX)
+			minePatternsByFPMax(curr);
+		else
+			minePatternsByFPGrowth(curr);
+	}
+	
+	/*
+	 * FP-growth* method, reports the same frequent item sets as minePatternsByFPGrowth().
+	 * Conditional FP-trees are built with their FP-array, so for every header element of a conditional tree 
+	 * the frequent items of its conditional pattern base are known before the base is traced.
+	 */
+	public void minePatternsByFPGrowthStar(String curr)
+	{
+		String []tokens = prefixTokens(curr);
+		int []prefix = prefixBuffer(dictionary, tokens, header_table.size());
+		ItemsetSink sink = getItemsetSink();
+		sink.startMining(dictionary);
+		minePatternsByFPGrowthStar(prefix, tokens.length, sink);
+		sink.endMining();
+	}
+	
+	private void minePatternsByFPGrowthStar(int[] prefix, int length, ItemsetSink sink)
+	{
+		int fptree_root = storage.getRoot();
+		if(this.isSingleBranch(fptree_root))	//if tree contains a single path, then generate all possible combinations as frequent item sets
+		{
+			if(storage.getChildrenCount(fptree_root)==1)	
+			{
+				this.genAllCombinations(storage.getChild(fptree_root, 0), prefix, length, support_threshold, sink);		//leave out fptree_root, start with the child which has the 1st item	
+				num_of_single_paths.incrementAndGet();
+			}
+		}
+		else
+		{
+			ConditionalPatternBase conditional_pattern_base = new ConditionalPatternBase();	//reused for every header element
+			for(int i=header_table.size()-1; i>=0; i--)
+				mineHeaderElement(i, prefix, length, conditional_pattern_base, MiningStrategy.FP_GROWTH_STAR, false, sink);
+		}
+		
+		fptree_mining_calls.incrementAndGet();
+	}
+	
+	/*
+	 * FPClose method, reports the closed frequent item sets only (no proper superset has the same support).
+	 * Every candidate is checked against the closed item sets found so far (CFI-tree): 
+	 * if a found one contains it with the same support, the candidate is pruned along with its conditional tree.
+	 */
+	public void minePatternsByFPClose(String curr)
+	{
+		mineClosedPatterns(curr, false);
+	}
+	
+	/*
+	 * FPMax method, reports the maximal frequent item sets only (no proper superset is frequent).
+	 * A candidate extended by all the frequent items of its conditional pattern base is checked against the maximal item sets found so far (MFI-tree):
+	 * if a found one contains it, the conditional tree of the candidate is not built.
+	 */
+	public void minePatternsByFPMax(String curr)
+	{
+		mineClosedPatterns(curr, true);
+	}
+	
+	private void mineClosedPatterns(String curr, boolean maximal)
+	{
+		String []tokens = prefixTokens(curr);
+		int []prefix = prefixBuffer(dictionary, tokens, header_table.size());
+		ItemsetSink sink = getItemsetSink();
+		sink.startMining(dictionary);
+		mineClosedPatterns(prefix, tokens.length, new ItemsetTree(header_table), maximal, sink);
+		sink.endMining();
+	}
+	
+	/*
+	 * FPClose/FPMax, every closed/maximal item set extends prefix[0..length). 
+	 * The header elements are mined bottom-up, as in FP-growth: an item set found later never contains an item mined before,
+	 * so an item set in results is never covered by one found after it, and it is reported right away.
+	 */
+	private void mineClosedPatterns(int[] prefix, int length, ItemsetTree results, boolean maximal, ItemsetSink sink)
+	{
+		int fptree_root = storage.getRoot();
+		if(this.isSingleBranch(fptree_root))
+		{
+			if(storage.getChildrenCount(fptree_root)==1)	
+			{
+				mineClosedSinglePath(storage, storage.getChild(fptree_root, 0), support_threshold, prefix, length, results, maximal, sink);
+				num_of_single_paths.incrementAndGet();
+			}
+		}
+		else
+		{
+			ConditionalPatternBase conditional_pattern_base = new ConditionalPatternBase();	//reused for every header element
+			for(int i=header_table.size()-1; i>=0; i--)
+			{
+				FPTreeHeaderElement elmnt = header_table.get(i);
+				prefix[length] = elmnt.getItem();
+				this.getConditionalPatternBase(elmnt, conditional_pattern_base);
+				mineClosedConditionalPatternBase(conditional_pattern_base, this.getIndividualItemSupport(elmnt), support_threshold, dictionary, storage, prefix, length+1, results, maximal, sink);
 			}
 		}
 		
-		fptree_mining_calls++;
+		fptree_mining_calls.incrementAndGet();
+	}
+	
+	/*
+	 * FPClose/FPMax step for the item set prefix[0..length) (of support itemset_support) and its conditional pattern base (of an FPTree or a CanTree).
+	 * 
+	 * Items in every path of the base are in every item set extending this one, they are added to the item set right away (and dropped from the base).
+	 * Then the item set (FPClose), or the item set with all the frequent items of the base (FPMax), is checked against results,
+	 * and only if it is not covered, the conditional FP-tree is built and mined.
+	 */
+	static void mineClosedConditionalPatternBase(ConditionalPatternBase cond_pattern_base, int itemset_support, int support, ItemDictionary dictionary, TreeStorage storage, 
+			int[] prefix, int length, ItemsetTree results, boolean maximal, ItemsetSink sink)
+	{
+		int tail = 0;		//frequent items of the base, which are not in all of its paths
+		for(int position=0; position<cond_pattern_base.getPositionCount(); position++)
+		{
+			int freq = cond_pattern_base.getFrequency(position);
+			if(freq == itemset_support)
+			{
+				prefix[length++] = cond_pattern_base.getItem(position);
+				cond_pattern_base.removeItem(position);
+			}
+			else if(freq > 0 && freq >= support)
+				tail++;
+		}
+		
+		if(maximal)
+		{
+			int end = length;
+			for(int position=0; position<cond_pattern_base.getPositionCount(); position++)
+			{
+				int freq = cond_pattern_base.getFrequency(position);
+				if(freq > 0 && freq >= support)
+					prefix[end++] = cond_pattern_base.getItem(position);
+			}
+			if(results.hasSuperset(prefix, end, 0))	//every item set of the conditional tree is covered as well
+			{
+				subsumed_itemsets.incrementAndGet();
+				return;
+			}
+			if(tail == 0)							//no frequent extension, the item set is maximal
+			{
+				results.insert(prefix, length, itemset_support);
+				sink.itemset(prefix, length, itemset_support);
+				return;
+			}
+		}
+		else
+		{
+			//a closed item set found before contains it with the same support: 
+			//it also contains an item which is not in the conditional tree, so no item set of the conditional tree is closed
+			if(results.hasSuperset(prefix, length, itemset_support))	
+			{
+				subsumed_itemsets.incrementAndGet();
+				return;
+			}
+			results.insert(prefix, length, itemset_support);
+			sink.itemset(prefix, length, itemset_support);
+			if(tail == 0)
+				return;
+		}
+		
+		FPTree subtree = new FPTree(cond_pattern_base, support, dictionary, storage.newStorage());	//create FP-tree from the frequent items of the base
+		subtree.mineClosedPatterns(prefix, length, results, maximal, sink);
+		subtree.release();								//conditional tree no longer needed, its storage can be reused
+	}
+	
+	/*
+	 * FPClose/FPMax on a single path (of an FPTree or a CanTree), starting at node and extending prefix[0..length).
+	 * The closed item sets end at the nodes after which the frequency drops, and at the last frequent node. 
+	 * The maximal item set is the whole frequent part of the path.
+	 */
+	static void mineClosedSinglePath(TreeStorage storage, int node, int support, int[] prefix, int length, ItemsetTree results, boolean maximal, ItemsetSink sink)
+	{
+		while(node != TreeStorage.NULL_NODE && storage.getFrequency(node) >= support)
+		{
+			int freq = storage.getFrequency(node);
+			prefix[length++] = storage.getItem(node);
+			
+			int next = (storage.getChildrenCount(node)==1) ? storage.getChild(node, 0) : TreeStorage.NULL_NODE;
+			int next_freq = (next == TreeStorage.NULL_NODE) ? 0 : storage.getFrequency(next);
+			if(next_freq < support || (!maximal && next_freq < freq))
+			{
+				if(!results.hasSuperset(prefix, length, maximal ? 0 : freq))
+				{
+					results.insert(prefix, length, freq);
+					sink.itemset(prefix, length, freq);
+				}
+				else
+					subsumed_itemsets.incrementAndGet();
+			}
+			node = next;
+		}
+		single_path_mining_calls.incrementAndGet();
+	}
+	
+	/*
+	 * Top-K mining: reports the k most frequent item sets with at least min_length items (the items of curr included), in descending order of support.
+	 * 
+	 * The support threshold starts at the support threshold of the tree, and rises to the support of the k-th item set found so far 
+	 * (see TopKItemsets). Header elements and conditional trees below the current threshold are not mined at all.
+	 * Header elements are mined from the most frequent one, so the threshold rises early.
+	 */
+	public void minePatternsTopK(String curr, int k, int min_length)
+	{
+		String []tokens = prefixTokens(curr);
+		int []prefix = prefixBuffer(dictionary, tokens, header_table.size());
+		TopKItemsets top = new TopKItemsets(k, min_length, support_threshold);
+		mineTopK(prefix, tokens.length, top);
+		
+		ItemsetSink sink = getItemsetSink();
+		sink.startMining(dictionary);
+		top.reportTo(sink);
+		sink.endMining();
+	}
+	
+	//top-K mining of the item sets extending prefix[0..length)
+	private void mineTopK(int[] prefix, int length, TopKItemsets top)
+	{
+		int fptree_root = storage.getRoot();
+		if(this.isSingleBranch(fptree_root))
+		{
+			if(storage.getChildrenCount(fptree_root)==1)	
+			{
+				topKCombinations(storage, storage.getChild(fptree_root, 0), prefix, length, top);
+				num_of_single_paths.incrementAndGet();
+			}
+		}
+		else
+		{
+			ConditionalPatternBase conditional_pattern_base = new ConditionalPatternBase();	//reused for every header element
+			for(int i=0; i<header_table.size(); i++)
+			{
+				FPTreeHeaderElement elmnt = header_table.get(i);
+				int supp = this.getIndividualItemSupport(elmnt);
+				if(supp < top.getSupportThreshold())	//header table in descending order of frequency, the rest is below the threshold as well
+					break;
+				
+				prefix[length] = elmnt.getItem();
+				top.offer(prefix, length+1, supp);
+				this.getConditionalPatternBase(elmnt, conditional_pattern_base);
+				mineTopKConditionalPatternBase(conditional_pattern_base, dictionary, storage, prefix, length+1, top);
+			}
+		}
+		
+		fptree_mining_calls.incrementAndGet();
+	}
+	
+	/*
+	 * Top-K mining of a conditional pattern base (of an FPTree or a CanTree) extending prefix[0..length):
+	 * the conditional FP-tree only keeps the items reaching the current threshold.
+	 */
+	static void mineTopKConditionalPatternBase(ConditionalPatternBase cond_pattern_base, ItemDictionary dictionary, TreeStorage storage, int[] prefix, int length, TopKItemsets top)
+	{
+		if(cond_pattern_base.isEmpty())
+			return;
+		
+		FPTree subtree = new FPTree(cond_pattern_base, top.getSupportThreshold(), dictionary, storage.newStorage());
+		subtree.mineTopK(prefix, length, top);
+		subtree.release();								//conditional tree no longer needed, its storage can be reused
+	}
+	
+	/*
+	 * Top-K mining of a single path (of an FPTree or a CanTree) starting at node: same combinations as genAllCombinations(), 
+	 * but a node below the current threshold ends the path (the frequencies decrease along the path).
+	 */
+	static void topKCombinations(TreeStorage storage, int node, int[] prefix, int length, TopKItemsets top)
+	{
+		int freq = storage.getFrequency(node);
+		if(freq < top.getSupportThreshold())
+			return;
+		
+		prefix[length] = storage.getItem(node);
+		top.offer(prefix, length+1, freq);
+		if(storage.getChildrenCount(node)==1)
+		{
+			int child = storage.getChild(node, 0);
+			topKCombinations(storage, child, prefix, length+1, top);	//combinations including the item at this index
+			topKCombinations(storage, child, prefix, length, top);		//combinations not including the item at this index
+		}
+		single_path_mining_calls.incrementAndGet();
+	}
+	
+	/*
+	 * Parallel mining with the selected mining strategy, reports exactly the same item sets (in the same order) as minePatterns().
+	 * 
+	 * The header elements are mined as fork/join tasks in the given pool (work stealing), 
+	 * a large conditional tree is split again into tasks for its own header elements.
+	 * Every task collects its item sets into its own buffer, the buffers are replayed into the sink in the sequential order.
+	 * FP_CLOSE and FP_MAX are mined sequentially, as their subset checks depend on the mining order.
+	 */
+	public void minePatternsInParallel(String curr, ForkJoinPool pool)
+	{
+		if(mining_strategy == MiningStrategy.FP_CLOSE || mining_strategy == MiningStrategy.FP_MAX)
+		{
+			minePatterns(curr);
+			return;
+		}
+		
+		final String []tokens = prefixTokens(curr);
+		final int []prefix = prefixBuffer(dictionary, tokens, header_table.size());
+		final ItemsetSink sink = getItemsetSink();
+		sink.startMining(dictionary);
+		pool.invoke(new RecursiveAction() {
+			@Override
+			protected void compute()
+			{
+				mineInParallel(prefix, tokens.length, mining_strategy, sink);
+			}
+		});
+		sink.endMining();
+	}
+	
+	//runs inside the fork/join pool
+	private void mineInParallel(int[] prefix, final int length, final MiningStrategy strategy, ItemsetSink sink)
+	{
+		int fptree_root = storage.getRoot();
+		if(this.isSingleBranch(fptree_root))	//a single path is not worth splitting
+		{
+			if(storage.getChildrenCount(fptree_root)==1)	
+			{
+				this.genAllCombinations(storage.getChild(fptree_root, 0), prefix, length, support_threshold, sink);	
+				num_of_single_paths.incrementAndGet();
+			}
+		}
+		else
+		{
+			int n = header_table.size();
+			HeaderElementMiningTask []tasks = new HeaderElementMiningTask[n];
+			for(int i=n-1; i>=0; i--)	//same bottom-up order as the sequential mining
+			{
+				final int rank = i;
+				final int []task_prefix = Arrays.copyOf(prefix, prefix.length);	//every task extends its own copy of the prefix
+				tasks[n-1-i] = new HeaderElementMiningTask() {
+					@Override
+					protected void mine(ItemsetSink task_sink)
+					{
+						mineHeaderElement(rank, task_prefix, length, new ConditionalPatternBase(), strategy, true, task_sink);
+					}
+				};
+			}
+			HeaderElementMiningTask.invokeInOrder(tasks, sink);
+		}
+		
+		fptree_mining_calls.incrementAndGet();
+	}
+	
+	/*
+	 * Reports the header element at position [rank] (extending the item set prefix[0..length)) and mines its conditional pattern base,
+	 * all the item sets go to elem_sink. In parallel mode, a large conditional tree is mined in parallel again.
+	 */
+	private void mineHeaderElement(int rank, int[] prefix, int length, ConditionalPatternBase cond_pattern_base, MiningStrategy strategy, boolean parallel, ItemsetSink elem_sink)
+	{
+		FPTreeHeaderElement elmnt = header_table.get(rank);
+		prefix[length] = elmnt.getItem();
+		elem_sink.itemset(prefix, length+1, this.getIndividualItemSupport(elmnt));	//report frequent item set containing this element
+		
+		if(strategy == MiningStrategy.FP_GROWTH_STAR)
+		{
+			if(fp_array == null)
+				this.getConditionalPatternBase(elmnt, cond_pattern_base);	//tree built from the transactions, no FP-array
+			else if(hasFrequentExtension(rank))
+				this.getConditionalPatternBase(elmnt, rank, cond_pattern_base);
+			else
+			{
+				skipped_projections.incrementAndGet();	//conditional tree would be empty
+				return;
+			}
+			mineConditionalPatternBase(cond_pattern_base, support_threshold, dictionary, storage, prefix, length+1, elem_sink, parallel);
+		}
+		else
+		{
+			this.getConditionalPatternBase(elmnt, cond_pattern_base);	//get the conditional pattern base
+			FPTree subtree = new FPTree(cond_pattern_base, support_threshold, dictionary, storage.newStorage());	//create FP-tree from this conditional pattern base
+			if(parallel && subtree.storage.size() >= PARALLEL_SPLIT_NODES)
+				subtree.mineInParallel(prefix, length+1, strategy, elem_sink);
+			else
+				subtree.minePatternsByFPGrowth(prefix, length+1, elem_sink);	//recursively mine the subtree
+			subtree.release();							//conditional tree no longer needed, its storage can be reused
+		}
+	}
+	
+	/*
+	 * FP-growth*: mines a conditional pattern base (of an FPTree or a CanTree) extending the item set prefix[0..length).
+	 * Small bases are mined without a tree, otherwise a conditional FP-tree with its FP-array is built in a storage of the same kind.
+	 * In parallel mode, a large conditional tree is mined in parallel again.
+	 */
+	static void mineConditionalPatternBase(ConditionalPatternBase cond_pattern_base, int support, ItemDictionary dictionary, TreeStorage storage, int[] prefix, int length, ItemsetSink sink, boolean parallel)
+	{
+		if(cond_pattern_base.isEmpty())
+			return;
+		
+		if(cond_pattern_base.getPathEnd(cond_pattern_base.size()-1) <= SMALL_PATTERN_BASE)
+		{
+			new PatternBaseMiner(support, sink).mine(cond_pattern_base, prefix, length);
+			return;
+		}
+		
+		FPTree subtree = new FPTree(cond_pattern_base, support, dictionary, storage.newStorage(), true);	//create FP-tree and its FP-array from this conditional pattern base
+		subtree.setMiningStrategy(MiningStrategy.FP_GROWTH_STAR);
+		if(parallel && subtree.storage.size() >= PARALLEL_SPLIT_NODES)
+			subtree.mineInParallel(prefix, length, MiningStrategy.FP_GROWTH_STAR, sink);
+		else
+			subtree.minePatternsByFPGrowthStar(prefix, length, sink);	//recursively mine the subtree
+		subtree.release();								//conditional tree no longer needed, its storage can be reused
+	}
+	
+	//tokens of an item set given as text, e.g. " a b" (the prefix of the mined item sets)
+	static String[] prefixTokens(String curr)
+	{
+		String trimmed = curr.trim();
+		if(trimmed.length() == 0)
+			return new String[0];
+		return trimmed.split("\\s+");
+	}
+	
+	//item ids of the prefix tokens, in a buffer with room for [depth] more items (the prefix is extended in place while mining)
+	static int[] prefixBuffer(ItemDictionary dictionary, String[] tokens, int depth)
+	{
+		int []prefix = new int[tokens.length + depth + 1];
+		for(int i=0; i<tokens.length; i++)
+			prefix[i] = dictionary.encode(tokens[i]);
+		return prefix;
 	}
 	
 	public void printFunctionCallStats() {
 		
-		System.out.print("\nDirect FP Tree Construction: \t"+fptree_construction_calls);
-		System.out.print("\nConditional FP-Tree Constructions: \t"+cond_fptree_construction_calls);
-		System.out.print("\nMining Frequent Itemsets calls: \t"+fptree_mining_calls);
-		System.out.print("\nDirect mining from single path calls: \t"+single_path_mining_calls);
-		System.out.print("\nNo. of single path: \t"+num_of_single_paths);
+		System.out.print("\nDirect FP Tree Construction: \t"+fptree_construction_calls.get());
+		System.out.print("\nConditional FP-Tree Constructions: \t"+cond_fptree_construction_calls.get());
+		System.out.print("\nMining Frequent Itemsets calls: \t"+fptree_mining_calls.get());
+		System.out.print("\nDirect mining from single path calls: \t"+single_path_mining_calls.get());
+		System.out.print("\nNo. of single path: \t"+num_of_single_paths.get());
+		System.out.print("\nFP-growth* projections skipped: \t"+skipped_projections.get());
+		System.out.print("\nSmall pattern bases mined without a tree: \t"+PatternBaseMiner.pattern_base_mining_calls.get());
+		System.out.print("\nFPClose/FPMax candidates covered by found item sets: \t"+subsumed_itemsets.get());
 	
 	}
 	
 	public void refreshFunctionCallStats() {
 		
-		fptree_construction_calls = 0;
-		cond_fptree_construction_calls = 0;
-		fptree_mining_calls = 0;
-		single_path_mining_calls = 0;
-		num_of_single_paths = 0;
+		fptree_construction_calls.set(0);
+		cond_fptree_construction_calls.set(0);
+		fptree_mining_calls.set(0);
+		single_path_mining_calls.set(0);
+		num_of_single_paths.set(0);
+		skipped_projections.set(0);
+		subsumed_itemsets.set(0);
+		PatternBaseMiner.pattern_base_mining_calls.set(0);
 	}
 	
 	public static void main(String args[]) 
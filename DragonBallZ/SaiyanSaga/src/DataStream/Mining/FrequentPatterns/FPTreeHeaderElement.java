@@ -1,51 +1,82 @@
 package DataStream.Mining.FrequentPatterns;
 
+import java.util.Comparator;
+
 public class FPTreeHeaderElement implements Comparable<FPTreeHeaderElement> {
-	private String item;
-	private FPTreeNode node_link;
+	private int item;
+	private int node_link;		//handle of the first node containing the item
+	private int last_node;		//handle of the last node in the node-link chain
 	
 	public FPTreeHeaderElement()
 	{
-		item = null;
-		node_link = null;
+		item = FPTreeNode.ROOT_ITEM;
+		node_link = TreeStorage.NULL_NODE;
+		last_node = TreeStorage.NULL_NODE;
 	}
 	
-	public FPTreeHeaderElement(String item)
+	public FPTreeHeaderElement(int item)
 	{
 		this.item = item;
-		node_link = null;
+		node_link = TreeStorage.NULL_NODE;
+		last_node = TreeStorage.NULL_NODE;
 	}
 	
-	public FPTreeHeaderElement(String item, FPTreeNode fptn)
+	public FPTreeHeaderElement(int item, int fptn)
 	{
 		this.item = item;
 		node_link = fptn;
+		last_node = fptn;
 	}
 	
-	public String getItem()
+	public int getItem()
 	{
 		return item;
 	}
 	
-	public FPTreeNode getNodeLink()
+	public int getNodeLink()
 	{
 		return node_link;
 	}
 	
-	public void setNodeLink(FPTreeNode node_link)
+	public void setNodeLink(int node_link)
 	{
 		this.node_link = node_link; 
 	}
 	
+	public int getLastNode()
+	{
+		return last_node;
+	}
+	
+	public void setLastNode(int last_node)
+	{
+		this.last_node = last_node; 
+	}
+	
 	@Override
 	public int compareTo(FPTreeHeaderElement elem) 
 	{		
-		return (this.getItem()).compareTo(elem.getItem()); //simple lexicographic order
+		return this.getItem() - elem.getItem(); //simple order of item ids
 	}
 	
 	@Override
-	public String toString() //<item>:<Pointed FPTree Node> 
+	public String toString() //<item id>:<Pointed FPTree Node handle> 
 	{
 		return item + "-> " + node_link;
 	}
-}
\ No newline at end of file
+	
+	//Comparator for lexicographic sorting of the items behind the ids (canonical order of the CanTree)
+	static class LexicographicComparator implements Comparator<FPTreeHeaderElement> {
+		private ItemDictionary dictionary;
+		
+		public LexicographicComparator(ItemDictionary dictionary)
+		{
+			this.dictionary = dictionary;
+		}
+		
+		public int compare(FPTreeHeaderElement elem1, FPTreeHeaderElement elem2) 
+		{
+			return dictionary.compare(elem1.getItem(), elem2.getItem());
+		}
+	}
+}
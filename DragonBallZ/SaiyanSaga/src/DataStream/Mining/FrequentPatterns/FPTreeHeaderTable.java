@@ -0,0 +1,163 @@
+package DataStream.Mining.FrequentPatterns;
+
+/*
+ * Header table of an FP-Tree/CanTree.
+ *
+ * Description:
+ * - 	Elements are kept in header order (e.g. descending frequency for the FP-Tree) and can be re-sorted.
+ *
+ * -	Besides, every element is indexed by its item id, so looking up the element of an item is O(1)
+ * 		instead of a scan over the whole header table.
+ *
+ * -	The position of every item in the header table is indexed as well (e.g. the rank of an item in the FP-Tree order).
+ *
+ * -	Every element maintains the last node of its node-link chain,
+ * 		so a new node is appended to the chain in constant time.
+ * 		Chains are doubly linked by the tree storage, so a node is unlinked from its chain in constant time as well.
+ *
+ * -	Elements can be removed (e.g. items gone from the window of a CanTree), which does not keep the header order.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+
+public class FPTreeHeaderTable {
+	private ArrayList<FPTreeHeaderElement> elements;	//header order
+	private FPTreeHeaderElement[] item_index;			//item id -> header element, null if the item is not in the header table
+	private int[] item_position;						//item id -> position in the header table, -1 if the item is not in the header table
+
+	public FPTreeHeaderTable()
+	{
+		elements = new ArrayList<FPTreeHeaderElement>();
+		item_index = new FPTreeHeaderElement[0];
+		item_position = new int[0];
+	}
+
+	public int size()
+	{
+		return elements.size();
+	}
+
+	public FPTreeHeaderElement get(int i)
+	{
+		return elements.get(i);
+	}
+
+	//return the header element of the item, null if the item is not in the header table
+	public FPTreeHeaderElement find(int item)
+	{
+		if(item < 0 || item >= item_index.length)
+			return null;
+		return item_index[item];
+	}
+	
+	//return the position of the item in the header table, -1 if the item is not in the header table
+	public int getPosition(int item)
+	{
+		if(item < 0 || item >= item_position.length)
+			return -1;
+		return item_position[item];
+	}
+
+	//add a new element at the end of the header table
+	public FPTreeHeaderElement add(int item)
+	{
+		if(item >= item_index.length)
+		{
+			int old_length = item_index.length;
+			item_index = Arrays.copyOf(item_index, Math.max(item+1, 2*old_length));
+			item_position = Arrays.copyOf(item_position, item_index.length);
+			Arrays.fill(item_position, old_length, item_position.length, -1);
+		}
+
+		FPTreeHeaderElement elem = new FPTreeHeaderElement(item);
+		item_position[item] = elements.size();
+		elements.add(elem);
+		item_index[item] = elem;
+		return elem;
+	}
+
+	/*
+	 * Remove the element of the item in constant time: the last element takes its position.
+	 * So the header table has to be sorted again afterwards.
+	 */
+	public void remove(int item)
+	{
+		int position = getPosition(item);
+		if(position < 0)
+			return;
+		FPTreeHeaderElement last = elements.remove(elements.size() - 1);
+		if(last.getItem() != item)
+		{
+			elements.set(position, last);
+			item_position[last.getItem()] = position;
+		}
+		item_index[item] = null;
+		item_position[item] = -1;
+	}
+
+	public void sort(Comparator<FPTreeHeaderElement> order)
+	{
+		Collections.sort(elements, order);
+		for(int i=0; i<elements.size(); i++)
+			item_position[elements.get(i).getItem()] = i;
+	}
+
+	/*
+	 * Append a newly created node of the item at the end of its node-link chain.
+	 * The last node is remembered by the header element, so no traversal of the chain is needed.
+	 */
+	public void appendNodeLink(FPTreeHeaderElement elem, int node, TreeStorage storage)
+	{
+		int last_node = elem.getLastNode();
+		if(last_node == TreeStorage.NULL_NODE)	//first node containing this item
+			elem.setNodeLink(node);
+		else
+			storage.setNextNode(last_node, node);	//pointers updated, new node pointed by next node pointer
+		elem.setLastNode(node);
+	}
+	
+	//take a node out of the node-link chain of its element, the first and last nodes of the chain are updated
+	public void unlinkNode(FPTreeHeaderElement elem, int node, TreeStorage storage)
+	{
+		if(elem.getNodeLink() == node)
+			elem.setNodeLink(storage.getNextNode(node));
+		if(elem.getLastNode() == node)
+			elem.setLastNode(storage.getPrevNode(node));
+		storage.unlinkNode(node);
+	}
+	
+	//independent copy of the header table (same order, same node-link handles), for a copy of the tree storage
+	public FPTreeHeaderTable copy()
+	{
+		FPTreeHeaderTable table = new FPTreeHeaderTable();
+		table.elements = new ArrayList<FPTreeHeaderElement>(elements.size());
+		table.item_index = new FPTreeHeaderElement[item_index.length];
+		table.item_position = Arrays.copyOf(item_position, item_position.length);
+		for(int i=0; i<elements.size(); i++)
+		{
+			FPTreeHeaderElement elem = elements.get(i);
+			FPTreeHeaderElement copy = new FPTreeHeaderElement(elem.getItem());
+			copy.setNodeLink(elem.getNodeLink());
+			copy.setLastNode(elem.getLastNode());
+			table.elements.add(copy);
+			table.item_index[copy.getItem()] = copy;
+		}
+		return table;
+	}
+	
+	//new handles of the first and last nodes of all the chains, after the tree storage was compacted
+	public void remapNodeLinks(int[] handles)
+	{
+		for(int i=0; i<elements.size(); i++)
+		{
+			FPTreeHeaderElement elem = elements.get(i);
+			if(elem.getNodeLink() != TreeStorage.NULL_NODE)
+				elem.setNodeLink(handles[elem.getNodeLink()]);
+			if(elem.getLastNode() != TreeStorage.NULL_NODE)
+				elem.setLastNode(handles[elem.getLastNode()]);
+		}
+	}
+}
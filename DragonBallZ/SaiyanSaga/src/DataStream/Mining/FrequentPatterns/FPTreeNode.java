@@ -1,18 +1,40 @@
 package DataStream.Mining.FrequentPatterns;
 
+/*
+ * Node of an FP-Tree/CanTree.
+ * 
+ * Description:
+ * - 	Children are looked up through an adaptive index:
+ * 		1) up to CHILD_INDEX_THRESHOLD children -> the children array is kept sorted by item id (binary search).
+ * 		2) above the threshold					-> children are appended to the array and indexed by item id 
+ * 												   in an open addressing hash table (e.g. near the root of a CanTree).
+ * 
+ * -	findOrAddChild() finds or creates a child in a single lookup, instead of isChild() + findChild() + addChild().
+ * 
+ * -	removeChild() detaches a child (e.g. emptied by the removals of a sliding window). 
+ * 		A hashed index is kept once created, it is rebuilt after the removal.
+ */
+
 import java.util.ArrayList;
+import java.util.Arrays;
 
 public class FPTreeNode {
-	private String item;
+	public static final int ROOT_ITEM = -1;		//item id stored in the root, never a valid dictionary id
+	public static final int CHILD_INDEX_THRESHOLD = 16;	//fanout above which children are hashed
+	
+	private int id;				//handle of the node in its FPTreeNodeStorage
+	private int item;
 	private int frequency;
 	private int children_count;
 	private FPTreeNode parent;
-	private ArrayList<FPTreeNode> children;
+	private FPTreeNode[] children;		//sorted by item id while children_count <= CHILD_INDEX_THRESHOLD
+	private FPTreeNode[] child_index;	//hash table of the children (linear probing), null for small fanout
 	private FPTreeNode next;
+	private FPTreeNode prev;			//previous node in the node-link chain
 	
 	public FPTreeNode() //default constructor for the root
 	{
-		item = "root";
+		item = ROOT_ITEM;
 		frequency = 0;
 		children_count = 0;
 		parent = null;
@@ -20,7 +42,7 @@ public class FPTreeNode {
 		next = null;
 	}
 	
-	public FPTreeNode(String item, int frequency)
+	public FPTreeNode(int item, int frequency)
 	{
 		this.item = item;
 		this.frequency = frequency;
@@ -30,7 +52,7 @@ public class FPTreeNode {
 		next = null;
 	}
 	
-	public FPTreeNode(String item, int frequency, FPTreeNode parent)
+	public FPTreeNode(int item, int frequency, FPTreeNode parent)
 	{
 		this.item = item;
 		this.frequency = frequency;
@@ -40,11 +62,63 @@ public class FPTreeNode {
 		next = null;
 	}
 	
-	public String getItem() 
+	//copy of the node (handle, item, frequency) without its links, see copyLinks()
+	public FPTreeNode(FPTreeNode fptn)
+	{
+		id = fptn.id;
+		item = fptn.item;
+		frequency = fptn.frequency;
+		children_count = fptn.children_count;
+	}
+	
+	/*
+	 * Links of a copied node: same parent, children (and child index) and node-link neighbours as the source node,
+	 * taken from the copies of the whole storage (by handle).
+	 */
+	void copyLinks(FPTreeNode source, ArrayList<FPTreeNode> copies)
+	{
+		parent = copyOf(source.parent, copies);
+		next = copyOf(source.next, copies);
+		prev = copyOf(source.prev, copies);
+		if(source.children != null)
+		{
+			children = new FPTreeNode[source.children.length];
+			for(int i=0; i<children_count; i++)
+				children[i] = copies.get(source.children[i].id);
+		}
+		if(source.child_index != null)	//same items in the same table size, so the same slots
+		{
+			child_index = new FPTreeNode[source.child_index.length];
+			for(int i=0; i<child_index.length; i++)
+				child_index[i] = copyOf(source.child_index[i], copies);
+		}
+	}
+	
+	private static FPTreeNode copyOf(FPTreeNode fptn, ArrayList<FPTreeNode> copies)
+	{
+		return (fptn == null) ? null : copies.get(fptn.id);
+	}
+	
+	public int getId() 
+	{
+		return id;
+	}
+	
+	public void setId(int id) 
+	{
+		this.id = id;
+	}
+	
+	public int getItem() 
 	{
 		return item;
 	}
 	
+	public boolean isRoot()
+	{
+		return item == ROOT_ITEM;
+	}
+	
 	public int getFrequency() 
 	{
 		return frequency;
@@ -90,50 +164,184 @@ public class FPTreeNode {
 		this.next = next_node;
 	}
 	
-	public FPTreeNode addChild(String child_item, int child_freq)
+	public FPTreeNode getPrevNode() 
+	{
+		return this.prev;
+	}
+	
+	public void setPrevNode(FPTreeNode prev_node)
+	{
+		this.prev = prev_node;
+	}
+	
+	public FPTreeNode addChild(int child_item, int child_freq)
 	{
 		FPTreeNode childnode = new FPTreeNode(child_item, child_freq, this);
-		if(children_count == 0)
-			children = new ArrayList<FPTreeNode>();
-		children.add(childnode);
-		children_count++;
+		if(child_index == null)
+			insertChild(childnode, -(searchChild(child_item) + 1));
+		else
+			appendChild(childnode);
 		return childnode;
 	}
 	
-	public boolean isChild(String child_item)
+	/*
+	 * Returns the child whose item matches after adding delta to its frequency.
+	 * If there is no such child, a new child is created with frequency delta.
+	 * A single lookup in the child index is done in both cases.
+	 */
+	public FPTreeNode findOrAddChild(int child_item, int delta)
 	{
-		for(int i=0; i<children_count; i++)
+		FPTreeNode childnode;
+		if(child_index == null)
+		{
+			int pos = searchChild(child_item);
+			if(pos >= 0)
+			{
+				childnode = children[pos];
+				childnode.frequency += delta;
+				return childnode;
+			}
+			childnode = new FPTreeNode(child_item, delta, this);
+			insertChild(childnode, -(pos + 1));
+			return childnode;
+		}
+		
+		int slot = indexSlot(child_index, child_item);
+		childnode = child_index[slot];
+		if(childnode != null)
 		{
-			FPTreeNode fptn = children.get(i);
-			if(fptn.getItem().equals(child_item))
-				return true;
+			childnode.frequency += delta;
+			return childnode;
 		}
-		return false;
+		childnode = new FPTreeNode(child_item, delta, this);
+		appendChild(childnode);
+		return childnode;
+	}
+	
+	//detach the child, return false if it is not a child of this node
+	public boolean removeChild(FPTreeNode childnode)
+	{
+		int pos;
+		if(child_index == null)
+			pos = searchChild(childnode.item);
+		else
+		{
+			pos = children_count - 1;
+			while(pos >= 0 && children[pos] != childnode)	//children are in insertion order in hashed mode
+				pos--;
+		}
+		if(pos < 0 || children[pos] != childnode)
+			return false;
+		
+		System.arraycopy(children, pos + 1, children, pos, children_count - pos - 1);
+		children[--children_count] = null;
+		childnode.parent = null;
+		
+		if(child_index != null)		//rebuild the hashed index without the child
+		{
+			Arrays.fill(child_index, null);
+			for(int i=0; i<children_count; i++)
+				child_index[indexSlot(child_index, children[i].item)] = children[i];
+		}
+		return true;
+	}
+	
+	public boolean isChild(int child_item)
+	{
+		return findChild(child_item) != null;
+	}
+	
+	public FPTreeNode findChild(int child_item) //return the child whose item matches, null if there is none
+	{
+		if(child_index == null)
+		{
+			int pos = searchChild(child_item);
+			return (pos >= 0) ? children[pos] : null;
+		}
+		return child_index[indexSlot(child_index, child_item)];
 	}
 	
-	public FPTreeNode getChild(String child_item) //return the child whose item matches
+	//binary search over the sorted children array, same return convention as Arrays.binarySearch()
+	private int searchChild(int child_item)
 	{
-		FPTreeNode fptn = null;
-		for(int i=0; i<children_count; i++)
+		int low = 0;
+		int high = children_count - 1;
+		while(low <= high)
 		{
-			fptn = children.get(i);			
-			if(fptn.getItem().equals(child_item))
-				break;
+			int mid = (low + high) >>> 1;
+			int mid_item = children[mid].item;
+			if(mid_item < child_item)
+				low = mid + 1;
+			else if(mid_item > child_item)
+				high = mid - 1;
+			else
+				return mid;
 		}
-		return fptn;
+		return -(low + 1);
+	}
+	
+	//insert a child at position pos of the sorted children array, switching to the hashed index above the threshold
+	private void insertChild(FPTreeNode childnode, int pos)
+	{
+		if(children_count == CHILD_INDEX_THRESHOLD)
+		{
+			child_index = new FPTreeNode[4 * CHILD_INDEX_THRESHOLD];
+			for(int i=0; i<children_count; i++)
+				child_index[indexSlot(child_index, children[i].item)] = children[i];
+			appendChild(childnode);
+			return;
+		}
+		
+		if(children == null)
+			children = new FPTreeNode[2];
+		else if(children_count == children.length)
+			children = Arrays.copyOf(children, 2 * children.length);
+		System.arraycopy(children, pos, children, pos + 1, children_count - pos);
+		children[pos] = childnode;
+		children_count++;
+	}
+	
+	//append a child to the children array and to the hash table (hashed mode only)
+	private void appendChild(FPTreeNode childnode)
+	{
+		if(children_count == children.length)
+			children = Arrays.copyOf(children, 2 * children.length);
+		children[children_count++] = childnode;
+		
+		if(2 * children_count > child_index.length)	//keep the load factor at most 1/2
+		{
+			FPTreeNode[] index = new FPTreeNode[2 * child_index.length];
+			for(int i=0; i<children_count; i++)
+				index[indexSlot(index, children[i].item)] = children[i];
+			child_index = index;
+		}
+		else
+			child_index[indexSlot(child_index, childnode.item)] = childnode;
+	}
+	
+	//slot holding the child with the given item, or the empty slot where it would be inserted
+	private static int indexSlot(FPTreeNode[] index, int child_item)
+	{
+		int mask = index.length - 1;
+		int h = child_item * 0x9E3779B9;	//multiplicative hashing, ids are dense and small
+		int slot = (h ^ (h >>> 16)) & mask;
+		while(index[slot] != null && index[slot].item != child_item)
+			slot = (slot + 1) & mask;
+		return slot;
 	}
 	
 	public FPTreeNode getChild(int i) //return the ith child 
 	{
 		if(i<children_count)
-			return children.get(i);
+			return children[i];
 		else
 			return null;
 	}
 	
 	@Override
-	public String toString() //<item>:<frequency>:<children count>
+	public String toString() //<item id>:<frequency>:<children count>
 	{
 		return item + ":" + frequency + ":" + children_count + " ";
 	}
+
 }
@@ -0,0 +1,223 @@
+package DataStream.Mining.FrequentPatterns;
+
+/*
+ * Tree storage with one FPTreeNode object per node.
+ * The handle of a node is its position in the list of nodes (the root is at 0).
+ * Freed handles leave a null in the list, they are reused by the next added children.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class FPTreeNodeStorage implements TreeStorage {
+	private ArrayList<FPTreeNode> nodes;
+	private int[] free_ids;		//stack of the freed handles
+	private int free_count;
+	
+	public FPTreeNodeStorage()
+	{
+		nodes = new ArrayList<FPTreeNode>();
+		free_ids = new int[0];
+		free_count = 0;
+		FPTreeNode root = new FPTreeNode();
+		root.setId(0);
+		nodes.add(root);
+	}
+	
+	public FPTreeNode getNode(int node)
+	{
+		return nodes.get(node);
+	}
+	
+	//handle of a node object, NULL_NODE for null
+	private static int handle(FPTreeNode fptn)
+	{
+		return (fptn == null) ? NULL_NODE : fptn.getId();
+	}
+	
+	public int getRoot()
+	{
+		return 0;
+	}
+	
+	public int getItem(int node)
+	{
+		return nodes.get(node).getItem();
+	}
+	
+	public int getFrequency(int node)
+	{
+		return nodes.get(node).getFrequency();
+	}
+	
+	public int getParent(int node)
+	{
+		return handle(nodes.get(node).getParent());
+	}
+	
+	public int getChildrenCount(int node)
+	{
+		return nodes.get(node).getChildrenCount();
+	}
+	
+	public int getChild(int node, int i)
+	{
+		return handle(nodes.get(node).getChild(i));
+	}
+	
+	public int findChild(int node, int item)
+	{
+		return handle(nodes.get(node).findChild(item));
+	}
+	
+	public int addChild(int node, int item, int frequency)
+	{
+		FPTreeNode child = nodes.get(node).addChild(item, frequency);
+		register(child);
+		return child.getId();
+	}
+	
+	//give a handle to a new node, a freed one if there is any
+	private void register(FPTreeNode child)
+	{
+		if(free_count > 0)
+		{
+			child.setId(free_ids[--free_count]);
+			nodes.set(child.getId(), child);
+		}
+		else
+		{
+			child.setId(nodes.size());
+			nodes.add(child);
+		}
+	}
+	
+	public int findOrAddChild(int node, int item, int delta)
+	{
+		FPTreeNode fptn = nodes.get(node);
+		int children_count = fptn.getChildrenCount();
+		FPTreeNode child = fptn.findOrAddChild(item, delta);
+		if(fptn.getChildrenCount() != children_count)	//child created
+			register(child);
+		return child.getId();
+	}
+	
+	public int getNextNode(int node)
+	{
+		return handle(nodes.get(node).getNextNode());
+	}
+	
+	public void setNextNode(int node, int next_node)
+	{
+		FPTreeNode fptn = nodes.get(node);
+		if(next_node == NULL_NODE)
+			fptn.setNextNode(null);
+		else
+		{
+			fptn.setNextNode(nodes.get(next_node));
+			fptn.getNextNode().setPrevNode(fptn);
+		}
+	}
+	
+	public int getPrevNode(int node)
+	{
+		return handle(nodes.get(node).getPrevNode());
+	}
+	
+	public void unlinkNode(int node)
+	{
+		FPTreeNode fptn = nodes.get(node);
+		FPTreeNode prev = fptn.getPrevNode();
+		FPTreeNode next = fptn.getNextNode();
+		if(prev != null)
+			prev.setNextNode(next);
+		if(next != null)
+			next.setPrevNode(prev);
+		fptn.setPrevNode(null);
+		fptn.setNextNode(null);
+	}
+	
+	public void incrementFrequency(int node, int delta)
+	{
+		nodes.get(node).incrementFrequency(delta);
+	}
+	
+	public void removeChild(int node, int child)
+	{
+		nodes.get(node).removeChild(nodes.get(child));
+	}
+	
+	public void freeNode(int node)
+	{
+		nodes.set(node, null);	//the node object is left to the garbage collector
+		if(free_count == free_ids.length)
+			free_ids = Arrays.copyOf(free_ids, Math.max(16, 2 * free_ids.length));
+		free_ids[free_count++] = node;
+	}
+	
+	public int size()
+	{
+		return nodes.size() - free_count;
+	}
+	
+	public int freeCount()
+	{
+		return free_count;
+	}
+	
+	public int[] compact()
+	{
+		int []handles = new int[nodes.size()];
+		ArrayList<FPTreeNode> live = new ArrayList<FPTreeNode>(nodes.size() - free_count);
+		for(int i=0; i<nodes.size(); i++)
+		{
+			FPTreeNode fptn = nodes.get(i);
+			if(fptn == null)
+				handles[i] = NULL_NODE;
+			else
+			{
+				handles[i] = live.size();
+				fptn.setId(live.size());
+				live.add(fptn);
+			}
+		}
+		nodes = live;
+		free_ids = new int[0];
+		free_count = 0;
+		return handles;
+	}
+	
+	public TreeStorage copy()
+	{
+		FPTreeNodeStorage storage = new FPTreeNodeStorage();
+		ArrayList<FPTreeNode> copies = new ArrayList<FPTreeNode>(nodes.size());
+		for(int i=0; i<nodes.size(); i++)
+		{
+			FPTreeNode fptn = nodes.get(i);
+			copies.add((fptn == null) ? null : new FPTreeNode(fptn));
+		}
+		for(int i=0; i<nodes.size(); i++)	//links once all the nodes are copied
+			if(copies.get(i) != null)
+				copies.get(i).copyLinks(nodes.get(i), copies);
+		storage.nodes = copies;
+		storage.free_ids = Arrays.copyOf(free_ids, free_count);
+		storage.free_count = free_count;
+		return storage;
+	}
+	
+	public TreeStorage newStorage()
+	{
+		return new FPTreeNodeStorage();
+	}
+	
+	public TreeStorage newUnpooledStorage()
+	{
+		return new FPTreeNodeStorage();
+	}
+	
+	public void release()
+	{
+		nodes.clear();	//nodes are left to the garbage collector
+		free_count = 0;
+	}
+}
@@ -0,0 +1,51 @@
+package DataStream.Mining.FrequentPatterns;
+
+/*
+ * Fork/join task mining the frequent item sets of one header element (parallel FP-growth).
+ * 
+ * Description:
+ * - 	The conditional trees of the header elements are independent of each other, 
+ * 		so every header element of a tree is mined by its own task.
+ * 
+ * -	A task collects its item sets into its own buffer. The tasks of a tree are joined in the sequential mining order
+ * 		and their buffers replayed one after the other, so the sink receives the same item sets in the same order as in the sequential mining.
+ * 
+ * -	Tasks only read the tree they are forked from. Conditional trees are built by the task in its own storage 
+ * 		(NodeArena pools are per thread, a task acquires and releases its arenas on the thread running it).
+ */
+
+import java.util.concurrent.RecursiveAction;
+
+abstract class HeaderElementMiningTask extends RecursiveAction {
+	private static final long serialVersionUID = 1L;
+	
+	private CollectingItemsetSink buffer;
+	
+	//mines the header element, reporting to task_sink
+	protected abstract void mine(ItemsetSink task_sink);
+	
+	@Override
+	protected void compute()
+	{
+		buffer = new CollectingItemsetSink();
+		mine(buffer);
+	}
+	
+	/*
+	 * Forks all the tasks, then joins them in the given order and replays their item sets into sink.
+	 * Tasks are forked in reverse order, so the first one to be joined is executed right away by the current thread,
+	 * while idle threads steal the later ones.
+	 */
+	static void invokeInOrder(HeaderElementMiningTask[] tasks, ItemsetSink sink)
+	{
+		for(int i=tasks.length-1; i>=0; i--)
+			tasks[i].fork();
+		
+		for(int i=0; i<tasks.length; i++)
+		{
+			tasks[i].join();
+			tasks[i].buffer.replayTo(sink);
+			tasks[i].buffer = null;		//item sets replayed, free the buffer
+		}
+	}
+}
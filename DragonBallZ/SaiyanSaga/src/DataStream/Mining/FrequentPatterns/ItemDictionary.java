@@ -0,0 +1,144 @@
+package DataStream.Mining.FrequentPatterns;
+
+/*
+ * Dictionary shared by the FP-Tree and CanTree code base.
+ *
+ * Description:
+ * - 	Maps every item token to a dense integer id (0, 1, 2, ... in order of first appearance).
+ * 		Items are encoded once at ingest; trees, nodes and header tables only deal with these ids.
+ *
+ * -	Ids are decoded back to the original tokens only when frequent item sets are emitted.
+ *
+ * -	A conditional tree always shares the dictionary of the tree it was projected from.
+ *
+ * -	Encoding is synchronized, decoding is not: the tokens are published through a volatile array,
+ * 		so a mining thread can decode the ids it was handed (e.g. with a CanTree snapshot) while new items are encoded.
+ *
+ * -	The id of an item that left the stream can be released (see release()) and is handed out again to a new item,
+ * 		so that over an unbounded stream the ids, and the arrays indexed by id, stay bounded by the items in use.
+ * 		Whoever caches ids across a release (e.g. a TransactionTokenizer) checks getReleaseCount() and looks the tokens up again.
+ * 		An item set handed to an ItemsetSink is only valid until the next release: it is decoded by the sink before the next slide.
+ */
+
+import java.util.Arrays;
+import java.util.Hashtable;
+
+public class ItemDictionary {
+	private Hashtable<String,Integer> item_ids;		//token -> id
+	private volatile String[] items;				//id -> token, replaced by a larger copy when full
+	private volatile int size;
+	private int[] free_ids;							//released ids, handed out again before new ones
+	private int free_count;
+	private volatile int releases;					//number of released ids so far
+
+	public ItemDictionary()
+	{
+		item_ids = new Hashtable<String,Integer>();
+		items = new String[16];
+		size = 0;
+		free_ids = new int[16];
+		free_count = 0;
+		releases = 0;
+	}
+
+	/*
+	 * Returns the id of the item, assigning a released id (or the next free id) if the item is seen for the first time.
+	 */
+	public synchronized int encode(String item)
+	{
+		Integer id = item_ids.get(item);
+		if(id == null)
+		{
+			if(free_count > 0)
+			{
+				id = free_ids[--free_count];
+				items[id] = item;
+			}
+			else
+			{
+				id = size;
+				if(id == items.length)
+					items = Arrays.copyOf(items, 2 * items.length);
+				items[id] = item;
+				size = id + 1;		//published after the token
+			}
+			item_ids.put(item, id);
+		}
+		return id;
+	}
+
+	/*
+	 * Forgets the item behind the id, the id is handed out again to the next new item.
+	 * Nothing may hold the id any more (no tree node, window or queued slide), cached ids are stale afterwards (see getReleaseCount()).
+	 */
+	public synchronized void release(int id)
+	{
+		String item = items[id];
+		if(item == null)	//released already
+			return;
+		item_ids.remove(item);
+		items[id] = null;
+		if(free_count == free_ids.length)
+			free_ids = Arrays.copyOf(free_ids, 2 * free_ids.length);
+		free_ids[free_count++] = id;
+		releases++;
+	}
+
+	//changes whenever an id is released: ids cached before (token -> id) must be looked up again
+	public int getReleaseCount()
+	{
+		return releases;
+	}
+
+	//number of ids held by items (assigned and not released)
+	public synchronized int getItemCount()
+	{
+		return size - free_count;
+	}
+
+	/*
+	 * Encodes a list of tokens (e.g. a split transaction), skipping empty tokens.
+	 */
+	public int[] encode(String[] tokens)
+	{
+		int[] ids = new int[tokens.length];
+		int len = 0;
+		for(int i=0; i<tokens.length; i++)
+			if(tokens[i].length() > 0)
+				ids[len++] = encode(tokens[i]);
+
+		if(len == ids.length)
+			return ids;
+		int[] trimmed = new int[len];
+		System.arraycopy(ids, 0, trimmed, 0, len);
+		return trimmed;
+	}
+
+	//returns the id of an already encoded item, -1 if the item was never seen
+	public int getId(String item)
+	{
+		Integer id = item_ids.get(item);
+		return (id == null) ? -1 : id;
+	}
+
+	//token of the id, null if the id was released
+	public String decode(int id)
+	{
+		return items[id];
+	}
+
+	//bound of the ids (every id is below it, released ones included): the size of the arrays indexed by id
+	public int size()
+	{
+		return size;
+	}
+
+	//lexicographic order of the tokens behind two ids (canonical order of the CanTree)
+	public int compare(int id1, int id2)
+	{
+		if(id1 == id2)
+			return 0;
+		String[] tokens = items;
+		return tokens[id1].compareTo(tokens[id2]);
+	}
+}
@@ -3,28 +3,28 @@ package DataStream.Mining.FrequentPatterns;
 import java.util.Comparator;
 
 public class ItemElement implements Comparable<ItemElement> {
-	private String item;
+	private int item;
 	private int frequency;
 	
 	public ItemElement() 
 	{
-		item = null;
+		item = FPTreeNode.ROOT_ITEM;
 		frequency = 0;
 	}
 	
-	public ItemElement(String item, int frequency) 
+	public ItemElement(int item, int frequency) 
 	{
 		this.item = item;
 		this.frequency = frequency;
 	}
 	
-	public ItemElement(String item) 
+	public ItemElement(int item) 
 	{
 		this.item = item;
 		this.frequency = 0;
 	}
 	
-	public String getItem() 
+	public int getItem() 
 	{
 		return item;
 	}
@@ -40,35 +40,49 @@ public class ItemElement implements Comparable<ItemElement> {
 		if (this.getFrequency() != ie.getFrequency())
 			return ie.getFrequency() - this.getFrequency(); //sort in descending order of frequencies
 		else 
-			return (this.getItem()).compareTo(ie.getItem()); //if frequencies are equal, use lexicographic order
+			return this.getItem() - ie.getItem(); //if frequencies are equal, use the order of item ids
 	}
 	
 	@Override
-	public String toString() 	//<item>:<frequency>
+	public String toString() 	//<item id>:<frequency>
 	{
 		return item + ":" + frequency + " ";
 	}
+	
+	/*
+	 * Explicitly writing the comparator for the sort order of items in the FP-Tree header table
+	 * 1. descending order of frequencies 
+	 * 2. if frequencies are equal, then use lexicographic order of the items behind the ids
+	 */ 
+	static class FrequencyComparator implements Comparator<ItemElement> {
+		private ItemDictionary dictionary;
+		
+		public FrequencyComparator(ItemDictionary dictionary)
+		{
+			this.dictionary = dictionary;
+		}
+		
+		public int compare(ItemElement ie1, ItemElement ie2) 
+		{
+			if(ie1.getFrequency() != ie2.getFrequency())
+				return ie2.getFrequency() - ie1.getFrequency();
+			else
+				return dictionary.compare(ie1.getItem(), ie2.getItem());
+		}
+	}
+	
+	//Comparator for lexicographic sorting 
+	static class LexicographicComparator implements Comparator<ItemElement> {
+		private ItemDictionary dictionary;
+		
+		public LexicographicComparator(ItemDictionary dictionary)
+		{
+			this.dictionary = dictionary;
+		}
+		
+		public int compare(ItemElement ie1, ItemElement ie2) 
+		{
+			return dictionary.compare(ie1.getItem(), ie2.getItem());
+		}
+	}
 }
-
-/*
- * Explicitly writing the comparator for the default sort order of items 
- * 1. descending order of frequencies 
- * 2. if frequencies are equal, then use lexicographic order 
- */ 
-class ItemElementFrequencyComparator implements Comparator<ItemElement> {
-    public int compare(ItemElement ie1, ItemElement ie2) 
-    {
-    	if(ie1.getFrequency() != ie2.getFrequency())
-    		return ie2.getFrequency() - ie1.getFrequency();
-    	else
-    		return (ie1.getItem()).compareTo(ie2.getItem());
-    }
-} 
-
-//Comparator for lexicographic sorting 
-class ItemElementLexicographicComparator implements Comparator<ItemElement> {
-  public int compare(ItemElement ie1, ItemElement ie2) 
-  {
-  	return (ie1.getItem()).compareTo(ie2.getItem());
-  }
-} 
\ No newline at end of file
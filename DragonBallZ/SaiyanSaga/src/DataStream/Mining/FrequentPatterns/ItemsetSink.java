@@ -0,0 +1,38 @@
+package DataStream.Mining.FrequentPatterns;
+
+/*
+ * Receiver of the frequent item sets mined by FPTree, CanTree and the stream miners.
+ * 
+ * Description:
+ * - 	A mining run (e.g. the mining of one window) starts with startMining() and ends with endMining().
+ * 		In between, every frequent item set is handed over to itemset() as item ids, along with its support.
+ * 
+ * -	The items array is the reusable prefix buffer of the miner: only items[0..length) is valid, 
+ * 		and it is overwritten as soon as itemset() returns. A sink keeping item sets has to copy them.
+ * 
+ * -	Items are in the order they were added to the prefix (same order as the former textual output).
+ * 
+ * -	The ids of a stream miner are only valid until the next slide: the ids of the items gone from the window are handed out again
+ * 		(see BaselineItemsetMining.reclaimItemIds()). A sink keeping item sets across slides keeps them decoded.
+ * 
+ * -	Built-in sinks:
+ * 		1) CountingItemsetSink		-> discards the item sets, only counts them (single paths without enumerating them).
+ * 		2) CollectingItemsetSink	-> keeps all the item sets in memory (primitive buffers).
+ * 		3) TextItemsetSink			-> writes " item item ... : support" lines to a file or stream, through a buffer.
+ * 		4) AsyncItemsetSink			-> hands the item sets over to another sink running on a writer thread, through a bounded queue.
+ * 
+ * -	A sink implementing SinglePathItemsetSink receives the combinations of a single path in compact form (see SinglePath).
+ * 
+ * -	A sink is only called by one thread at a time, also when mining in parallel.
+ */
+
+public interface ItemsetSink {
+	
+	//a mining run starts, item ids are decoded with the given dictionary
+	public void startMining(ItemDictionary dictionary);
+	
+	public void itemset(int[] items, int length, int support);
+	
+	//the mining run is complete, buffered item sets must be flushed
+	public void endMining();
+}
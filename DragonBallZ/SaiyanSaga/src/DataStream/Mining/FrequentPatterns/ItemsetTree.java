@@ -0,0 +1,142 @@
+package DataStream.Mining.FrequentPatterns;
+
+/*
+ * Prefix tree of the closed (CFI-tree) or maximal (MFI-tree) item sets found so far, for the subset checking of FPClose/FPMax.
+ * 
+ * Based on the paper:
+ * Grahne G, Zhu J (2003) 
+ * Efficiently using prefix-trees in mining frequent itemsets. 
+ * In: Proceeding of the 2003 FIMI workshop, Melbourne, FL
+ * 
+ * Description:
+ * - 	Item sets are inserted with their items in a fixed order (the header order of the mined tree), 
+ * 		so items of higher rank are deeper in the tree. Every node keeps its depth, and the largest support 
+ * 		of the item sets passing through it (CFI-tree).
+ * 
+ * -	Nodes of the same item are chained by node links, the chain of an item starts at its most recently added node.
+ * 
+ * -	hasSuperset() looks for an item set containing the given one: only the node links of its item of highest rank are followed,
+ * 		and every candidate node is checked by walking up to the root.
+ * 
+ * -	Nodes are kept in a NodeArena (no object per node).
+ */
+
+import java.util.Arrays;
+
+public class ItemsetTree {
+	private FPTreeHeaderTable order;	//rank of every item, i.e. its position in the header table of the mined tree
+	private NodeArena storage;			//frequency of a node = largest support of the item sets passing through it
+	private int[] depth;				//node -> number of items on the path from the root
+	private int[] last_node;			//item id -> most recently added node of the item (head of its node-link chain)
+	private int[] sorted;				//scratch space, item set sorted by rank
+	private int size;					//number of item sets in the tree
+	
+	public ItemsetTree(FPTreeHeaderTable order)
+	{
+		this.order = order;
+		storage = new NodeArena();
+		depth = new int[64];
+		last_node = new int[0];
+		sorted = new int[16];
+		size = 0;
+	}
+	
+	//number of item sets inserted
+	public int size()
+	{
+		return size;
+	}
+	
+	/*
+	 * Checks if an item set of the tree contains items[0..length) and has at least support [min_support].
+	 * The item sets themselves count as well (FPClose/FPMax only check sets which are not in the tree yet).
+	 */
+	public boolean hasSuperset(int[] items, int length, int min_support)
+	{
+		if(length == 0)
+			return size > 0;
+		sortByRank(items, length);
+		
+		int last = sorted[length-1];
+		if(last >= last_node.length)
+			return false;
+		for(int node=last_node[last]; node!=TreeStorage.NULL_NODE; node=storage.getNextNode(node))
+		{
+			if(depth[node] < length || storage.getFrequency(node) < min_support)
+				continue;
+			
+			//the ancestors of node have to contain sorted[0..length-1), ranks decrease on the way up
+			int i = length-2;
+			for(int tmp=storage.getParent(node); i>=0 && tmp!=storage.getRoot(); tmp=storage.getParent(tmp))
+			{
+				int item = storage.getItem(tmp);
+				if(item == sorted[i])
+					i--;
+				else if(precedes(item, sorted[i]))		//passed the wanted item, it is not on this path
+					break;
+			}
+			if(i < 0)
+				return true;
+		}
+		return false;
+	}
+	
+	//inserts the item set items[0..length) with its support
+	public void insert(int[] items, int length, int support)
+	{
+		sortByRank(items, length);
+		
+		int node = storage.getRoot();
+		for(int i=0; i<length; i++)
+		{
+			int child = storage.findChild(node, sorted[i]);
+			if(child == TreeStorage.NULL_NODE)
+			{
+				child = storage.addChild(node, sorted[i], support);
+				if(child >= depth.length)
+					depth = Arrays.copyOf(depth, 2*child);
+				depth[child] = i+1;
+				
+				int item = sorted[i];
+				if(item >= last_node.length)
+				{
+					int old_length = last_node.length;
+					last_node = Arrays.copyOf(last_node, Math.max(item+1, 2*old_length));
+					Arrays.fill(last_node, old_length, last_node.length, TreeStorage.NULL_NODE);
+				}
+				storage.setNextNode(child, last_node[item]);	//new node becomes the head of the chain
+				last_node[item] = child;
+			}
+			else if(storage.getFrequency(child) < support)
+				storage.incrementFrequency(child, support - storage.getFrequency(child));
+			node = child;
+		}
+		size++;
+	}
+	
+	//copies the item set into the scratch buffer, in ascending rank (insertion sort, item sets are short)
+	private void sortByRank(int[] items, int length)
+	{
+		if(sorted.length < length)
+			sorted = new int[Math.max(length, 2*sorted.length)];
+		for(int i=0; i<length; i++)
+		{
+			int item = items[i];
+			int j = i-1;
+			while(j >= 0 && precedes(item, sorted[j]))
+			{
+				sorted[j+1] = sorted[j];
+				j--;
+			}
+			sorted[j+1] = item;
+		}
+	}
+	
+	//order of the items in the tree: by rank, items without a rank (e.g. prefix items not in the header table) first, by id
+	private boolean precedes(int item1, int item2)
+	{
+		int rank1 = order.getPosition(item1);
+		int rank2 = order.getPosition(item2);
+		return rank1 < rank2 || (rank1 == rank2 && item1 < item2);
+	}
+}
@@ -0,0 +1,52 @@
+package DataStream.Mining.FrequentPatterns;
+
+/*
+ * In-process length batch window, the native counterpart of Esper's win:length_batch([slide size]).
+ *
+ * Description:
+ * - 	Same physical semantics: the transactions are buffered until slide_length of them have arrived,
+ * 		then the whole batch is delivered to the listener at once and the next batch starts empty.
+ * 		An incomplete batch at the end of the stream is never delivered.
+ *
+ * -	Transactions are delivered as the Transaction events they arrived as (items already encoded), in order of arrival: 
+ * 		no reflection and no parsing of the event text in the loop.
+ */
+
+public class LengthBatchWindow {
+	private int slide_length;
+	private Transaction[] batch;		//transactions of the current batch
+	private int count;
+	private SlideListener listener;
+	
+	public LengthBatchWindow(int slide_length, SlideListener listener)
+	{
+		this.slide_length = Math.max(slide_length, 1);
+		this.listener = listener;
+		batch = new Transaction[this.slide_length];
+		count = 0;
+	}
+	
+	public int getSlideLength()
+	{
+		return slide_length;
+	}
+	
+	//transactions waiting for their batch to be complete
+	public int pending()
+	{
+		return count;
+	}
+	
+	//a new transaction arrives, the batch is delivered once complete
+	public void add(Transaction transaction)
+	{
+		batch[count++] = transaction;
+		if(count == slide_length)
+		{
+			Transaction []slide = batch;
+			batch = new Transaction[slide_length];	//the listener may keep the delivered batch
+			count = 0;
+			listener.update(slide);
+		}
+	}
+}
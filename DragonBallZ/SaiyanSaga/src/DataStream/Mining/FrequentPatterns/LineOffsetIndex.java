@@ -0,0 +1,179 @@
+package DataStream.Mining.FrequentPatterns;
+
+/*
+ * Index of the byte offsets of the lines (transactions) of a text transaction file.
+ *
+ * Description:
+ * - 	Built with one scan of the bytes of the file (no decoding, no Strings) and saved next to it, as [file].idx:
+ * 		magic number, length and modification time of the file, number of lines, offset of every line.
+ * 		The saved index is reused as long as the file keeps its length and modification time, it is rebuilt otherwise.
+ * 		If it cannot be saved (e.g. read-only directory), the index is only kept in memory.
+ *
+ * -	openAt() seeks straight to a line, so the transactions [start_at, end_at] of the file are read
+ * 		without reading (and splitting) all the lines before them. streamAt() gives the bytes from there on (see TransactionTokenizer).
+ *
+ * -	Lines end with '\n' (or "\r\n"), a last line without newline counts as a line (as with BufferedReader.readLine()).
+ */
+
+import java.io.*;
+import java.util.Arrays;
+
+public class LineOffsetIndex {
+	static final String SUFFIX = ".idx";
+	static final int MAGIC = 0x89494458;
+	
+	private long[] offsets;		//start of every line, followed by the length of the file
+	private int line_count;
+	
+	private LineOffsetIndex(long[] offsets, int line_count)
+	{
+		this.offsets = offsets;
+		this.line_count = line_count;
+	}
+	
+	//number of lines of the file
+	public int size()
+	{
+		return line_count;
+	}
+	
+	//byte offset of line #line_no (from 1), the length of the file after the last line
+	public long getOffset(int line_no)
+	{
+		if(line_no <= 1)
+			return 0;
+		return offsets[Math.min(line_no - 1, line_count)];
+	}
+	
+	/*
+	 * Reader of the file positioned at the beginning of line #line_no (from 1).
+	 * No index is needed for the first line, otherwise the saved index is loaded (or built and saved).
+	 */
+	public static BufferedReader openAt(File file, int line_no) throws IOException
+	{
+		return new BufferedReader(new InputStreamReader(streamAt(file, line_no)));
+	}
+	
+	//same as above, the bytes of the file from line #line_no on (e.g. for a TransactionTokenizer)
+	public static InputStream streamAt(File file, int line_no) throws IOException
+	{
+		long offset = (line_no <= 1) ? 0 : forFile(file).getOffset(line_no);
+		FileInputStream fis = new FileInputStream(file);
+		try
+		{
+			fis.getChannel().position(offset);
+		}
+		catch(IOException ioe)
+		{
+			fis.close();
+			throw ioe;
+		}
+		return fis;
+	}
+	
+	//the index of the file, loaded from [file].idx if it is up to date, built (and saved) otherwise
+	public static LineOffsetIndex forFile(File file) throws IOException
+	{
+		File index_file = new File(file.getPath() + SUFFIX);
+		LineOffsetIndex index = load(index_file, file);
+		if(index != null)
+			return index;
+		
+		index = build(file);
+		try
+		{
+			index.save(index_file, file);
+		}
+		catch(IOException ioe)
+		{
+			index_file.delete();	//kept in memory only, no partial index left behind
+		}
+		return index;
+	}
+	
+	//one scan of the bytes of the file
+	public static LineOffsetIndex build(File file) throws IOException
+	{
+		long []offsets = new long[1024];
+		int count = 0;
+		long length = 0;
+		boolean line_started = false;	//bytes read since the last newline
+		
+		InputStream in = new FileInputStream(file);
+		try
+		{
+			byte []buffer = new byte[1 << 16];
+			int read;
+			while((read = in.read(buffer)) > 0)
+			{
+				for(int i=0; i<read; i++)
+				{
+					if(!line_started)
+					{
+						if(count + 1 == offsets.length)
+							offsets = Arrays.copyOf(offsets, 2 * offsets.length);
+						offsets[count++] = length + i;
+						line_started = true;
+					}
+					if(buffer[i] == '\n')
+						line_started = false;
+				}
+				length += read;
+			}
+		}
+		finally
+		{
+			in.close();
+		}
+		
+		offsets[count] = length;
+		return new LineOffsetIndex(offsets, count);
+	}
+	
+	//saved index of the file, null if there is none or if the file has changed since it was built
+	public static LineOffsetIndex load(File index_file, File file)
+	{
+		if(!index_file.isFile())
+			return null;
+		try
+		{
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(index_file), 1 << 16));
+			try
+			{
+				if(in.readInt() != MAGIC || in.readLong() != file.length() || in.readLong() != file.lastModified())
+					return null;
+				int count = in.readInt();
+				long []offsets = new long[count + 1];
+				for(int i=0; i<=count; i++)
+					offsets[i] = in.readLong();
+				return new LineOffsetIndex(offsets, count);
+			}
+			finally
+			{
+				in.close();
+			}
+		}
+		catch(IOException ioe)
+		{
+			return null;	//unreadable index, built again
+		}
+	}
+	
+	public void save(File index_file, File file) throws IOException
+	{
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(index_file), 1 << 16));
+		try
+		{
+			out.writeInt(MAGIC);
+			out.writeLong(file.length());
+			out.writeLong(file.lastModified());
+			out.writeInt(line_count);
+			for(int i=0; i<=line_count; i++)
+				out.writeLong(offsets[i]);
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+}
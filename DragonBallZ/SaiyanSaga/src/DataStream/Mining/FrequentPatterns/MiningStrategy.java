@@ -0,0 +1,29 @@
+package DataStream.Mining.FrequentPatterns;
+
+/*
+ * Mining strategies of FPTree and CanTree.
+ * 
+ * - 	FP_GROWTH		-> FP-growth (Han et al. 2000), a conditional tree is built for every frequent item.
+ * 
+ * -	FP_GROWTH_STAR	-> FP-growth* (Grahne & Zhu 2003), every conditional FP-tree also keeps an FP-array 
+ * 						   (triangular array of pair supports) filled while the tree is built. 
+ * 						   The FP-array tells which items of the next conditional pattern base are frequent,
+ * 						   so items without frequent extensions are not projected at all.
+ * 						   Small conditional pattern bases are mined directly (PatternBaseMiner), without a tree.
+ * 
+ * -	FP_CLOSE		-> FPClose (Grahne & Zhu 2003), only the closed frequent item sets are reported
+ * 						   (no proper superset has the same support). 
+ * 
+ * -	FP_MAX			-> FPMax (Grahne & Zhu 2003), only the maximal frequent item sets are reported
+ * 						   (no proper superset is frequent).
+ * 
+ * 						   FP_CLOSE and FP_MAX check every candidate against the item sets found so far (ItemsetTree),
+ * 						   a conditional tree whose item sets are all covered by a found one is not built at all.
+ */
+
+public enum MiningStrategy {
+	FP_GROWTH,
+	FP_GROWTH_STAR,
+	FP_CLOSE,
+	FP_MAX
+}
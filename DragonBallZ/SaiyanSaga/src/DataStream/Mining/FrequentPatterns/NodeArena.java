@@ -0,0 +1,499 @@
+package DataStream.Mining.FrequentPatterns;
+
+/*
+ * Struct-of-arrays tree storage.
+ * 
+ * Description:
+ * - 	Every node is an index into growable primitive arrays 
+ * 		(item id, count, parent, first child, next sibling, node link), the root is at 0.
+ * 		So a tree with millions of nodes is only a handful of arrays for the garbage collector.
+ * 
+ * -	Children of a node form a singly linked list through first_child/next_sibling.
+ * 		Children of nodes with a fanout above FPTreeNode.CHILD_INDEX_THRESHOLD are also indexed 
+ * 		in an open addressing hash table keyed by (parent, item), shared by the whole arena.
+ * 
+ * -	Detached nodes are given back with freeNode(): their handles are chained into a free list 
+ * 		(through next_sibling) and reused by the next added children. 
+ * 		compact() moves the live nodes to the front of the arrays and shrinks them.
+ * 
+ * -	Conditional trees take their arena from a per-thread pool (see newStorage()), 
+ * 		which is reset and reused between recursions instead of being reallocated.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class NodeArena implements TreeStorage {
+	private static final int INITIAL_CAPACITY = 1024;
+	private static final int FREED_NODE = -2;		//parent of a freed node
+	
+	private int[] items;
+	private int[] frequencies;
+	private int[] parents;
+	private int[] first_child;
+	private int[] next_sibling;
+	private int[] children_count;
+	private int[] node_links;
+	private int[] prev_links;		//previous node in the node-link chain
+	private int size;				//handles in use so far, freed ones included
+	private int free_list;			//head of the freed handles, chained through next_sibling
+	private int free_count;
+	private int[] index_parents;	//hashed child index: (parent, item) -> child, for high fanout parents only
+	private int[] index_items;
+	private int[] index_children;	//NULL_NODE for an empty slot
+	private int index_size;
+	private boolean pooled;		//true if the arena belongs to a per-thread pool
+	
+	public NodeArena()
+	{
+		this(INITIAL_CAPACITY);
+	}
+	
+	public NodeArena(int capacity)
+	{
+		capacity = Math.max(capacity, 1);
+		items = new int[capacity];
+		frequencies = new int[capacity];
+		parents = new int[capacity];
+		first_child = new int[capacity];
+		next_sibling = new int[capacity];
+		children_count = new int[capacity];
+		node_links = new int[capacity];
+		prev_links = new int[capacity];
+		index_parents = new int[0];
+		index_items = new int[0];
+		index_children = new int[0];
+		index_size = 0;
+		pooled = false;
+		reset();
+	}
+	
+	//drops all the nodes except a fresh root, the arrays are kept for reuse
+	public void reset()
+	{
+		size = 0;
+		free_list = NULL_NODE;
+		free_count = 0;
+		if(index_size > 0)
+		{
+			Arrays.fill(index_children, NULL_NODE);
+			index_size = 0;
+		}
+		newNode(FPTreeNode.ROOT_ITEM, 0, NULL_NODE);
+	}
+	
+	public int capacity()
+	{
+		return items.length;
+	}
+	
+	private int newNode(int item, int frequency, int parent)
+	{
+		int node;
+		if(free_list != NULL_NODE)		//reuse a freed handle
+		{
+			node = free_list;
+			free_list = next_sibling[node];
+			free_count--;
+		}
+		else
+		{
+			if(size == items.length)
+				grow();
+			node = size++;
+		}
+		items[node] = item;
+		frequencies[node] = frequency;
+		parents[node] = parent;
+		first_child[node] = NULL_NODE;
+		next_sibling[node] = NULL_NODE;
+		children_count[node] = 0;
+		node_links[node] = NULL_NODE;
+		prev_links[node] = NULL_NODE;
+		return node;
+	}
+	
+	private void grow()
+	{
+		resize(2 * items.length);
+	}
+	
+	private void resize(int capacity)
+	{
+		items = Arrays.copyOf(items, capacity);
+		frequencies = Arrays.copyOf(frequencies, capacity);
+		parents = Arrays.copyOf(parents, capacity);
+		first_child = Arrays.copyOf(first_child, capacity);
+		next_sibling = Arrays.copyOf(next_sibling, capacity);
+		children_count = Arrays.copyOf(children_count, capacity);
+		node_links = Arrays.copyOf(node_links, capacity);
+		prev_links = Arrays.copyOf(prev_links, capacity);
+	}
+	
+	public int getRoot()
+	{
+		return 0;
+	}
+	
+	public int getItem(int node)
+	{
+		return items[node];
+	}
+	
+	public int getFrequency(int node)
+	{
+		return frequencies[node];
+	}
+	
+	public int getParent(int node)
+	{
+		return parents[node];
+	}
+	
+	public int getChildrenCount(int node)
+	{
+		return children_count[node];
+	}
+	
+	public int getFirstChild(int node)
+	{
+		return first_child[node];
+	}
+	
+	public int getNextSibling(int node)
+	{
+		return next_sibling[node];
+	}
+	
+	public int getChild(int node, int i)
+	{
+		int child = first_child[node];
+		while(i-- > 0 && child != NULL_NODE)
+			child = next_sibling[child];
+		return child;
+	}
+	
+	public int findChild(int node, int item)
+	{
+		if(children_count[node] > FPTreeNode.CHILD_INDEX_THRESHOLD)
+			return index_children[indexSlot(node, item)];
+		
+		for(int child = first_child[node]; child != NULL_NODE; child = next_sibling[child])
+			if(items[child] == item)
+				return child;
+		return NULL_NODE;
+	}
+	
+	public int addChild(int node, int item, int frequency)
+	{
+		int child = newNode(item, frequency, node);
+		next_sibling[child] = first_child[node];	//new child becomes the head of the sibling list
+		first_child[node] = child;
+		children_count[node]++;
+		
+		if(children_count[node] == FPTreeNode.CHILD_INDEX_THRESHOLD + 1)	//fanout crosses the threshold, index all the children
+		{
+			for(int c = child; c != NULL_NODE; c = next_sibling[c])
+				indexChild(node, c);
+		}
+		else if(children_count[node] > FPTreeNode.CHILD_INDEX_THRESHOLD)
+			indexChild(node, child);
+		return child;
+	}
+	
+	public int findOrAddChild(int node, int item, int delta)
+	{
+		int child = findChild(node, item);
+		if(child == NULL_NODE)
+			return addChild(node, item, delta);
+		frequencies[child] += delta;
+		return child;
+	}
+	
+	//first slot probed for the child (parent, item)
+	private int indexHome(int parent, int item)
+	{
+		int h = parent * 0x9E3779B9 + item * 0x85EBCA6B;
+		return (h ^ (h >>> 16)) & (index_children.length - 1);
+	}
+	
+	//slot holding the child (parent, item), or the empty slot where it would be inserted
+	private int indexSlot(int parent, int item)
+	{
+		int mask = index_children.length - 1;
+		int slot = indexHome(parent, item);
+		while(index_children[slot] != NULL_NODE && (index_parents[slot] != parent || index_items[slot] != item))
+			slot = (slot + 1) & mask;
+		return slot;
+	}
+	
+	private void indexChild(int parent, int child)
+	{
+		if(2 * (index_size + 1) > index_children.length)	//keep the load factor at most 1/2
+			growIndex();
+		int slot = indexSlot(parent, items[child]);
+		index_parents[slot] = parent;
+		index_items[slot] = items[child];
+		index_children[slot] = child;
+		index_size++;
+	}
+	
+	//remove the child (parent, item) from the index, the following entries of its probe sequence are shifted back
+	private void unindexChild(int parent, int item)
+	{
+		int mask = index_children.length - 1;
+		int hole = indexSlot(parent, item);
+		if(index_children[hole] == NULL_NODE)
+			return;
+		index_children[hole] = NULL_NODE;
+		index_size--;
+		
+		for(int slot = (hole + 1) & mask; index_children[slot] != NULL_NODE; slot = (slot + 1) & mask)
+		{
+			int home = indexHome(index_parents[slot], index_items[slot]);
+			if(((slot - home) & mask) >= ((slot - hole) & mask))	//the hole lies on the probe sequence of this entry
+			{
+				index_parents[hole] = index_parents[slot];
+				index_items[hole] = index_items[slot];
+				index_children[hole] = index_children[slot];
+				index_children[slot] = NULL_NODE;
+				hole = slot;
+			}
+		}
+	}
+	
+	private void growIndex()
+	{
+		int[] old_children = index_children;
+		int capacity = Math.max(8 * FPTreeNode.CHILD_INDEX_THRESHOLD, 2 * old_children.length);
+		index_parents = new int[capacity];
+		index_items = new int[capacity];
+		index_children = new int[capacity];
+		Arrays.fill(index_children, NULL_NODE);
+		for(int i=0; i<old_children.length; i++)
+			if(old_children[i] != NULL_NODE)
+			{
+				int child = old_children[i];
+				int slot = indexSlot(parents[child], items[child]);
+				index_parents[slot] = parents[child];
+				index_items[slot] = items[child];
+				index_children[slot] = child;
+			}
+	}
+	
+	public int getNextNode(int node)
+	{
+		return node_links[node];
+	}
+	
+	public void setNextNode(int node, int next_node)
+	{
+		node_links[node] = next_node;
+		if(next_node != NULL_NODE)
+			prev_links[next_node] = node;
+	}
+	
+	public int getPrevNode(int node)
+	{
+		return prev_links[node];
+	}
+	
+	public void unlinkNode(int node)
+	{
+		int prev = prev_links[node];
+		int next = node_links[node];
+		if(prev != NULL_NODE)
+			node_links[prev] = next;
+		if(next != NULL_NODE)
+			prev_links[next] = prev;
+		prev_links[node] = NULL_NODE;
+		node_links[node] = NULL_NODE;
+	}
+	
+	public void removeChild(int node, int child)
+	{
+		if(children_count[node] > FPTreeNode.CHILD_INDEX_THRESHOLD)
+		{
+			unindexChild(node, items[child]);
+			if(children_count[node] == FPTreeNode.CHILD_INDEX_THRESHOLD + 1)	//fanout falls back to the threshold, the sibling list is scanned again
+				for(int c = first_child[node]; c != NULL_NODE; c = next_sibling[c])
+					unindexChild(node, items[c]);
+		}
+		
+		if(first_child[node] == child)
+			first_child[node] = next_sibling[child];
+		else
+		{
+			int c = first_child[node];
+			while(next_sibling[c] != child)
+				c = next_sibling[c];
+			next_sibling[c] = next_sibling[child];
+		}
+		next_sibling[child] = NULL_NODE;
+		parents[child] = NULL_NODE;
+		children_count[node]--;
+	}
+	
+	public void freeNode(int node)
+	{
+		int parent = parents[node];
+		if(parent >= 0 && children_count[parent] > FPTreeNode.CHILD_INDEX_THRESHOLD 
+				&& index_children[indexSlot(parent, items[node])] == node)	//still indexed under a parent freed along with it
+			unindexChild(parent, items[node]);
+		parents[node] = FREED_NODE;
+		next_sibling[node] = free_list;
+		free_list = node;
+		free_count++;
+	}
+	
+	public void incrementFrequency(int node, int delta)
+	{
+		frequencies[node] += delta;
+	}
+	
+	public int size()
+	{
+		return size - free_count;
+	}
+	
+	public int freeCount()
+	{
+		return free_count;
+	}
+	
+	public int[] compact()
+	{
+		int []handles = new int[size];
+		int live = 0;
+		for(int node=0; node<size; node++)
+			handles[node] = (parents[node] == FREED_NODE) ? NULL_NODE : live++;
+		
+		for(int node=0; node<size; node++)	//live nodes only move towards the front, in place
+		{
+			int to = handles[node];
+			if(to == NULL_NODE)
+				continue;
+			items[to] = items[node];
+			frequencies[to] = frequencies[node];
+			parents[to] = remap(handles, parents[node]);
+			first_child[to] = remap(handles, first_child[node]);
+			next_sibling[to] = remap(handles, next_sibling[node]);
+			children_count[to] = children_count[node];
+			node_links[to] = remap(handles, node_links[node]);
+			prev_links[to] = remap(handles, prev_links[node]);
+		}
+		size = live;
+		free_list = NULL_NODE;
+		free_count = 0;
+		if(items.length > 2 * Math.max(size, INITIAL_CAPACITY))
+			resize(Math.max(size + size / 2, INITIAL_CAPACITY));
+		
+		if(index_size > 0)	//hashed child index re-keyed with the new handles
+		{
+			int[] old_parents = index_parents;
+			int[] old_children = index_children;
+			index_parents = new int[old_children.length];
+			index_children = new int[old_children.length];
+			Arrays.fill(index_children, NULL_NODE);
+			for(int i=0; i<old_children.length; i++)
+				if(old_children[i] != NULL_NODE)
+				{
+					int child = handles[old_children[i]];
+					int slot = indexSlot(handles[old_parents[i]], items[child]);
+					index_parents[slot] = handles[old_parents[i]];
+					index_items[slot] = items[child];
+					index_children[slot] = child;
+				}
+		}
+		return handles;
+	}
+	
+	private static int remap(int[] handles, int node)
+	{
+		return (node == NULL_NODE) ? NULL_NODE : handles[node];
+	}
+	
+	//the copy is sized to the handles in use and does not belong to any pool
+	public TreeStorage copy()
+	{
+		NodeArena arena = new NodeArena(size);
+		System.arraycopy(items, 0, arena.items, 0, size);
+		System.arraycopy(frequencies, 0, arena.frequencies, 0, size);
+		System.arraycopy(parents, 0, arena.parents, 0, size);
+		System.arraycopy(first_child, 0, arena.first_child, 0, size);
+		System.arraycopy(next_sibling, 0, arena.next_sibling, 0, size);
+		System.arraycopy(children_count, 0, arena.children_count, 0, size);
+		System.arraycopy(node_links, 0, arena.node_links, 0, size);
+		System.arraycopy(prev_links, 0, arena.prev_links, 0, size);
+		arena.size = size;
+		arena.free_list = free_list;
+		arena.free_count = free_count;
+		arena.index_parents = index_parents.clone();
+		arena.index_items = index_items.clone();
+		arena.index_children = index_children.clone();
+		arena.index_size = index_size;
+		return arena;
+	}
+	
+	public TreeStorage newStorage()
+	{
+		return NodeArenaPool.acquire();
+	}
+	
+	//a new arena, left to the garbage collector once released
+	public TreeStorage newUnpooledStorage()
+	{
+		return new NodeArena();
+	}
+	
+	public void release()
+	{
+		if(pooled)
+			NodeArenaPool.release(this);
+	}
+	
+	void setPooled(boolean pooled)
+	{
+		this.pooled = pooled;
+	}
+}
+
+/*
+ * Per-thread stack of arenas for conditional trees.
+ * Conditional trees are built and mined depth first, so an arena is always released 
+ * before the one acquired just ahead of it; the arena at each depth is reset and reused.
+ */
+class NodeArenaPool {
+	private static final ThreadLocal<NodeArenaPool> pools = new ThreadLocal<NodeArenaPool>() {
+		@Override
+		protected NodeArenaPool initialValue()
+		{
+			return new NodeArenaPool();
+		}
+	};
+	
+	private ArrayList<NodeArena> arenas = new ArrayList<NodeArena>();
+	private int in_use = 0;
+	
+	static NodeArena acquire()
+	{
+		NodeArenaPool pool = pools.get();
+		if(pool.in_use == pool.arenas.size())	//going deeper than ever before on this thread
+		{
+			NodeArena arena = new NodeArena();
+			arena.setPooled(true);
+			pool.arenas.add(arena);
+		}
+		NodeArena arena = pool.arenas.get(pool.in_use++);
+		arena.reset();
+		return arena;
+	}
+	
+	static void release(NodeArena arena)
+	{
+		NodeArenaPool pool = pools.get();
+		if(pool.in_use == 0 || pool.arenas.get(pool.in_use-1) != arena)
+			throw new IllegalStateException("Conditional tree arenas must be released in reverse order of acquisition!");
+		pool.in_use--;
+	}
+}
@@ -0,0 +1,354 @@
+package DataStream.Mining.FrequentPatterns;
+
+/* Based on the paper:
+ * Li H, Wang Y, Zhang D, Zhang M, Chang EY (2008)
+ * PFP: Parallel FP-growth for query recommendation.
+ * In: Proceedings of the 2008 ACM Conference on Recommender Systems, Lausanne
+ *
+ * Description:
+ * - 	FP-growth of the transactions of a text file (or of a range of its lines) spread over worker JVMs on the same host,
+ * 		which share files in a work directory. No FP-tree of the whole database is built, by any process.
+ *
+ * -	The coordinator (this class) counts the items and sorts the frequent ones as the header table of an FPTree
+ * 		(descending frequency, ties in token order): the F-list. The item at position r of the F-list goes to group r % [group count].
+ *
+ * -	Group-dependent shards: every transaction is sorted in F-list order (infrequent items left out),
+ * 		and for every group with an item in it, the transaction up to the last item of the group is written to the shard of the group.
+ * 		The shard of a group holds the whole conditional pattern base of every item of the group.
+ *
+ * -	Every worker (see ParallelFPGrowthWorker) builds an FPTree per group from its shard, with the F-list as header table,
+ * 		and mines only the header elements of the items of the group (see FPTree.minePatternsEndingWith()).
+ * 		Each frequent item set is mined by exactly one group: the group of its last item in F-list order.
+ *
+ * -	The results of the workers are read back in the order of the F-list, so the item sets reported to the sink are the same,
+ * 		and in the same order, as those of minePatternsByFPGrowth() on the FPTree of the same transactions
+ * 		(unless that FPTree is a single path, which is mined as combinations, in another order).
+ *
+ * -	Work files:
+ * 		1) items.txt				-> tokens of the F-list, one per line.
+ * 		2) shard-[group].dat		-> the group-dependent transactions, as text lines (same format as the input file).
+ * 		3) result-[group].bin		-> for every item of the group (descending position): position, number of item sets,
+ * 									   then every item set: length, positions of its items, support.
+ */
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ParallelFPGrowth {
+	static final String ITEM_ORDER_FILE = "items.txt";
+	static final int BUFFER_SIZE = 1 << 16;
+	
+	private File inputfile;
+	private int start_at;				//first line of the transactions
+	private int end_at;					//last line of the transactions (Integer.MAX_VALUE: till the end of the file)
+	private int support_threshold;
+	private int worker_count;			//worker processes started per mining
+	private int group_count;			//item groups, every worker mines the groups #worker, #worker + worker_count, ...
+	private String worker_heap;			//maximum heap size of a worker (-Xmx), null for the default of the JVM
+	private File work_parent;			//the work directory is created in there (null: the default temporary directory)
+	private ItemDictionary dictionary;	//item tokens <-> item ids of the coordinator
+	private int[] item_order;			//F-list: ids of the frequent items, by position
+	private ItemsetSink sink;			//frequent item sets are reported here (null until first used: text lines on System.out)
+	
+	//FP-growth of all the transactions of the input file, with [worker_count] worker processes
+	public ParallelFPGrowth(File inputfile, int support, int worker_count)
+	{
+		this(inputfile, support, 1, Integer.MAX_VALUE, worker_count);
+	}
+	
+	//Same as above, with the transactions between line no [start_at] and line no [end_at] only (e.g. a window)
+	public ParallelFPGrowth(File inputfile, int support, int start_at, int end_at, int worker_count)
+	{
+		if(worker_count < 1)
+			throw new IllegalArgumentException("At least one worker is needed: " + worker_count);
+		
+		this.inputfile = inputfile;
+		this.start_at = start_at;
+		this.end_at = end_at;
+		this.support_threshold = support;
+		this.worker_count = worker_count;
+		this.group_count = worker_count;
+		this.worker_heap = null;
+		this.work_parent = null;
+		this.dictionary = new ItemDictionary();
+		this.item_order = new int[0];
+		this.sink = null;
+	}
+	
+	//more groups than workers make smaller trees, spread more evenly over the workers (one group per worker by default)
+	public void setGroupCount(int group_count)
+	{
+		if(group_count < worker_count)
+			throw new IllegalArgumentException("Every worker needs a group: " + group_count + " groups, " + worker_count + " workers");
+		this.group_count = group_count;
+	}
+	
+	//maximum heap size of every worker, as given to -Xmx (e.g. "2g")
+	public void setWorkerHeap(String worker_heap)
+	{
+		this.worker_heap = worker_heap;
+	}
+	
+	//the shards and results are written in a new directory in there (e.g. a local disk with room for them)
+	public void setWorkDirectory(File work_parent)
+	{
+		this.work_parent = work_parent;
+	}
+	
+	//frequent item sets are printed to System.out as text lines, unless another sink is set here
+	public void setItemsetSink(ItemsetSink sink)
+	{
+		this.sink = sink;
+	}
+	
+	public ItemsetSink getItemsetSink()
+	{
+		if(sink == null)
+			sink = new TextItemsetSink(System.out);
+		return sink;
+	}
+	
+	public ItemDictionary getItemDictionary()
+	{
+		return this.dictionary;
+	}
+	
+	/*
+	 * Mines all the frequent item sets of the transactions, extending the item set curr (e.g. "" for all of them).
+	 * The work directory is deleted afterwards.
+	 */
+	public void minePatternsByFPGrowth(String curr)
+	{
+		File work_dir = null;
+		try
+		{
+			work_dir = (work_parent == null) ? Files.createTempDirectory("pfp").toFile() : Files.createTempDirectory(work_parent.toPath(), "pfp").toFile();
+			countItems();
+			int groups = Math.max(1, Math.min(group_count, item_order.length));	//no group without items
+			writeShards(work_dir, groups);
+			runWorkers(work_dir, groups);
+			readResults(work_dir, groups, curr);
+		}
+		catch(IOException ioe)
+		{
+			System.out.println("Error! Parallel FP-growth failed ! "+ioe.toString());
+		}
+		finally
+		{
+			if(work_dir != null)
+				deleteWorkDirectory(work_dir);
+		}
+	}
+	
+	//the transactions of the range, tokenized with the dictionary of the coordinator
+	private TransactionTokenizer openTransactions() throws IOException
+	{
+		return new TransactionTokenizer(LineOffsetIndex.streamAt(inputfile, start_at), dictionary);	//seek to line [start_at] (see LineOffsetIndex)
+	}
+	
+	//first scan: the F-list, as the header table of an FPTree
+	private void countItems() throws IOException
+	{
+		int []items_frequency = new int[0];
+		TransactionTokenizer tokenizer = openTransactions();
+		int line_no = Math.max(start_at, 1) - 1;
+		while(line_no < end_at && tokenizer.next())
+		{
+			line_no++;
+			int []items = tokenizer.getItems();
+			for(int i=0; i<tokenizer.size(); i++)
+			{
+				if(items[i] >= items_frequency.length)
+					items_frequency = Arrays.copyOf(items_frequency, Math.max(items[i]+1, 2*items_frequency.length));
+				items_frequency[items[i]]++;
+			}
+		}
+		tokenizer.close();
+		
+		item_order = FPTree.frequentItemOrder(items_frequency, support_threshold, dictionary);	//same order as the header table of an FPTree
+	}
+	
+	//second scan: the F-list and the group-dependent shards
+	private void writeShards(File work_dir, int groups) throws IOException
+	{
+		String []tokens = new String[item_order.length];
+		int []position = new int[dictionary.size()];	//position of every item id in the F-list, -1 if infrequent
+		Arrays.fill(position, -1);
+		for(int r=0; r<item_order.length; r++)
+		{
+			tokens[r] = dictionary.decode(item_order[r]);
+			position[item_order[r]] = r;
+		}
+		
+		Writer order_out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(new File(work_dir, ITEM_ORDER_FILE)), "UTF-8"));
+		for(int r=0; r<tokens.length; r++)
+		{
+			order_out.write(tokens[r]);
+			order_out.write('\n');
+		}
+		order_out.close();
+		
+		Writer []shards = new Writer[groups];
+		try
+		{
+			for(int g=0; g<groups; g++)
+				shards[g] = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(shardFile(work_dir, g)), "UTF-8"), BUFFER_SIZE);
+			
+			int []ranks = new int[16];
+			int []written = new int[groups];		//last transaction written to every shard (from 1)
+			int transaction = 0;
+			TransactionTokenizer tokenizer = openTransactions();
+			int line_no = Math.max(start_at, 1) - 1;
+			while(line_no < end_at && tokenizer.next())
+			{
+				line_no++;
+				transaction++;
+				int []items = tokenizer.getItems();
+				if(ranks.length < tokenizer.size())
+					ranks = new int[Math.max(tokenizer.size(), 2 * ranks.length)];
+				int len = 0;
+				for(int i=0; i<tokenizer.size(); i++)
+					if(position[items[i]] >= 0)		//frequent item
+						ranks[len++] = position[items[i]];
+				Arrays.sort(ranks, 0, len);
+				
+				for(int j=len-1; j>=0; j--)		//from the last item: the prefix up to the last item of every group
+				{
+					int g = ranks[j] % groups;
+					if(written[g] == transaction)
+						continue;
+					written[g] = transaction;
+					Writer shard = shards[g];
+					for(int k=0; k<=j; k++)
+					{
+						if(k > 0)
+							shard.write(' ');
+						shard.write(tokens[ranks[k]]);
+					}
+					shard.write('\n');
+				}
+			}
+			tokenizer.close();
+		}
+		finally
+		{
+			for(int g=0; g<groups; g++)
+				if(shards[g] != null)
+					shards[g].close();
+		}
+	}
+	
+	//starts the workers (same java and classpath as this JVM) and waits for all of them
+	private void runWorkers(File work_dir, int groups) throws IOException
+	{
+		int workers = Math.min(worker_count, groups);
+		String java = new File(new File(System.getProperty("java.home"), "bin"), "java").getPath();
+		Process []processes = new Process[workers];
+		try
+		{
+			for(int w=0; w<workers; w++)
+			{
+				List<String> command = new ArrayList<String>();
+				command.add(java);
+				if(worker_heap != null)
+					command.add("-Xmx" + worker_heap);
+				command.add("-cp");
+				command.add(System.getProperty("java.class.path"));
+				command.add(ParallelFPGrowthWorker.class.getName());
+				command.add(work_dir.getPath());
+				command.add(Integer.toString(support_threshold));
+				command.add(Integer.toString(groups));
+				command.add(Integer.toString(w));
+				command.add(Integer.toString(workers));
+				processes[w] = new ProcessBuilder(command).inheritIO().start();
+			}
+			
+			for(int w=0; w<workers; w++)
+			{
+				int exit_code = processes[w].waitFor();
+				if(exit_code != 0)
+					throw new IOException("Worker #" + w + " exited with code " + exit_code);
+			}
+		}
+		catch(InterruptedException ie)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the workers");
+		}
+		finally
+		{
+			for(int w=0; w<workers; w++)	//workers still running after a failure
+				if(processes[w] != null)
+					processes[w].destroy();
+		}
+	}
+	
+	//results of the groups, replayed into the sink in the order of minePatternsByFPGrowth(): last item of the F-list first
+	private void readResults(File work_dir, int groups, String curr) throws IOException
+	{
+		String []prefix_tokens = FPTree.prefixTokens(curr);
+		int []prefix = FPTree.prefixBuffer(dictionary, prefix_tokens, item_order.length);
+		int length = prefix_tokens.length;
+		
+		DataInputStream []results = new DataInputStream[groups];
+		ItemsetSink sink = getItemsetSink();
+		sink.startMining(dictionary);
+		try
+		{
+			for(int g=0; g<groups && g<item_order.length; g++)
+				results[g] = new DataInputStream(new BufferedInputStream(new FileInputStream(resultFile(work_dir, g)), BUFFER_SIZE));
+			
+			for(int r=item_order.length-1; r>=0; r--)
+			{
+				DataInputStream in = results[r % groups];
+				if(in.readInt() != r)
+					throw new IOException("Unexpected item in the results of group #" + (r % groups));
+				int count = in.readInt();
+				for(int n=0; n<count; n++)
+				{
+					int size = in.readInt();
+					for(int i=0; i<size; i++)
+						prefix[length + i] = item_order[in.readInt()];
+					sink.itemset(prefix, length + size, in.readInt());
+				}
+			}
+		}
+		finally
+		{
+			sink.endMining();
+			for(int g=0; g<groups; g++)
+				if(results[g] != null)
+					results[g].close();
+		}
+	}
+	
+	static File shardFile(File work_dir, int group)
+	{
+		return new File(work_dir, "shard-" + group + ".dat");
+	}
+	
+	static File resultFile(File work_dir, int group)
+	{
+		return new File(work_dir, "result-" + group + ".bin");
+	}
+	
+	private static void deleteWorkDirectory(File work_dir)
+	{
+		File []files = work_dir.listFiles();
+		if(files != null)
+			for(int i=0; i<files.length; i++)
+				files[i].delete();
+		work_dir.delete();
+	}
+	
+	public static void main(String args[])
+	{
+		File file = new File("data/T10I4D100K.dat");
+		
+		ParallelFPGrowth pfp = new ParallelFPGrowth(file,150,90001,100000,2);	//same window as FPTree.main()
+		pfp.minePatternsByFPGrowth("");
+	}
+}
@@ -0,0 +1,101 @@
+package DataStream.Mining.FrequentPatterns;
+
+/*
+ * Worker process of ParallelFPGrowth: mines the item groups assigned to it, from their shards in the work directory.
+ *
+ * Description:
+ * - 	For every group, an FPTree is built from the shard of the group, with the F-list of the coordinator as header table
+ * 		(so the items are ordered as in the whole database), and the header elements of the items of the group are mined,
+ * 		from the last one to the first one (see FPTree.minePatternsEndingWith()).
+ *
+ * -	The item sets of every item are collected, then written to the result file of the group, as positions in the F-list.
+ * 		The tree of a group is released before the next group is mined.
+ *
+ * - 	java ParallelFPGrowthWorker [work directory] [support] [group count] [first group] [group step]
+ * 		mines the groups #[first group], #[first group] + [group step], ...
+ * 		The exit code is 0 if all of them were mined, 1 otherwise.
+ */
+
+import java.io.*;
+import java.util.ArrayList;
+
+public class ParallelFPGrowthWorker {
+	
+	//F-list written by the coordinator
+	static String[] readItemOrder(File work_dir) throws IOException
+	{
+		ArrayList<String> tokens = new ArrayList<String>();
+		BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(new File(work_dir, ParallelFPGrowth.ITEM_ORDER_FILE)), "UTF-8"));
+		String line = null;
+		while((line = br.readLine()) != null)
+			tokens.add(line);
+		br.close();
+		return tokens.toArray(new String[tokens.size()]);
+	}
+	
+	//builds the tree of the group and writes the item sets of all its items
+	static void mineGroup(File work_dir, String[] item_order, int support, int groups, int group) throws IOException
+	{
+		File shard = ParallelFPGrowth.shardFile(work_dir, group);
+		if(!shard.canRead())	//the tree would be built without transactions
+			throw new FileNotFoundException("Missing shard: " + shard.getPath());
+		FPTree tree = new FPTree(shard, support, item_order, new FPTreeNodeStorage());
+		FPTreeHeaderTable header_table = tree.getFPTreeHeaderTable();
+		CollectingItemsetSink collected = new CollectingItemsetSink();
+		tree.setItemsetSink(collected);
+		
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(ParallelFPGrowth.resultFile(work_dir, group)), ParallelFPGrowth.BUFFER_SIZE));
+		try
+		{
+			int last = item_order.length - 1;
+			for(int r = last - ((last - group) % groups); r>=0; r-=groups)	//last item of the group first
+			{
+				collected.clear();
+				tree.minePatternsEndingWith("", header_table.get(r).getItem());
+				
+				out.writeInt(r);
+				out.writeInt(collected.size());
+				for(int n=0; n<collected.size(); n++)
+				{
+					int []items = collected.getItems(n);
+					out.writeInt(items.length);
+					for(int i=0; i<items.length; i++)
+						out.writeInt(header_table.getPosition(items[i]));
+					out.writeInt(collected.getSupport(n));
+				}
+			}
+		}
+		finally
+		{
+			out.close();
+			tree.release();
+		}
+	}
+	
+	public static void main(String args[])
+	{
+		if(args.length < 5)
+		{
+			System.out.println("Usage: java ParallelFPGrowthWorker [work directory] [support] [group count] [first group] [group step]");
+			System.exit(1);
+		}
+		
+		File work_dir = new File(args[0]);
+		int support = Integer.parseInt(args[1]);
+		int groups = Integer.parseInt(args[2]);
+		int first_group = Integer.parseInt(args[3]);
+		int step = Integer.parseInt(args[4]);
+		
+		try
+		{
+			String []item_order = readItemOrder(work_dir);
+			for(int g=first_group; g<groups; g+=step)
+				mineGroup(work_dir, item_order, support, groups, g);
+		}
+		catch(IOException ioe)
+		{
+			System.out.println("Error! Cannot mine the item groups ! "+ioe.toString());
+			System.exit(1);
+		}
+	}
+}
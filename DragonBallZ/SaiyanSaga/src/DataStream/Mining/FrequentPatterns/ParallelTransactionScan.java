@@ -0,0 +1,404 @@
+package DataStream.Mining.FrequentPatterns;
+
+/*
+ * Parallel scans of a text transaction file (one transaction per line, items separated by white space).
+ *
+ * Description:
+ * - 	The file (or a range of its lines, see LineOffsetIndex) is split into chunks of whole lines,
+ * 		every chunk is mapped (read-only) and tokenized by its own TransactionTokenizer, on the threads of a ForkJoinPool.
+ * 		All the tokenizers encode with the same dictionary (encoding is synchronized, each tokenizer encodes a token once).
+ *
+ * -	countItems() is the counting scan: the items of every chunk are counted in a local int array (indexed by item id),
+ * 		the counts of the chunks are summed while the tasks join. No shared counter, no lock.
+ *
+ * -	begin() starts the tokenizing scan: the chunks are tokenized in parallel (a few chunks ahead of the reader)
+ * 		into buffers of item ids, next() then goes through the transactions in the order of the file (on the calling thread),
+ * 		getItems() with getStart()/getEnd() give the items of the current transaction (as with a WindowStore).
+ * 		The items of a transaction are optionally sorted in the canonical order of the CanTree while they are tokenized.
+ *
+ * -	openChunk() gives the tokenizer of a single chunk, e.g. for a task building a partition tree out of it (see FPTree.secondScan()).
+ *
+ * -	The chunks are mapped one by one, so the file may be larger than 2 GB (a chunk is not).
+ */
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveTask;
+
+public class ParallelTransactionScan {
+	static final int MIN_CHUNK_SIZE = 1 << 20;		//bytes of text per chunk, at least (unless the file is smaller)
+	static final int MAX_CHUNK_SIZE = 1 << 23;		//at most (bounds the ids buffered ahead of the reader)
+	static final int CHUNKS_PER_THREAD = 4;			//to even out the load of the threads
+	
+	private File file;
+	private ItemDictionary dictionary;
+	private ForkJoinPool pool;
+	private long[] bounds;					//chunk #c holds the bytes [bounds[c], bounds[c+1]) of the file, whole lines
+	
+	//tokenizing scan (see begin())
+	private ArrayList<Future<EncodedChunk>> pending;	//chunks being tokenized, in the order of the file
+	private int next_chunk;					//next chunk to be submitted
+	private EncodedChunk chunk;				//chunk being read
+	private int transaction;				//current transaction in the chunk
+	private boolean canonical;				//items sorted in the canonical order of the CanTree
+	
+	//scans of all the lines of the file
+	public ParallelTransactionScan(File file, ItemDictionary dictionary, ForkJoinPool pool) throws IOException
+	{
+		this(file, 0, file.length(), dictionary, pool);
+	}
+	
+	//scans of the lines [start_at] to [end_at] (both inclusive) of the file, found with its LineOffsetIndex
+	public ParallelTransactionScan(File file, int start_at, int end_at, ItemDictionary dictionary, ForkJoinPool pool) throws IOException
+	{
+		this(file, rangeStart(file, start_at), rangeEnd(file, end_at), dictionary, pool);
+	}
+	
+	private ParallelTransactionScan(File file, long from, long to, ItemDictionary dictionary, ForkJoinPool pool) throws IOException
+	{
+		this.file = file;
+		this.dictionary = dictionary;
+		this.pool = pool;
+		this.bounds = split(file, from, Math.max(from, to), pool.getParallelism());
+		this.pending = new ArrayList<Future<EncodedChunk>>();
+		this.next_chunk = 0;
+		this.chunk = null;
+		this.transaction = 0;
+		this.canonical = false;
+	}
+	
+	public ItemDictionary getItemDictionary()
+	{
+		return dictionary;
+	}
+	
+	public ForkJoinPool getPool()
+	{
+		return pool;
+	}
+	
+	public int getChunkCount()
+	{
+		return bounds.length - 1;
+	}
+	
+	private static long rangeStart(File file, int start_at) throws IOException
+	{
+		return (start_at <= 1) ? 0 : LineOffsetIndex.forFile(file).getOffset(start_at);
+	}
+	
+	private static long rangeEnd(File file, int end_at) throws IOException
+	{
+		return (end_at == Integer.MAX_VALUE) ? file.length() : LineOffsetIndex.forFile(file).getOffset(end_at + 1);
+	}
+	
+	/*
+	 * Chunk bounds of the bytes [from, to): every bound (but the first and the last) is moved forward to the start of a line.
+	 */
+	private static long[] split(File file, long from, long to, int parallelism) throws IOException
+	{
+		long chunk_size = (to - from) / Math.max(1, parallelism * CHUNKS_PER_THREAD);
+		chunk_size = Math.min(Math.max(chunk_size, MIN_CHUNK_SIZE), MAX_CHUNK_SIZE);
+		
+		long []bounds = new long[16];
+		int count = 0;
+		bounds[count++] = from;
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try
+		{
+			FileChannel channel = raf.getChannel();
+			ByteBuffer probe = ByteBuffer.allocate(4096);
+			long bound = from + chunk_size;
+			while(bound < to)
+			{
+				bound = startOfLine(channel, probe, bound, to);
+				if(bound >= to)
+					break;
+				if(count + 1 == bounds.length)
+					bounds = Arrays.copyOf(bounds, 2 * bounds.length);
+				bounds[count++] = bound;
+				bound += chunk_size;
+			}
+		}
+		finally
+		{
+			raf.close();
+		}
+		bounds[count++] = to;
+		return Arrays.copyOf(bounds, count);
+	}
+	
+	//first byte at or after position that starts a line (to if there is none before it)
+	private static long startOfLine(FileChannel channel, ByteBuffer probe, long position, long to) throws IOException
+	{
+		long at = position - 1;		//the line starts right after a newline
+		while(at < to)
+		{
+			probe.clear();
+			int read = channel.read(probe, at);
+			if(read <= 0)
+				return to;
+			for(int i=0; i<read; i++)
+				if(probe.get(i) == '\n')
+					return at + i + 1;
+			at += read;
+		}
+		return to;
+	}
+	
+	//tokenizer of the lines of chunk #c (from 0, in the order of the file), read from its mapping
+	public TransactionTokenizer openChunk(int c) throws IOException
+	{
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try
+		{
+			MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, bounds[c], bounds[c + 1] - bounds[c]);
+			return new TransactionTokenizer(new ByteBufferInputStream(buffer), dictionary);
+		}
+		finally
+		{
+			raf.close();	//the mapping stays valid
+		}
+	}
+	
+	/*
+	 * Counting scan: the number of transactions containing every item (indexed by item id, at least dictionary.size() long).
+	 * A transaction listing an item twice counts it twice, as FPTree.extractItems() does.
+	 */
+	public int[] countItems() throws IOException
+	{
+		try
+		{
+			int []counts = pool.invoke(new CountTask(0, getChunkCount()));
+			return (counts.length >= dictionary.size()) ? counts : Arrays.copyOf(counts, dictionary.size());
+		}
+		catch(RuntimeException re)		//IOException of a counting task
+		{
+			for(Throwable cause = re; cause != null; cause = cause.getCause())
+				if(cause instanceof IOException)
+					throw (IOException) cause;
+			throw re;
+		}
+	}
+	
+	//counts the items of the chunks [from, to), splitting the range in halves down to a single chunk
+	private class CountTask extends RecursiveTask<int[]> {
+		private static final long serialVersionUID = 1L;
+		
+		private int from;
+		private int to;
+		
+		CountTask(int from, int to)
+		{
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		protected int[] compute()
+		{
+			if(to - from > 1)
+			{
+				int middle = (from + to) >>> 1;
+				CountTask right = new CountTask(middle, to);
+				right.fork();
+				int []left_counts = new CountTask(from, middle).compute();
+				int []right_counts = right.join();
+				
+				int []sum = (left_counts.length >= right_counts.length) ? left_counts : right_counts;	//the counts of the smaller array are added to the larger one
+				int []other = (sum == left_counts) ? right_counts : left_counts;
+				for(int item=0; item<other.length; item++)
+					sum[item] += other[item];
+				return sum;
+			}
+			
+			int []counts = new int[Math.max(dictionary.size(), 16)];
+			if(from == to)
+				return counts;
+			try
+			{
+				TransactionTokenizer tokenizer = openChunk(from);
+				while(tokenizer.next())
+				{
+					int []items = tokenizer.getItems();
+					for(int i=0; i<tokenizer.size(); i++)
+					{
+						int item = items[i];
+						if(item >= counts.length)	//item id encoded after this count started (possibly by another thread)
+							counts = Arrays.copyOf(counts, Math.max(item+1, 2*counts.length));
+						counts[item]++;
+					}
+				}
+				tokenizer.close();
+			}
+			catch(IOException ioe)
+			{
+				throw new RuntimeException(ioe);	//thrown again by countItems()
+			}
+			return counts;
+		}
+	}
+	
+	/*
+	 * Starts the tokenizing scan (again), see next().
+	 * If canonical is true, the items of every transaction are sorted in the canonical order of the CanTree.
+	 */
+	public void begin(final boolean canonical)
+	{
+		cancel();
+		int ahead = pool.getParallelism() + 1;		//chunks tokenized ahead of the reader
+		while(next_chunk < getChunkCount() && pending.size() < ahead)
+			submit(next_chunk++, canonical);
+		this.canonical = canonical;
+	}
+	
+	private void submit(final int c, final boolean canonical)
+	{
+		pending.add(pool.submit(new Callable<EncodedChunk>() {
+			@Override
+			public EncodedChunk call() throws IOException
+			{
+				return encode(c, canonical);
+			}
+		}));
+	}
+	
+	//tokenizes chunk #c into a buffer of item ids
+	private EncodedChunk encode(int c, boolean canonical) throws IOException
+	{
+		EncodedChunk encoded = new EncodedChunk((int) ((bounds[c + 1] - bounds[c]) / 4));	//about 4 bytes of text per item (grown if needed)
+		TransactionTokenizer tokenizer = openChunk(c);
+		while(tokenizer.next())
+		{
+			if(canonical)
+				tokenizer.sortCanonical();
+			encoded.add(tokenizer.getItems(), tokenizer.size());
+		}
+		tokenizer.close();
+		return encoded;
+	}
+	
+	/*
+	 * Moves to the next transaction of the file, false once all of them were read.
+	 * The chunk after the last one tokenized ahead is submitted as soon as a chunk is taken.
+	 */
+	public boolean next() throws IOException
+	{
+		transaction++;
+		while(chunk == null || transaction >= chunk.size)
+		{
+			if(pending.isEmpty())
+			{
+				chunk = null;
+				return false;
+			}
+			try
+			{
+				chunk = pending.remove(0).get();
+			}
+			catch(InterruptedException ie)
+			{
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("scan interrupted");
+			}
+			catch(ExecutionException ee)
+			{
+				if(ee.getCause() instanceof IOException)
+					throw (IOException) ee.getCause();
+				throw new IOException(ee.getCause());
+			}
+			if(next_chunk < getChunkCount())
+				submit(next_chunk++, canonical);
+			transaction = 0;
+		}
+		return true;
+	}
+	
+	//buffer holding the items of the current transaction, valid until the next chunk is reached
+	public int[] getItems()
+	{
+		return chunk.items;
+	}
+	
+	//start of the items of the current transaction in the buffer
+	public int getStart()
+	{
+		return chunk.starts[transaction];
+	}
+	
+	//end (exclusive) of the items of the current transaction in the buffer
+	public int getEnd()
+	{
+		return chunk.starts[transaction + 1];
+	}
+	
+	//stops the tokenizing scan, the chunks tokenized ahead are dropped
+	public void cancel()
+	{
+		for(int i=0; i<pending.size(); i++)
+			pending.get(i).cancel(false);
+		pending.clear();
+		next_chunk = 0;
+		chunk = null;
+		transaction = 0;
+	}
+	
+	//item ids of the transactions of a chunk, one transaction after the other
+	private static class EncodedChunk {
+		int[] items;
+		int[] starts;		//start of every transaction, followed by the end of the last one
+		int size;			//transactions
+		
+		EncodedChunk(int item_capacity)
+		{
+			items = new int[Math.max(item_capacity, 16)];
+			starts = new int[1024];
+			size = 0;
+		}
+		
+		void add(int[] transaction, int len)
+		{
+			int start = starts[size];
+			if(start + len > items.length)
+				items = Arrays.copyOf(items, Math.max(start + len, 2 * items.length));
+			System.arraycopy(transaction, 0, items, start, len);
+			if(size + 2 > starts.length)
+				starts = Arrays.copyOf(starts, 2 * starts.length);
+			starts[++size] = start + len;
+		}
+	}
+	
+	//the bytes of a mapped chunk, read by its TransactionTokenizer
+	private static class ByteBufferInputStream extends InputStream {
+		private ByteBuffer buffer;
+		
+		ByteBufferInputStream(ByteBuffer buffer)
+		{
+			this.buffer = buffer;
+		}
+		
+		@Override
+		public int read()
+		{
+			return buffer.hasRemaining() ? (buffer.get() & 0xFF) : -1;
+		}
+		
+		@Override
+		public int read(byte[] b, int off, int len)
+		{
+			if(!buffer.hasRemaining())
+				return -1;
+			len = Math.min(len, buffer.remaining());
+			buffer.get(b, off, len);
+			return len;
+		}
+	}
+}
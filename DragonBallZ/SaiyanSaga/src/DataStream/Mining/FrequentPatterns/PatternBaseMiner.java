@@ -0,0 +1,157 @@
+package DataStream.Mining.FrequentPatterns;
+
+/*
+ * Mines a small conditional pattern base directly, without building a conditional tree (used by FP-growth*).
+ *
+ * Description:
+ * - 	The frequent items of the base are renamed to local ids 0..m-1 (in the order of their header positions)
+ * 		and every path is copied into flat int buffers, keeping its frequent items only in ascending local id order.
+ *
+ * -	Then the base is mined by recursive projection on these buffers:
+ * 		for item x (from the last to the first), the paths containing x are projected on their items before x.
+ *
+ * -	For a handful of paths this is cheaper than creating a header table and a tree for every projection.
+ */
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PatternBaseMiner {
+	private int support_threshold;
+	private ItemsetSink sink;		//frequent item sets are reported here
+	private int[] local_items;		//local id -> item id
+	private int[] pattern;			//item set being extended, the prefix followed by one local item per recursion level
+
+	//performance measurement counter
+	static final AtomicInteger pattern_base_mining_calls = new AtomicInteger();	//small conditional pattern bases mined without a tree
+
+	public PatternBaseMiner(int support, ItemsetSink sink)
+	{
+		this.support_threshold = support;
+		this.sink = sink;
+	}
+
+	/*
+	 * Reports all the frequent item sets of the base, each one extending the item set prefix[0..length).
+	 */
+	public void mine(ConditionalPatternBase cond_pattern_base, int[] prefix, int length)
+	{
+		int position_count = cond_pattern_base.getPositionCount();
+		int []local_id = new int[position_count];		//header position -> local id, -1 if infrequent
+		int []frequency = new int[position_count];
+		int m = 0;
+		for(int position=0; position<position_count; position++)
+		{
+			int freq = cond_pattern_base.getFrequency(position);
+			if(freq>0 && freq>=support_threshold)
+			{
+				local_id[position] = m;
+				frequency[m++] = freq;
+			}
+			else
+				local_id[position] = -1;
+		}
+		if(m == 0)
+			return;
+
+		local_items = new int[m];
+		for(int position=0; position<position_count; position++)
+			if(local_id[position] >= 0)
+				local_items[local_id[position]] = cond_pattern_base.getItem(position);
+
+		int paths = cond_pattern_base.size();
+		int []positions = cond_pattern_base.getPositions();
+		int []items = new int[cond_pattern_base.getPathEnd(paths-1)];
+		int []ends = new int[paths];
+		int []counts = new int[paths];
+		int len = 0;
+		int npaths = 0;
+		for(int n=0; n<paths; n++)
+		{
+			int start = len;
+			//paths are traced upwards (descending header positions), reading them backwards gives ascending local ids
+			for(int i=cond_pattern_base.getPathEnd(n)-1; i>=cond_pattern_base.getPathStart(n); i--)
+				if(local_id[positions[i]] >= 0)
+					items[len++] = local_id[positions[i]];
+			if(len == start)
+				continue;
+			ends[npaths] = len;
+			counts[npaths++] = cond_pattern_base.getCount(n);
+		}
+
+		if(pattern == null || pattern.length < length + m)
+			pattern = new int[length + m];
+		System.arraycopy(prefix, 0, pattern, 0, length);
+		mine(items, ends, counts, npaths, frequency, m, length);
+		pattern_base_mining_calls.incrementAndGet();
+	}
+
+	/*
+	 * Recursive projection: paths [items, ends, counts] hold local ids in ascending order,
+	 * frequency[x] is the support of item x (x < m) in these paths.
+	 */
+	private void mine(int[] items, int[] ends, int[] counts, int npaths, int[] frequency, int m, int length)
+	{
+		for(int x=m-1; x>=0; x--)
+		{
+			if(frequency[x] < support_threshold)
+				continue;
+
+			pattern[length] = local_items[x];
+			sink.itemset(pattern, length+1, frequency[x]);	//report frequent item set containing this item
+
+			if(x == 0)
+				continue;
+
+			//support of the items before x, in the paths containing x
+			int []proj_frequency = new int[x];
+			int proj_len = 0;
+			int proj_paths = 0;
+			boolean frequent = false;
+			for(int n=0, start=0; n<npaths; start=ends[n], n++)
+			{
+				int end = containsAt(items, start, ends[n], x);
+				if(end < 0)
+					continue;
+				for(int i=start; i<end; i++)
+					if((proj_frequency[items[i]] += counts[n]) >= support_threshold)
+						frequent = true;
+				proj_len += end - start;
+				proj_paths++;
+			}
+			if(!frequent)		//no frequent extension of the pattern
+				continue;
+
+			//projected paths, with the frequent items before x only
+			int []proj_items = new int[proj_len];
+			int []proj_ends = new int[proj_paths];
+			int []proj_counts = new int[proj_paths];
+			int len = 0;
+			int npaths_proj = 0;
+			for(int n=0, start=0; n<npaths; start=ends[n], n++)
+			{
+				int end = containsAt(items, start, ends[n], x);
+				if(end < 0)
+					continue;
+				int path_start = len;
+				for(int i=start; i<end; i++)
+					if(proj_frequency[items[i]] >= support_threshold)
+						proj_items[len++] = items[i];
+				if(len == path_start)
+					continue;
+				proj_ends[npaths_proj] = len;
+				proj_counts[npaths_proj++] = counts[n];
+			}
+
+			mine(proj_items, proj_ends, proj_counts, npaths_proj, proj_frequency, x, length+1);
+		}
+	}
+
+	//index of item x in the (ascending) path items[start..end), -1 if the path does not contain x
+	private static int containsAt(int[] items, int start, int end, int x)
+	{
+		for(int i=start; i<end && items[i]<=x; i++)
+			if(items[i] == x)
+				return i;
+		return -1;
+	}
+}
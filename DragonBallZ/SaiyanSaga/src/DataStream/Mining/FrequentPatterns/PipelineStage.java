@@ -0,0 +1,194 @@
+package DataStream.Mining.FrequentPatterns;
+
+/*
+ * Stage of the slide processing pipeline (see BaselineItemsetMining.startPipeline()), running on its own thread.
+ *
+ * Description:
+ * - 	Items (e.g. parsed slides, window snapshots, collected item sets) are put into a bounded queue by the stage upstream
+ * 		and processed one at a time, in order. emit() hands a result over to the stage downstream.
+ * 		If a stage falls behind, the queue fills up and the stage upstream waits (back pressure).
+ *
+ * -	Every stage measures its busy time (processing) and its wait time (waiting for input, or for room downstream).
+ * 		The slowest stage is busy nearly all the time, the others wait for it.
+ *
+ * -	close() waits until everything queued so far is processed and stops the thread.
+ * 		awaitIdle() only waits, the stage keeps running (e.g. to update shared state between two slides).
+ *
+ * -	If process() throws, the stage stops processing: the items queued afterwards are dropped (so the stage upstream is never blocked),
+ * 		put() and close() throw an IllegalStateException caused by the failure. A failed slide is not handed over downstream,
+ * 		the stream is stopped instead of going on with a slide missing.
+ */
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+public abstract class PipelineStage<T> {
+	private static final Object STOP = new Object();	//queue marker
+	
+	private String name;
+	private BlockingQueue<Object> queue;
+	private Thread worker;
+	private long busy_time;			//nanoseconds spent processing
+	private long wait_time;			//nanoseconds spent waiting for input or for the stage downstream
+	private long emit_wait_time;	//waiting for the stage downstream, within the current item
+	private volatile RuntimeException failure;	//thrown by process(), null while the stage works
+	private int pending;			//items put and not processed (or dropped) yet, guarded by this
+	
+	public PipelineStage(String name, int queue_capacity)
+	{
+		this.name = name;
+		queue = new ArrayBlockingQueue<Object>(queue_capacity);
+		busy_time = 0;
+		wait_time = 0;
+		
+		worker = new Thread(new Runnable() {
+			public void run()
+			{
+				processLoop();
+			}
+		}, name + "-stage");
+		worker.setDaemon(true);
+		worker.start();
+	}
+	
+	//processes one item on the thread of the stage
+	protected abstract void process(T item);
+	
+	public String getName()
+	{
+		return name;
+	}
+	
+	//busy time in milliseconds, final once the stage is closed
+	public long getBusyTime()
+	{
+		return busy_time / 1000000;
+	}
+	
+	//wait time in milliseconds, final once the stage is closed
+	public long getWaitTime()
+	{
+		return wait_time / 1000000;
+	}
+	
+	//queues an item for this stage, waits while the queue is full, throws if the stage failed
+	public void put(T item)
+	{
+		checkFailure();
+		synchronized(this)
+		{
+			pending++;
+		}
+		enqueue(item);
+	}
+	
+	//hands a result over to the next stage, the time spent waiting for room there counts as wait time of this stage
+	protected <U> void emit(PipelineStage<U> next, U item)
+	{
+		long start = System.nanoTime();
+		next.put(item);
+		emit_wait_time += System.nanoTime() - start;
+	}
+	
+	/*
+	 * Waits until all the items queued so far are processed and stops the thread, the stage must not be used afterwards.
+	 * Throws if one of the items could not be processed.
+	 */
+	public void close()
+	{
+		enqueue(STOP);
+		try
+		{
+			worker.join();
+		}
+		catch(InterruptedException ie)
+		{
+			Thread.currentThread().interrupt();
+		}
+		checkFailure();
+	}
+	
+	/*
+	 * Waits until all the items queued so far are processed, the stage goes on running.
+	 * Throws if one of the items could not be processed.
+	 */
+	public synchronized void awaitIdle()
+	{
+		try
+		{
+			while(pending > 0)
+				wait();
+		}
+		catch(InterruptedException ie)
+		{
+			Thread.currentThread().interrupt();
+		}
+		checkFailure();
+	}
+	
+	private synchronized void itemDone()
+	{
+		if(--pending == 0)
+			notifyAll();
+	}
+	
+	private void checkFailure()
+	{
+		if(failure != null)
+			throw new IllegalStateException("The "+name+" stage failed", failure);
+	}
+	
+	private void enqueue(Object item)
+	{
+		try
+		{
+			queue.put(item);
+		}
+		catch(InterruptedException ie)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private void processLoop()
+	{
+		while(true)
+		{
+			Object item;
+			long start = System.nanoTime();
+			try
+			{
+				item = queue.take();
+			}
+			catch(InterruptedException ie)
+			{
+				return;
+			}
+			long taken = System.nanoTime();
+			wait_time += taken - start;
+			
+			if(item == STOP)
+				return;
+			if(failure != null)
+			{
+				itemDone();		//dropped, the stage is stopped
+				continue;
+			}
+			
+			emit_wait_time = 0;
+			try
+			{
+				process((T) item);
+			}
+			catch(RuntimeException re)
+			{
+				failure = re;
+				System.out.println("Error! Cannot process the slide in the "+name+" stage! "+re.toString());
+			}
+			busy_time += System.nanoTime() - taken - emit_wait_time;
+			wait_time += emit_wait_time;
+			itemDone();
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package DataStream.Mining.FrequentPatterns;
+
+/*
+ * Enumeration of all the combinations of a single path of an FPTree/CanTree (the 2^n - 1 frequent item sets of an n item path).
+ * 
+ * Description:
+ * - 	The frequent part of the path is copied into two arrays, items and counts (top-down), cut at the first node below the support threshold:
+ * 		counts decrease along the path, so no deeper node can be frequent either.
+ * 
+ * -	A combination is given by its deepest node j and a bitmask over the nodes above it. Its support is counts[j],
+ * 		so the combinations are enumerated node by node, each node with all the 2^j bitmasks of the nodes above it.
+ * 		The item set buffer follows the bitmask as it is counted up (no recursion, no copy of the prefix).
+ * 
+ * -	A sink implementing SinglePathItemsetSink receives the path in this compact form instead,
+ * 		and may count it, keep it, or expand() it later.
+ * 
+ * -	Paths longer than MAX_LENGTH (bitmasks of a long) are enumerated recursively, in the same order.
+ * 		Their number of combinations is given as Long.MAX_VALUE (see combinations()).
+ */
+
+import java.util.Arrays;
+
+public class SinglePath {
+	public static final int MAX_LENGTH = 62;		//longest path enumerated with bitmasks (longs), longer ones are enumerated recursively
+	
+	/*
+	 * Reports all the combinations of the single path starting at node (down to its last node of frequency >= support),
+	 * each one extending prefix[0..length).
+	 */
+	static void mine(TreeStorage storage, int node, int support, int[] prefix, int length, ItemsetSink sink)
+	{
+		int path_length = 0;
+		for(int tmp=node; tmp!=TreeStorage.NULL_NODE && storage.getFrequency(tmp)>=support; tmp=nextNodeOnPath(storage, tmp))
+			path_length++;
+		if(path_length == 0)
+			return;
+		
+		int []items = new int[path_length];
+		int []counts = new int[path_length];
+		int tmp = node;
+		for(int i=0; i<path_length; i++, tmp=nextNodeOnPath(storage, tmp))
+		{
+			items[i] = storage.getItem(tmp);
+			counts[i] = storage.getFrequency(tmp);
+		}
+		
+		if(sink instanceof SinglePathItemsetSink)
+			((SinglePathItemsetSink) sink).singlePath(prefix, length, items, counts, path_length);
+		else
+			expand(prefix, length, items, counts, path_length, sink);
+	}
+	
+	/*
+	 * Hands the combinations of a single path (items[0..path_length) top-down, with their counts) over to the sink, 
+	 * each one extending prefix[0..length). Item sets with the deepest item j (support counts[j]) come after the ones with the deepest item j-1.
+	 */
+	public static void expand(int[] prefix, int length, int[] items, int[] counts, int path_length, ItemsetSink sink)
+	{
+		int []itemset = prefix;
+		if(itemset.length < length + path_length)		//the prefix buffer is extended in place, if it has room for the path
+			itemset = Arrays.copyOf(prefix, length + path_length);
+		
+		if(path_length > MAX_LENGTH)	//too long for the bitmasks
+		{
+			for(int j=0; j<path_length; j++)
+				expandSubsets(itemset, length, 0, j, items, counts[j], sink);
+			return;
+		}
+		
+		for(int j=0; j<path_length; j++)
+		{
+			//bit t of the mask stands for node j-1-t, so the nodes of the set bits are in path order from the highest bit down.
+			//Counting the mask up clears its trailing ones and sets the next bit: the deepest items are dropped and one is added,
+			//the itemset buffer is updated like a stack (constant amortised work per item set)
+			long masks = 1L << j;					//subsets of the nodes above j
+			int top = length;
+			itemset[top] = items[j];
+			sink.itemset(itemset, top+1, counts[j]);
+			for(long mask=1; mask<masks; mask++)
+			{
+				int t = Long.numberOfTrailingZeros(mask);
+				top -= t;							//bits 0..t-1 were set in mask-1
+				itemset[top++] = items[j-1-t];
+				itemset[top] = items[j];
+				sink.itemset(itemset, top+1, counts[j]);
+			}
+		}
+	}
+	
+	/*
+	 * Reports items[j] after every subset of the nodes [i, j), each one extending itemset[0..top),
+	 * in the order of the bitmasks of expand(): the subsets without node i come before the ones with node i.
+	 */
+	private static void expandSubsets(int[] itemset, int top, int i, int j, int[] items, int support, ItemsetSink sink)
+	{
+		if(i == j)
+		{
+			itemset[top] = items[j];
+			sink.itemset(itemset, top+1, support);
+			return;
+		}
+		expandSubsets(itemset, top, i+1, j, items, support, sink);		//without node i
+		itemset[top] = items[i];
+		expandSubsets(itemset, top+1, i+1, j, items, support, sink);	//with node i
+	}
+	
+	//number of combinations of a single path of path_length items, Long.MAX_VALUE if they are more (paths of 63 items or more)
+	public static long combinations(int path_length)
+	{
+		if(path_length >= Long.SIZE - 1)
+			return Long.MAX_VALUE;
+		return (1L << path_length) - 1;
+	}
+	
+	//the only child of a node on a single path, NULL_NODE at the end of the path
+	private static int nextNodeOnPath(TreeStorage storage, int node)
+	{
+		return (storage.getChildrenCount(node)==1) ? storage.getChild(node, 0) : TreeStorage.NULL_NODE;
+	}
+}
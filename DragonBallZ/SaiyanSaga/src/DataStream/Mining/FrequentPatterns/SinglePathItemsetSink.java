@@ -0,0 +1,17 @@
+package DataStream.Mining.FrequentPatterns;
+
+/*
+ * Item set sink receiving the combinations of a single path in compact form: the path with its counts, instead of 2^n - 1 item sets.
+ * 
+ * Description:
+ * - 	The path holds items[0..path_length) from the top of the tree down, counts[i] is the count of the ith node (counts decrease along the path).
+ * 		It stands for every non-empty subset of the path, extending prefix[0..length); the support of a subset is the count of its deepest item.
+ * 
+ * -	As with itemset(), the arrays are only valid during the call. 
+ * 		SinglePath.expand() turns the compact form into the item sets, e.g. when they are needed later.
+ */
+
+public interface SinglePathItemsetSink extends ItemsetSink {
+	
+	public void singlePath(int[] prefix, int length, int[] items, int[] counts, int path_length);
+}
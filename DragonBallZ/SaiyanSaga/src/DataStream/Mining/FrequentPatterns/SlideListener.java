@@ -0,0 +1,91 @@
+package DataStream.Mining.FrequentPatterns;
+
+/*
+ * Listener for the slides of the native length batch window (see LengthBatchWindow).
+ * Hands every slide over to the mining engine and logs the time taken to process the slides so far.
+ * If the engine pipelines the slides, a slide is logged by its output stage once it is written (see slideOutput()).
+ */
+
+import java.io.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+public class SlideListener {
+
+	BaselineItemsetMining db_engine;
+	long slide_no;
+	long running_time;
+	String output_filename;
+	ConcurrentLinkedQueue<Long> pending_slides;	//start times of the slides handed over to the pipeline, not output yet
+	long last_output_time;						//end of the last slide output by the pipeline
+	
+	public SlideListener(BaselineItemsetMining db_engine, String filename)
+	{
+		this.db_engine = db_engine;
+		slide_no = 0;
+		running_time = 0;
+		output_filename = filename;
+		pending_slides = new ConcurrentLinkedQueue<Long>();
+		last_output_time = 0;
+	}
+	
+	public void logData(String text)
+	{
+    	try 
+    	{
+    		BufferedWriter out = new BufferedWriter(new FileWriter(output_filename,true));
+    		out.append(text);
+    		out.close();
+    	}
+    	catch ( IOException e )
+    	{
+    		e.printStackTrace();
+    	}
+	}
+	
+	//transactions of a slide
+	public void update(Transaction[] transactions)
+	{
+		long startTime = slideArrived();
+		db_engine.slideWindow(transactions);
+		slideHandedOver(startTime);
+	}
+	
+	//a new slide arrives -> its start time, queued until its output if the slides are pipelined
+	protected long slideArrived()
+	{
+		long startTime = System.currentTimeMillis();
+		if(db_engine.isPipelined())
+			pending_slides.add(startTime);	//before the hand-over, the output stage may be done with the slide before slideWindow() returns
+		return startTime;
+	}
+	
+	//the slide was handed over to the engine -> processed already, unless it is pipelined (see slideOutput())
+	protected void slideHandedOver(long startTime)
+	{
+		if(!db_engine.isPipelined())
+			slideProcessed(startTime);
+	}
+	
+	/*
+	 * Called by the output stage of the pipeline once a slide is written -> logged with the time since its arrival,
+	 * or since the output of the previous slide if it arrived before (the time the slides overlap is counted once).
+	 */
+	public void slideOutput()
+	{
+		Long startTime = pending_slides.poll();
+		if(startTime == null)		//the slide did not come through this listener
+			return;
+		slideProcessed(Math.max(startTime, last_output_time));
+		last_output_time = System.currentTimeMillis();
+	}
+	
+	//new slide processed since startTime -> increment slide no. and log the running time
+	protected void slideProcessed(long startTime)
+	{
+		long endTime = System.currentTimeMillis();
+		slide_no++;
+		running_time += (endTime - startTime);
+		
+		logData(slide_no+" "+running_time+"\n");	//log computed time
+	}
+}
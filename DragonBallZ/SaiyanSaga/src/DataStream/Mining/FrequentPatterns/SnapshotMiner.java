@@ -0,0 +1,47 @@
+package DataStream.Mining.FrequentPatterns;
+
+/*
+ * Mining stage of the CanTree pipeline: mines the snapshots of a CanTree (see CanTree.snapshot()) on its own thread.
+ *
+ * Description:
+ * - 	The window update stage takes a snapshot at every slide boundary and queues it, then goes on
+ * 		with the insertions/removals of the next slide on the live CanTree while the snapshot is mined.
+ * 		So the sustained throughput is bounded by the slower of the two, not by their sum.
+ *
+ * -	Snapshots are mined one at a time, in the order they were submitted. Incremental mining carries
+ * 		the cached item sets from one snapshot over to the next (CanTree.takeCacheFrom()).
+ *
+ * -	At most one snapshot waits in the queue: if the mining falls behind, the update stage waits (back pressure),
+ * 		so no more than three copies of the tree (live, queued, being mined) are held at a time.
+ *
+ * -	mine() is given every snapshot on the mining thread, close() waits for the queued snapshots to be mined.
+ */
+
+public abstract class SnapshotMiner extends PipelineStage<CanTree> {
+	private CanTree previous;		//last snapshot mined, holding the cache of the incremental mining
+	
+	public SnapshotMiner()
+	{
+		super("mining", 1);
+		previous = null;
+	}
+	
+	//mines one snapshot (e.g. minePatterns("") into the item sets of the slide), runs on the mining thread
+	protected abstract void mine(CanTree snapshot);
+	
+	@Override
+	protected void process(CanTree snapshot)
+	{
+		if(previous != null)
+			snapshot.takeCacheFrom(previous);
+		previous = snapshot;
+		try
+		{
+			mine(snapshot);
+		}
+		finally
+		{
+			snapshot.release();		//nodes no longer needed, the cache is kept for the next snapshot
+		}
+	}
+}
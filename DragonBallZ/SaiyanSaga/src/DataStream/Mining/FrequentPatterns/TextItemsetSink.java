@@ -0,0 +1,99 @@
+package DataStream.Mining.FrequentPatterns;
+
+/*
+ * Item set sink writing every item set as a text line " <item> <item> ... : <support>" 
+ * (same format as the output printed by the miners so far).
+ * 
+ * Description:
+ * - 	Lines are written through a buffered writer, which is flushed at the end of every mining run.
+ * 		No String is concatenated per item set and the target stream is not synchronised on per item set.
+ * 
+ * -	Item ids are decoded with the dictionary of the current mining run.
+ */
+
+import java.io.*;
+
+public class TextItemsetSink implements ItemsetSink {
+	private static final int BUFFER_SIZE = 1 << 16;
+	
+	private Writer out;
+	private boolean owns_stream;		//true if the file was opened by this sink (closed by close())
+	private ItemDictionary dictionary;
+	private boolean failed;				//an error has already been reported
+	
+	//item sets written to the given stream (e.g. System.out), the stream is flushed but never closed by this sink
+	public TextItemsetSink(OutputStream stream)
+	{
+		out = new BufferedWriter(new OutputStreamWriter(stream), BUFFER_SIZE);
+		owns_stream = false;
+		failed = false;
+	}
+	
+	//item sets written to the file, append is true to keep the existing content of the file
+	public TextItemsetSink(File file, boolean append) throws IOException
+	{
+		out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, append)), BUFFER_SIZE);
+		owns_stream = true;
+		failed = false;
+	}
+	
+	public void startMining(ItemDictionary dictionary)
+	{
+		this.dictionary = dictionary;
+	}
+	
+	public void itemset(int[] items, int length, int support)
+	{
+		try 
+		{
+			for(int i=0; i<length; i++)
+			{
+				out.write(' ');
+				out.write(dictionary.decode(items[i]));
+			}
+			out.write(" : ");
+			out.write(Integer.toString(support));
+			out.write('\n');
+		} 
+		catch(IOException ioe) 
+		{
+			reportError(ioe);
+		}
+	}
+	
+	public void endMining()
+	{
+		try 
+		{
+			out.flush();
+		} 
+		catch(IOException ioe) 
+		{
+			reportError(ioe);
+		}
+	}
+	
+	//flushes the buffer, the file is closed if it was opened by this sink
+	public void close()
+	{
+		try 
+		{
+			if(owns_stream)
+				out.close();
+			else
+				out.flush();
+		} 
+		catch(IOException ioe) 
+		{
+			reportError(ioe);
+		}
+	}
+	
+	private void reportError(IOException ioe)
+	{
+		if(failed)
+			return;
+		failed = true;
+		System.out.println("Error! Cannot write frequent item sets ! " + ioe.toString());
+	}
+}
@@ -0,0 +1,91 @@
+package DataStream.Mining.FrequentPatterns;
+
+/*
+ * Benchmark for parsing transaction files into item ids (no tree construction).
+ *
+ * Description:
+ * - 	"split"		BufferedReader.readLine(), String.split("\\s+") and ItemDictionary.encode() of every token,
+ * 					as the scans did before TransactionTokenizer.
+ *
+ * -	"tokenizer"	TransactionTokenizer: tokens parsed from the bytes of the file into a reusable int array.
+ *
+ * -	Both encode with a new dictionary per round. A few warm-up rounds are run first,
+ * 		then the average throughput over the timed rounds is reported (lines and MB per second).
+ *
+ * - 	java TokenizerBenchmark [input file] [rounds]
+ * 		defaults: data/T10I4D100K.dat 10
+ */
+
+import java.io.*;
+
+public class TokenizerBenchmark {
+
+	static final int WARMUP_ROUNDS = 3;
+
+	static long checksum;	//sum of the ids, so that nothing is optimized away
+
+	//parses the file once, returns the parsing time in ns
+	static long parseOnce(String parser, File file) throws IOException
+	{
+		ItemDictionary dictionary = new ItemDictionary();
+		long sum = 0;
+		long startTime = System.nanoTime();
+		if(parser.equals("split"))
+		{
+			BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(file)));
+			String line = null;
+			while((line = br.readLine()) != null)
+			{
+				int []items = dictionary.encode(line.split("\\s+"));
+				for(int i=0; i<items.length; i++)
+					sum += items[i];
+			}
+			br.close();
+		}
+		else
+		{
+			TransactionTokenizer tokenizer = new TransactionTokenizer(new FileInputStream(file), dictionary);
+			while(tokenizer.next())
+			{
+				int []items = tokenizer.getItems();
+				for(int i=0; i<tokenizer.size(); i++)
+					sum += items[i];
+			}
+			tokenizer.close();
+		}
+		long endTime = System.nanoTime();
+		checksum += sum;
+		return endTime - startTime;
+	}
+
+	static void benchmark(String parser, File file, int lines, int rounds) throws IOException
+	{
+		for(int i=0; i<WARMUP_ROUNDS; i++)
+			parseOnce(parser, file);
+
+		long total = 0;
+		for(int i=0; i<rounds; i++)
+			total += parseOnce(parser, file);
+
+		double seconds = total / 1e9 / rounds;
+		System.out.printf("%-10s lines: %7d  avg parsing time: %8.1f ms  %10.0f lines/s  %7.1f MB/s%n",
+				parser, lines, seconds * 1e3, lines / seconds, file.length() / 1e6 / seconds);
+	}
+
+	public static void main(String args[])
+	{
+		File file = new File(args.length > 0 ? args[0] : "data/T10I4D100K.dat");
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+		try
+		{
+			int lines = LineOffsetIndex.build(file).size();
+			benchmark("split", file, lines, rounds);
+			benchmark("tokenizer", file, lines, rounds);
+		}
+		catch(IOException ioe)
+		{
+			System.out.println("Error! Cannot read the input file ! "+ioe.toString());
+		}
+	}
+}
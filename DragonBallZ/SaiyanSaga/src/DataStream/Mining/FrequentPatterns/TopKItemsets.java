@@ -0,0 +1,138 @@
+package DataStream.Mining.FrequentPatterns;
+
+/*
+ * The k most frequent item sets found so far, for top-K mining.
+ * 
+ * Description:
+ * - 	Item sets are kept in a min-heap on their support (the root is the k-th most frequent item set), 
+ * 		every item set is copied into an array which is reused once the item set is pushed out of the heap.
+ * 
+ * -	Item sets with less than min_length items are not kept (but their extensions may be).
+ * 
+ * -	getSupportThreshold() is the support an item set needs to get into the heap: the initial support threshold 
+ * 		until k item sets are found, then one more than the support of the k-th item set. 
+ * 		It only rises, so the miner can prune every item set (and all its extensions) below it. 
+ * 		Ties at the k-th support are broken by the mining order.
+ */
+
+import java.util.Arrays;
+
+public class TopKItemsets {
+	private int k;
+	private int min_length;
+	private int min_support;	//initial support threshold
+	
+	private int[][] items;		//heap of item sets
+	private int[] lengths;
+	private int[] supports;
+	private int size;
+	
+	public TopKItemsets(int k, int min_length, int min_support)
+	{
+		this.k = Math.max(k, 0);
+		this.min_length = min_length;
+		this.min_support = Math.max(min_support, 1);
+		items = new int[this.k][];
+		lengths = new int[this.k];
+		supports = new int[this.k];
+		size = 0;
+	}
+	
+	public int size()
+	{
+		return size;
+	}
+	
+	//minimum support of an item set to get into the top-K
+	public int getSupportThreshold()
+	{
+		if(k == 0)
+			return Integer.MAX_VALUE;
+		if(size < k)
+			return min_support;
+		return Math.max(min_support, supports[0] + 1);
+	}
+	
+	//keeps a copy of itemset[0..length) if it is among the k most frequent item sets so far
+	public void offer(int[] itemset, int length, int support)
+	{
+		if(length < min_length || support < getSupportThreshold())
+			return;
+		
+		int slot;
+		if(size < k)
+			slot = size++;
+		else
+			slot = 0;		//the root (k-th item set) is pushed out
+		
+		if(items[slot] == null || items[slot].length < length)
+			items[slot] = new int[Math.max(length, 8)];
+		System.arraycopy(itemset, 0, items[slot], 0, length);
+		lengths[slot] = length;
+		supports[slot] = support;
+		
+		if(slot == 0 && size == k)
+			siftDown(0);
+		else
+			siftUp(slot);
+	}
+	
+	//hands the item sets over to the sink, in descending order of support (the heap is emptied)
+	public void reportTo(ItemsetSink sink)
+	{
+		int n = size;
+		while(size > 1)		//heap sort: the least frequent item set is moved behind the heap
+		{
+			swap(0, size-1);
+			size--;
+			siftDown(0);
+		}
+		size = 0;
+		for(int i=0; i<n; i++)
+			sink.itemset(items[i], lengths[i], supports[i]);
+		Arrays.fill(items, null);
+	}
+	
+	private void siftUp(int i)
+	{
+		while(i > 0)
+		{
+			int parent = (i-1)/2;
+			if(supports[parent] <= supports[i])
+				break;
+			swap(i, parent);
+			i = parent;
+		}
+	}
+	
+	private void siftDown(int i)
+	{
+		while(true)
+		{
+			int smallest = i;
+			int left = 2*i + 1;
+			int right = left + 1;
+			if(left < size && supports[left] < supports[smallest])
+				smallest = left;
+			if(right < size && supports[right] < supports[smallest])
+				smallest = right;
+			if(smallest == i)
+				return;
+			swap(i, smallest);
+			i = smallest;
+		}
+	}
+	
+	private void swap(int i, int j)
+	{
+		int []tmp_items = items[i];
+		items[i] = items[j];
+		items[j] = tmp_items;
+		int tmp = lengths[i];
+		lengths[i] = lengths[j];
+		lengths[j] = tmp;
+		tmp = supports[i];
+		supports[i] = supports[j];
+		supports[j] = tmp;
+	}
+}
@@ -5,23 +5,49 @@ package DataStream.Mining.FrequentPatterns;
  * A transaction will typically have 
  * 	- a transaction id
  * 	- list if items in the transaction, separated by a delimiter
+ * 	- the items encoded as ids (see ItemDictionary), sorted in the canonical (lexicographic) order of their tokens
  * 	- no timestamp; because we will consider physical windows only
+ * 
+ * The items are parsed and encoded once, when the transaction is read.
+ * EPL statements select them as the typed property "items" (getItems()), listeners get the int[] as it is.
  */
 
+import java.util.Arrays;
+
 public class Transaction {
 	private int transaction_id;
 	private String item_list;
+	private int[] items;
 	
 	public Transaction() 
 	{
 		transaction_id = 0;
 		item_list = null;
+		items = new int[0];
 	}
 	
+	//the item list is kept as text only, nothing is encoded (see getItems())
 	public Transaction(int id, String input_record) 
 	{
 		transaction_id = id;
 		item_list = input_record;
+		items = null;
+	}
+	
+	//the items of the record are encoded with the dictionary, once and for all
+	public Transaction(int id, String input_record, ItemDictionary dictionary) 
+	{
+		transaction_id = id;
+		item_list = input_record;
+		items = encode(input_record, dictionary);
+	}
+	
+	//the items are encoded already (e.g. read from a BinaryTransactionFile), in the canonical order
+	public Transaction(int id, int[] items) 
+	{
+		transaction_id = id;
+		item_list = null;
+		this.items = items;
 	}
 	
 	public int getTransaction_id()
@@ -33,4 +59,21 @@ public class Transaction {
 	{
 		return this.item_list;
 	}
+	
+	//encoded items in the canonical order, null if the transaction was created without a dictionary
+	public int[] getItems()
+	{
+		return this.items;
+	}
+	
+	/*
+	 * Ids of the items of a list (separated by white space), sorted in the lexicographic order of their tokens.
+	 * This is the canonical order of the CanTree, the FP-Tree sorts the items by frequency anyway.
+	 */
+	public static int[] encode(String item_list, ItemDictionary dictionary)
+	{
+		String []tokens = item_list.split("\\s+");
+		Arrays.sort(tokens);
+		return dictionary.encode(tokens);	//empty tokens (e.g. of an empty list) are skipped
+	}
 }
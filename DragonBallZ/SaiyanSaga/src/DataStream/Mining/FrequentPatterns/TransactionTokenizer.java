@@ -0,0 +1,348 @@
+package DataStream.Mining.FrequentPatterns;
+
+/*
+ * Tokenizer of transaction lines (items separated by white space), straight from the bytes of the input into item ids.
+ *
+ * Description:
+ * - 	next() reads the next line from a byte buffer refilled from the input stream, the ids of its items
+ * 		are left in a reusable int array (getItems(), size()). No line String, no token Strings, no regex.
+ * 		The separators are those of split("\\s+"): ' ', '\t', '\n', '\u000B', '\f', '\r'. Lines end with '\n' (or "\r\n").
+ *
+ * -	Tokens are looked up in a local hash table keyed by their characters (String.hashCode() of the token),
+ * 		which caches the ids of the dictionary: a String is created only the first time a token is seen by this tokenizer.
+ * 		Tokens with non-ASCII bytes are decoded (UTF-8) before the lookup.
+ * 		The table is cleared when ids of the dictionary were released (see ItemDictionary.release()), its tokens are encoded again.
+ *
+ * -	tokenize(String) does the same for a line already read as text (e.g. a textual pattern base).
+ *
+ * -	sortCanonical() sorts the items of the line in the lexicographic order of their tokens (canonical order of the CanTree).
+ *
+ * -	A tokenizer is not thread-safe, the dictionary may be shared (encoding is synchronized).
+ */
+
+import java.io.*;
+import java.util.Arrays;
+
+public class TransactionTokenizer {
+	static final int BUFFER_SIZE = 1 << 16;
+	
+	private InputStream in;					//null if only tokenize(String) is used
+	private byte[] buffer;
+	private int position;					//next byte to read in the buffer
+	private int limit;						//end of the bytes read into the buffer
+	private ItemDictionary dictionary;
+	private int[] items;					//ids of the items of the current line
+	private int size;
+	private char[][] keys;					//hash table (linear probing): characters of the tokens seen so far
+	private int[] hashes;
+	private int[] ids;						//their ids in the dictionary
+	private int key_count;
+	private int releases;					//release count of the dictionary the cached ids belong to
+	private char[] chars;					//scratch space for the characters of a token
+	
+	//tokenizer of the lines of the input stream, encoded with the dictionary
+	public TransactionTokenizer(InputStream in, ItemDictionary dictionary)
+	{
+		this.in = in;
+		this.dictionary = dictionary;
+		buffer = new byte[BUFFER_SIZE];
+		position = 0;
+		limit = 0;
+		items = new int[16];
+		size = 0;
+		keys = new char[1024][];
+		hashes = new int[keys.length];
+		ids = new int[keys.length];
+		key_count = 0;
+		releases = dictionary.getReleaseCount();
+		chars = new char[64];
+	}
+	
+	//tokenizer of text lines only (see tokenize())
+	public TransactionTokenizer(ItemDictionary dictionary)
+	{
+		this(null, dictionary);
+	}
+	
+	public ItemDictionary getItemDictionary()
+	{
+		return dictionary;
+	}
+	
+	//ids of the items of the current line, valid until the next line is read
+	public int[] getItems()
+	{
+		return items;
+	}
+	
+	//number of items of the current line
+	public int size()
+	{
+		return size;
+	}
+	
+	//copy of the ids of the items of the current line
+	public int[] copyItems()
+	{
+		return Arrays.copyOf(items, size);
+	}
+	
+	/*
+	 * Reads and tokenizes the next line, returns false at the end of the input.
+	 * An empty line is a line without items (size() is 0).
+	 */
+	public boolean next() throws IOException
+	{
+		size = 0;
+		checkReleases();
+		if(position == limit && !fill())
+			return false;
+		
+		while(true)
+		{
+			while(position < limit && isSeparator(buffer[position]))	//white space before the next token
+			{
+				if(buffer[position++] == '\n')
+					return true;
+			}
+			if(position == limit)
+			{
+				if(!fill())
+					return true;	//last line without newline
+				continue;
+			}
+			
+			int start = position;
+			while(true)
+			{
+				while(position < limit && !isSeparator(buffer[position]))
+					position++;
+				if(position < limit)
+					break;
+				
+				int len = limit - start;		//token cut by the end of the buffer: moved to its beginning, the rest is read after it
+				if(start > 0)
+					System.arraycopy(buffer, start, buffer, 0, len);
+				else if(len == buffer.length)	//token longer than the buffer
+					buffer = Arrays.copyOf(buffer, 2 * buffer.length);
+				start = 0;
+				position = len;
+				limit = len;
+				int read = in.read(buffer, limit, buffer.length - limit);
+				if(read <= 0)
+					break;		//last token of the input
+				limit += read;
+			}
+			addItem(lookup(buffer, start, position));
+		}
+	}
+	
+	//skips the next line without tokenizing it, returns false at the end of the input
+	public boolean skipLine() throws IOException
+	{
+		size = 0;
+		if(position == limit && !fill())
+			return false;
+		while(true)
+		{
+			while(position < limit)
+				if(buffer[position++] == '\n')
+					return true;
+			if(!fill())
+				return true;
+		}
+	}
+	
+	/*
+	 * Tokenizes the characters [start, end) of a text line, returns the number of items (see getItems()).
+	 */
+	public int tokenize(String line, int start, int end)
+	{
+		size = 0;
+		checkReleases();
+		int i = start;
+		while(i < end)
+		{
+			while(i < end && isSeparator(line.charAt(i)))
+				i++;
+			if(i == end)
+				break;
+			int token_start = i;
+			int hash = 0;
+			while(i < end && !isSeparator(line.charAt(i)))
+				hash = 31 * hash + line.charAt(i++);
+			int len = i - token_start;
+			if(chars.length < len)
+				chars = new char[Math.max(len, 2 * chars.length)];
+			line.getChars(token_start, i, chars, 0);
+			addItem(lookup(chars, len, hash));
+		}
+		return size;
+	}
+	
+	//same as above, for the whole line
+	public int tokenize(String line)
+	{
+		return tokenize(line, 0, line.length());
+	}
+	
+	//sorts the items of the current line in the lexicographic order of their tokens (insertion sort, transactions are short)
+	public void sortCanonical()
+	{
+		for(int i=1; i<size; i++)
+		{
+			int item = items[i];
+			int j = i - 1;
+			while(j >= 0 && dictionary.compare(items[j], item) > 0)
+			{
+				items[j + 1] = items[j];
+				j--;
+			}
+			items[j + 1] = item;
+		}
+	}
+	
+	public void close() throws IOException
+	{
+		if(in != null)
+			in.close();
+	}
+	
+	private static boolean isSeparator(int c)
+	{
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+	}
+	
+	//refills the buffer once all of it is consumed, false at the end of the input
+	private boolean fill() throws IOException
+	{
+		if(in == null)
+			return false;
+		int read = in.read(buffer, 0, buffer.length);
+		position = 0;
+		limit = Math.max(read, 0);
+		return read > 0;
+	}
+	
+	//drops the cached ids once the dictionary released ids (one of them may be cached, or handed out again to another token)
+	private void checkReleases()
+	{
+		int count = dictionary.getReleaseCount();
+		if(count == releases)
+			return;
+		Arrays.fill(keys, null);
+		key_count = 0;
+		releases = count;
+	}
+	
+	private void addItem(int id)
+	{
+		if(size == items.length)
+			items = Arrays.copyOf(items, 2 * items.length);
+		items[size++] = id;
+	}
+	
+	//id of the token held in the bytes [start, end) of the buffer
+	private int lookup(byte[] bytes, int start, int end)
+	{
+		int len = end - start;
+		int hash = 0;
+		for(int i=start; i<end; i++)
+		{
+			if(bytes[i] < 0)	//non-ASCII byte: the token is decoded first
+			{
+				String token = decodeUTF8(bytes, start, len);
+				if(chars.length < token.length())
+					chars = new char[Math.max(token.length(), 2 * chars.length)];
+				token.getChars(0, token.length(), chars, 0);
+				return lookup(chars, token.length(), token.hashCode());
+			}
+			hash = 31 * hash + bytes[i];
+		}
+		
+		int mask = keys.length - 1;
+		for(int slot = (hash ^ (hash >>> 16)) & mask; keys[slot] != null; slot = (slot + 1) & mask)	//ASCII token compared with the bytes, no copy
+			if(hashes[slot] == hash && equal(keys[slot], bytes, start, len))
+				return ids[slot];
+		
+		if(chars.length < len)		//not seen yet, added below
+			chars = new char[Math.max(len, 2 * chars.length)];
+		for(int i=0; i<len; i++)
+			chars[i] = (char) bytes[start + i];
+		return lookup(chars, len, hash);
+	}
+	
+	//id of the token held in chars[0..len), with the given String.hashCode()
+	private int lookup(char[] token, int len, int hash)
+	{
+		int mask = keys.length - 1;
+		int slot = (hash ^ (hash >>> 16)) & mask;
+		while(keys[slot] != null)
+		{
+			if(hashes[slot] == hash && equal(keys[slot], token, len))
+				return ids[slot];
+			slot = (slot + 1) & mask;
+		}
+		
+		int id = dictionary.encode(new String(token, 0, len));	//first time this token is seen here
+		keys[slot] = Arrays.copyOf(token, len);
+		hashes[slot] = hash;
+		ids[slot] = id;
+		if(2 * ++key_count > keys.length)	//keep the load factor at most 1/2
+			rehash();
+		return id;
+	}
+	
+	private static boolean equal(char[] key, char[] token, int len)
+	{
+		if(key.length != len)
+			return false;
+		for(int i=0; i<len; i++)
+			if(key[i] != token[i])
+				return false;
+		return true;
+	}
+	
+	private static boolean equal(char[] key, byte[] bytes, int start, int len)
+	{
+		if(key.length != len)
+			return false;
+		for(int i=0; i<len; i++)
+			if(key[i] != bytes[start + i])
+				return false;
+		return true;
+	}
+	
+	private void rehash()
+	{
+		char [][]old_keys = keys;
+		int []old_hashes = hashes;
+		int []old_ids = ids;
+		keys = new char[2 * old_keys.length][];
+		hashes = new int[keys.length];
+		ids = new int[keys.length];
+		int mask = keys.length - 1;
+		for(int i=0; i<old_keys.length; i++)
+			if(old_keys[i] != null)
+			{
+				int slot = (old_hashes[i] ^ (old_hashes[i] >>> 16)) & mask;
+				while(keys[slot] != null)
+					slot = (slot + 1) & mask;
+				keys[slot] = old_keys[i];
+				hashes[slot] = old_hashes[i];
+				ids[slot] = old_ids[i];
+			}
+	}
+	
+	private static String decodeUTF8(byte[] bytes, int start, int len)
+	{
+		try
+		{
+			return new String(bytes, start, len, "UTF-8");
+		}
+		catch(UnsupportedEncodingException uee)
+		{
+			throw new IllegalStateException(uee);	//UTF-8 is always supported
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package DataStream.Mining.FrequentPatterns;
+
+/*
+ * Benchmark for FP-Tree and CanTree construction (no mining).
+ *
+ * Description:
+ * - 	Builds the trees from the first [window] transactions of the input file,
+ * 		with both tree storages (FPTreeNode objects and NodeArena).
+ *
+ * -	The trees are built from the text file, then from its binary form (see BinaryTransactionFile, converted to a temporary file):
+ * 		the difference is the time spent reading and parsing the text.
+ *
+ * -	Then from the text file again, with parallel scans (see ParallelTransactionScan) on a ForkJoinPool of all the cores.
+ *
+ * -	A few warm-up rounds are run first, then the average construction time over the timed rounds is reported.
+ *
+ * - 	java TreeConstructionBenchmark [input file] [support] [window] [rounds]
+ * 		defaults: data/T10I4D100K.dat 1 100000 5
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+public class TreeConstructionBenchmark {
+
+	static final int WARMUP_ROUNDS = 2;
+
+	//builds one tree (from the binary file if not null, from the text file otherwise, with parallel scans if pool is not null), returns the construction time in ms
+	static double buildOnce(String tree, boolean arena, File file, BinaryTransactionFile binary, ForkJoinPool pool, int support, int window)
+	{
+		long startTime = System.nanoTime();
+		if(pool != null)
+		{
+			TreeStorage storage = arena ? new NodeArena() : new FPTreeNodeStorage();
+			if(tree.equals("FPTree"))
+				new FPTree(file, support, 1, window, storage, pool);
+			else
+				new CanTree(file, support, 1, window, storage, pool);
+		}
+		else if(binary != null)
+		{
+			TreeStorage storage = arena ? new NodeArena() : new FPTreeNodeStorage();
+			if(tree.equals("FPTree"))
+				new FPTree(binary, support, 1, window, storage);
+			else
+				new CanTree(binary, support, 1, window, storage);
+		}
+		else if(tree.equals("FPTree"))
+		{
+			if(arena)
+				new FPTree(file, support, 1, window, new NodeArena());
+			else
+				new FPTree(file, support, 1, window);
+		}
+		else
+		{
+			if(arena)
+				new CanTree(file, support, 1, window, new NodeArena());
+			else
+				new CanTree(file, support, 1, window);
+		}
+		long endTime = System.nanoTime();
+		return (endTime - startTime) / 1e6;
+	}
+
+	static void benchmark(String tree, boolean arena, File file, BinaryTransactionFile binary, ForkJoinPool pool, int support, int window, int rounds)
+	{
+		for(int i=0; i<WARMUP_ROUNDS; i++)
+			buildOnce(tree, arena, file, binary, pool, support, window);
+
+		double total = 0;
+		for(int i=0; i<rounds; i++)
+			total += buildOnce(tree, arena, file, binary, pool, support, window);
+
+		String storage = arena ? "NodeArena" : "FPTreeNode";
+		String source = (pool != null) ? "par" + pool.getParallelism() : (binary != null) ? "binary" : "text";
+		System.out.printf("%-8s %-11s %-7s window: %7d  support: %5d  avg construction time: %10.1f ms%n",
+				tree, storage, source, window, support, total / rounds);
+	}
+
+	public static void main(String args[])
+	{
+		File file = new File(args.length > 0 ? args[0] : "data/T10I4D100K.dat");
+		int support = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+		int window = args.length > 2 ? Integer.parseInt(args[2]) : 100000;
+		int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+		benchmark("FPTree", false, file, null, null, support, window, rounds);
+		benchmark("FPTree", true, file, null, null, support, window, rounds);
+		benchmark("CanTree", false, file, null, null, support, window, rounds);
+		benchmark("CanTree", true, file, null, null, support, window, rounds);
+
+		ForkJoinPool pool = new ForkJoinPool();
+		benchmark("FPTree", false, file, null, pool, support, window, rounds);
+		benchmark("FPTree", true, file, null, pool, support, window, rounds);
+		benchmark("CanTree", false, file, null, pool, support, window, rounds);
+		benchmark("CanTree", true, file, null, pool, support, window, rounds);
+		pool.shutdown();
+
+		try
+		{
+			File binary_file = File.createTempFile("transactions", ".bin");
+			binary_file.deleteOnExit();
+			BinaryTransactionFile.convert(file, binary_file);
+			BinaryTransactionFile binary = BinaryTransactionFile.open(binary_file);
+
+			benchmark("FPTree", false, file, binary, null, support, window, rounds);
+			benchmark("FPTree", true, file, binary, null, support, window, rounds);
+			benchmark("CanTree", false, file, binary, null, support, window, rounds);
+			benchmark("CanTree", true, file, binary, null, support, window, rounds);
+		}
+		catch(IOException ioe)
+		{
+			System.out.println("Error! Cannot convert the input file ! "+ioe.toString());
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package DataStream.Mining.FrequentPatterns;
+
+/*
+ * Common interface of the prefix tree storage behind FPTree and CanTree.
+ * 
+ * Description:
+ * - 	Nodes are addressed by int handles. The root is created with the storage
+ * 		and carries the item FPTreeNode.ROOT_ITEM.
+ * 
+ * -	NULL_NODE stands for a missing parent, child or next node (node link).
+ * 
+ * -	Node-link chains are doubly linked (setNextNode() also sets the previous node of next_node),
+ * 		so a node can be unlinked from its chain in constant time.
+ * 
+ * -	Nodes can be detached from their parent (removeChild()) and given back with freeNode(),
+ * 		freed handles are reused by the next added children. compact() renumbers the live nodes densely.
+ * 
+ * -	Implementations:
+ * 		1) FPTreeNodeStorage	-> one FPTreeNode object per node.
+ * 		2) NodeArena			-> nodes live in growable primitive arrays (struct-of-arrays), no object per node.
+ */
+
+public interface TreeStorage {
+	public static final int NULL_NODE = -1;
+	
+	public int getRoot();
+	
+	public int getItem(int node);
+	
+	public int getFrequency(int node);
+	
+	public int getParent(int node);
+	
+	public int getChildrenCount(int node);
+	
+	public int getChild(int node, int i);				//return the ith child
+	
+	public int findChild(int node, int item);			//return the child whose item matches, NULL_NODE if there is none
+	
+	public int addChild(int node, int item, int frequency);	//return the newly added child
+	
+	/*
+	 * Adds delta to the frequency of the child whose item matches and returns it.
+	 * If there is no such child, a child is created with frequency delta (getChildrenCount(node) grows by one).
+	 */
+	public int findOrAddChild(int node, int item, int delta);
+	
+	public int getNextNode(int node);
+	
+	public void setNextNode(int node, int next_node);	//next_node (if any) gets node as its previous node
+	
+	public int getPrevNode(int node);
+	
+	public void unlinkNode(int node);					//removes the node from its node-link chain, joining its neighbours
+	
+	public void incrementFrequency(int node, int delta);
+	
+	public void removeChild(int node, int child);		//detaches the child (and its subtree) from the node
+	
+	/*
+	 * Gives the handle of a detached node back to the storage, to be reused by a later addChild()/findOrAddChild().
+	 * The node must be unlinked from its node-link chain. It must be detached from its parent, 
+	 * unless the parent is freed as well (after all its children).
+	 */
+	public void freeNode(int node);
+	
+	public int size();									//number of live nodes, including the root
+	
+	public int freeCount();								//number of freed handles waiting to be reused
+	
+	/*
+	 * Renumbers the live nodes densely (in the order of their handles) and drops the freed handles.
+	 * Returns the new handle of every old handle, NULL_NODE for the freed ones.
+	 */
+	public int[] compact();
+	
+	/*
+	 * Returns an empty storage of the same kind, to hold a conditional tree.
+	 * The returned storage must be given back with release() once the conditional tree is mined.
+	 */
+	public TreeStorage newStorage();
+	
+	/*
+	 * Returns an empty storage of the same kind that does not belong to any pool:
+	 * it may be filled on one thread and released on another (e.g. a partition tree of a parallel construction).
+	 */
+	public TreeStorage newUnpooledStorage();
+	
+	/*
+	 * Returns an independent copy of the storage with the same handles (and the same node-link chains),
+	 * e.g. a snapshot of a tree to be mined by another thread while this storage is updated.
+	 */
+	public TreeStorage copy();
+	
+	public void release();
+}
@@ -0,0 +1,209 @@
+package DataStream.Mining.FrequentPatterns;
+
+/*
+ * Content of the sliding window: the transactions as item ids (see ItemDictionary), oldest first.
+ *
+ * Description:
+ * - 	The items of all the transactions are kept in one circular buffer of ints, one transaction after the other.
+ * 		A transaction that does not fit at the end of the buffer goes to its beginning (the gap at the end is skipped).
+ * 		The bounds of every transaction are kept in two circular arrays of the capacity of the window (in transactions).
+ * 		About 4 bytes per item and 8 bytes per transaction, instead of a String, its chars and a list node per transaction.
+ *
+ * -	A slide is a contiguous run of the buffer, so the oldest slide leaves the window at once (expire() moves the head, O(1)).
+ * 		The buffer only grows (by a compacting copy) if the window holds more items than ever before.
+ *
+ * -	Trees are built straight from the buffer: getItems() with getStart(i)/getEnd(i) give the items of the ith transaction,
+ * 		nothing is copied. getTransaction(i) returns a copy (e.g. of an expired transaction, before its items are overwritten).
+ *
+ * -	Not thread-safe: a stage mining the window on another thread is given a copy() of it.
+ */
+
+import java.util.Arrays;
+
+public class WindowStore {
+	static final int INITIAL_ITEMS_PER_TRANSACTION = 16;
+	
+	private ItemDictionary dictionary;	//ids of the items
+	private int capacity;				//in transactions
+	private int[] items;				//circular buffer of the items of all the transactions
+	private int[] starts;				//by slot (circular): bounds of the items of the transaction in the buffer
+	private int[] ends;
+	private int head;					//slot of the oldest transaction
+	private int size;					//transactions in the window
+	private int item_tail;				//end of the items of the newest transaction
+	
+	public WindowStore(int capacity, ItemDictionary dictionary)
+	{
+		this(capacity, dictionary, INITIAL_ITEMS_PER_TRANSACTION * Math.max(capacity, 1));
+	}
+	
+	private WindowStore(int capacity, ItemDictionary dictionary, int item_capacity)
+	{
+		this.dictionary = dictionary;
+		this.capacity = Math.max(capacity, 1);
+		items = new int[Math.max(item_capacity, 1)];
+		starts = new int[this.capacity];
+		ends = new int[this.capacity];
+		head = 0;
+		size = 0;
+		item_tail = 0;
+	}
+	
+	public ItemDictionary getItemDictionary()
+	{
+		return dictionary;
+	}
+	
+	public int size()
+	{
+		return size;
+	}
+	
+	public int getCapacity()
+	{
+		return capacity;
+	}
+	
+	public boolean isFull()
+	{
+		return size == capacity;
+	}
+	
+	//buffer holding the items, valid until the next add()
+	public int[] getItems()
+	{
+		return items;
+	}
+	
+	//start of the items of the ith transaction (0 is the oldest) in the buffer
+	public int getStart(int i)
+	{
+		return starts[slot(i)];
+	}
+	
+	//end (exclusive) of the items of the ith transaction in the buffer
+	public int getEnd(int i)
+	{
+		return ends[slot(i)];
+	}
+	
+	//copy of the items of the ith transaction
+	public int[] getTransaction(int i)
+	{
+		int s = slot(i);
+		return Arrays.copyOfRange(items, starts[s], ends[s]);
+	}
+	
+	/*
+	 * The transaction enters the window as the newest one.
+	 * If the window is full, the oldest transaction leaves it first.
+	 */
+	public void add(int[] transaction)
+	{
+		add(transaction, 0, transaction.length);
+	}
+	
+	//same as above, with the items transaction[start..end)
+	public void add(int[] transaction, int start, int end)
+	{
+		if(size == capacity)
+			expire(1);
+		
+		int len = end - start;
+		int at = reserve(len);
+		System.arraycopy(transaction, start, items, at, len);
+		int s = slot(size);
+		starts[s] = at;
+		ends[s] = at + len;
+		item_tail = at + len;
+		size++;
+	}
+	
+	//the count oldest transactions leave the window, their items are overwritten by the next ones
+	public void expire(int count)
+	{
+		count = Math.min(count, size);
+		head = (head + count) % capacity;
+		size -= count;
+		if(size == 0)
+		{
+			head = 0;
+			item_tail = 0;
+		}
+	}
+	
+	/*
+	 * The window slides over the arrived transactions and keeps its size: as many of the oldest transactions leave it.
+	 * If more transactions arrive than the window holds, the first of them leave it right away.
+	 */
+	public void slide(int[][] arrived)
+	{
+		int from = Math.max(0, arrived.length - size);	//arrived transactions leaving within the same slide
+		expire(arrived.length);
+		for(int i=from; i<arrived.length; i++)
+			add(arrived[i]);
+	}
+	
+	//independent copy of the window (same dictionary), with the items compacted at the beginning of a new buffer
+	public WindowStore copy()
+	{
+		int count = 0;
+		for(int i=0; i<size; i++)
+			count += getEnd(i) - getStart(i);
+		
+		WindowStore window = new WindowStore(capacity, dictionary, count);
+		for(int i=0; i<size; i++)
+			window.add(items, getStart(i), getEnd(i));
+		return window;
+	}
+	
+	private int slot(int i)
+	{
+		return (head + i) % capacity;
+	}
+	
+	//start of a free run of len items, right after the items of the newest transaction or (wrapping around) at the beginning of the buffer
+	private int reserve(int len)
+	{
+		if(len == 0 || size == 0 && len <= items.length)
+			return (size == 0) ? 0 : item_tail;
+		
+		if(size > 0)
+		{
+			int item_head = starts[head];
+			if(item_tail >= item_head)		//items in [item_head, item_tail)
+			{
+				if(items.length - item_tail >= len)
+					return item_tail;
+				if(item_head > len)			//strictly, so that the tail never catches up with the head
+					return 0;
+			}
+			else if(item_head - item_tail > len)	//wrapped around: items in [item_head, end of the buffer) and [0, item_tail)
+				return item_tail;
+		}
+		grow(len);
+		return item_tail;
+	}
+	
+	//larger buffer, the items of the window are copied (in order) to its beginning
+	private void grow(int len)
+	{
+		int count = 0;
+		for(int i=0; i<size; i++)
+			count += getEnd(i) - getStart(i);
+		
+		int []grown = new int[Math.max(2 * items.length, count + len + 1)];
+		int at = 0;
+		for(int i=0; i<size; i++)
+		{
+			int s = slot(i);
+			int len_i = ends[s] - starts[s];
+			System.arraycopy(items, starts[s], grown, at, len_i);
+			starts[s] = at;
+			ends[s] = at + len_i;
+			at += len_i;
+		}
+		items = grown;
+		item_tail = at;
+	}
+}
@@ -1,12 +1,18 @@
 import java.util.*;
 import java.io.*;
 
+import DataStream.Mining.FrequentPatterns.ItemDictionary;
+import DataStream.Mining.FrequentPatterns.TransactionTokenizer;
+
 /*
  - java AssociationCount
 	[input file path containing consolidated phenomenon] 
 	[input file containing all hashtags over the same period as consolidated phenomenon]
 	[output dir]
  - in global consolidated phenomenon file, we are bothered with phenomenon having length > 1
+ - both input files are tokenized by the TransactionTokenizer of the mining classes:
+	javac -cp ../DragonBallZ/SaiyanSaga/bin AssociationCount.java
+	java -cp .:../DragonBallZ/SaiyanSaga/bin AssociationCount ...
 */
 
 public class AssociationCount {
@@ -21,30 +27,29 @@ public class AssociationCount {
 
 		Hashtable<String,Integer> single_tag = new Hashtable<String,Integer>();
 		Hashtable<String,Integer> biword_tag = new Hashtable<String,Integer>();
+		ItemDictionary dictionary = new ItemDictionary();	//hashtags of both files
 
 		// 1. Read global consolidated phenomenon
 		try 
     		{
-    			FileInputStream fis = new FileInputStream(new File(args[0]));
-    			BufferedReader br = new BufferedReader(new InputStreamReader(fis));
-            		String rec = null;
+    			TransactionTokenizer tokenizer = new TransactionTokenizer(new FileInputStream(new File(args[0])), dictionary);
 
-			while ((rec = br.readLine()) != null) 
+			while (tokenizer.next()) 
             		{
-				String txt[] = rec.split("\\s+");
+				int txt[] = tokenizer.getItems();
 
-				for(int i=0; i<txt.length; i++) 	
-					single_tag.put(txt[i],0);		
+				for(int i=0; i<tokenizer.size(); i++) 	
+					single_tag.put(dictionary.decode(txt[i]),0);		
 
-				for(int i=0; i<txt.length; i++) 	
-				for(int j=0; j<txt.length; j++) 	
+				for(int i=0; i<tokenizer.size(); i++) 	
+				for(int j=0; j<tokenizer.size(); j++) 	
 				{
 					if(i==j) continue;
-					String t = txt[i] + "-" + txt[j];
+					String t = dictionary.decode(txt[i]) + "-" + dictionary.decode(txt[j]);
 					biword_tag.put(t,0);
 				}
 			}	
-            		br.close();
+            		tokenizer.close();
                 }
     		catch(Exception e)
     		{
@@ -55,20 +60,18 @@ public class AssociationCount {
 		// 2. Read all tweets with hashtags
 		try 
     		{
-    			FileInputStream fis = new FileInputStream(new File(args[1]));
-    			BufferedReader br = new BufferedReader(new InputStreamReader(fis));
-            		String rec = null;
+    			TransactionTokenizer tokenizer = new TransactionTokenizer(new FileInputStream(new File(args[1])), dictionary);
 
 			ArrayList<String> elem = new ArrayList<String>();
 
-			while ((rec = br.readLine()) != null) 
+			while (tokenizer.next()) 
             		{
-				String txt[] = rec.split("\\s+");
+				int txt[] = tokenizer.getItems();
 
 				elem.clear();
-				for(int i=0; i<txt.length; i++) 	
-					if(single_tag.containsKey((txt[i])))
-						elem.add((txt[i]));
+				for(int i=0; i<tokenizer.size(); i++) 	
+					if(single_tag.containsKey(dictionary.decode(txt[i])))
+						elem.add(dictionary.decode(txt[i]));
 
 				int cnt = elem.size();
 				for(int i=0; i<cnt; i++) 
@@ -93,7 +96,7 @@ public class AssociationCount {
 					}
 				}
 			}	
-            		br.close();
+            		tokenizer.close();
                 }
     		catch(Exception e)
     		{